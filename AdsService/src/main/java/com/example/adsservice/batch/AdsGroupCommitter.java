@@ -0,0 +1,318 @@
+package com.example.adsservice.batch;
+
+import com.example.adsservice.exception.AdsException;
+import com.example.adsservice.model.entity.Ads;
+import com.example.adsservice.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Групповая запись новых объявлений. Вставки из параллельных запросов попадают в очередь шарда,
+ * поток шарда собирает их в пакет до maxBatchSize штук или до истечения maxDelay с момента
+ * постановки первой и пишет пакет одной транзакцией. Каждый вызывающий получает своё объявление
+ * с присвоенным id. Если вызывающий не дождался записи, а вставка ещё стоит в очереди, она
+ * отменяется; если пакет уже пишется, вызывающий ждёт его результата, чтобы не ответить ошибкой
+ * на сохранённое объявление.
+ */
+@Component
+public class AdsGroupCommitter implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AdsGroupCommitter.class);
+
+    private static final String NEXT_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('ads', 'id'))::int FROM generate_series(1, ?)";
+    private static final String INSERT_SQL =
+            "INSERT INTO ads (id, title, description, price, category, user_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final GroupCommitProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final MeterRegistry meterRegistry;
+    private final List<ShardQueue> queues = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public AdsGroupCommitter(GroupCommitProperties properties, JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager, ShardRouter shardRouter,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.shardRouter = shardRouter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            ShardQueue shardQueue = new ShardQueue(shard);
+            queues.add(shardQueue);
+            shardQueue.worker.start();
+        }
+        log.info("Group commit for ads creation enabled: batch up to {} ads, max delay {}",
+                properties.getMaxBatchSize(), properties.getMaxDelay());
+    }
+
+    public Ads insert(int shard, Ads ad) {
+        ShardQueue shardQueue = queues.get(shard);
+        PendingInsert pending = new PendingInsert(ad);
+        if (!running || !shardQueue.queue.offer(pending)) {
+            shardQueue.fallbacks.increment();
+            log.debug("Group commit queue of shard {} is full, inserting ad directly", shard);
+            writeBatch(shardQueue, Collections.singletonList(pending));
+        }
+        try {
+            return await(pending, true);
+        } catch (TimeoutException e) {
+            if (pending.cancel()) {
+                shardQueue.cancelled.increment();
+                log.error("Group commit of ad for user ID {} did not start within {}, insert cancelled",
+                        ad.getUserId(), properties.getTimeout());
+                throw new AdsException("Не удалось дождаться сохранения объявления, объявление не сохранено");
+            }
+            log.warn("Group commit of ad for user ID {} is still being written after {}, waiting for it",
+                    ad.getUserId(), properties.getTimeout());
+            try {
+                return await(pending, false);
+            } catch (TimeoutException unreachable) {
+                throw new IllegalStateException(unreachable);
+            }
+        }
+    }
+
+    private Ads await(PendingInsert pending, boolean bounded) throws TimeoutException {
+        try {
+            return bounded
+                    ? pending.result.get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    : pending.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // вставка могла быть уже записана, поэтому отменяем только не начатую
+            if (pending.cancel()) {
+                throw new AdsException("Сохранение объявления прервано, объявление не сохранено");
+            }
+            throw new AdsException("Сохранение объявления прервано");
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        for (ShardQueue shardQueue : queues) {
+            shardQueue.worker.interrupt();
+            shardQueue.worker.join(properties.getTimeout().toMillis());
+            List<PendingInsert> remaining = new ArrayList<>();
+            shardQueue.queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                writeBatch(shardQueue, remaining);
+            }
+        }
+    }
+
+    private void runWorker(ShardQueue shardQueue) {
+        long maxDelayNanos = properties.getMaxDelay().toNanos();
+        while (running) {
+            List<PendingInsert> batch = new ArrayList<>(properties.getMaxBatchSize());
+            try {
+                PendingInsert first = shardQueue.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.enqueuedAt + maxDelayNanos;
+                while (batch.size() < properties.getMaxBatchSize()) {
+                    long wait = deadline - System.nanoTime();
+                    PendingInsert next = wait > 0
+                            ? shardQueue.queue.poll(wait, TimeUnit.NANOSECONDS)
+                            : shardQueue.queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    writeBatch(shardQueue, batch);
+                }
+                return;
+            }
+            writeBatch(shardQueue, batch);
+        }
+    }
+
+    // вставки, отменённые вызывающим, пропускаются; остальные больше отменить нельзя
+    private void writeBatch(ShardQueue shardQueue, List<PendingInsert> pendings) {
+        List<PendingInsert> batch = new ArrayList<>(pendings.size());
+        for (PendingInsert pending : pendings) {
+            if (pending.claim()) {
+                batch.add(pending);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(shardQueue, batch);
+        }
+    }
+
+    private void write(ShardQueue shardQueue, List<PendingInsert> batch) {
+        long started = System.nanoTime();
+        for (PendingInsert pending : batch) {
+            shardQueue.queueDelay.record(started - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        shardQueue.batchSize.record(batch.size());
+        try {
+            insertRows(shardQueue, batch);
+            shardQueue.writeTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            batch.forEach(pending -> pending.result.complete(pending.ad));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // одна некорректная строка не должна ронять весь пакет
+            log.warn("Group insert of {} ads on shard {} failed, retrying one by one: {}",
+                    batch.size(), shardQueue.shard, e.getMessage());
+            for (PendingInsert pending : batch) {
+                try {
+                    insertRows(shardQueue, Collections.singletonList(pending));
+                    pending.result.complete(pending.ad);
+                } catch (RuntimeException rowFailure) {
+                    pending.result.completeExceptionally(rowFailure);
+                }
+            }
+        }
+    }
+
+    private void insertRows(ShardQueue shardQueue, List<PendingInsert> rows) {
+        try {
+            shardRouter.onShard(shardQueue.shard, () -> transactionTemplate.executeWithoutResult(status -> {
+                List<Integer> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Integer.class, rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    rows.get(i).ad.setId(ids.get(i));
+                }
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, pending) -> {
+                    Ads ad = pending.ad;
+                    ps.setInt(1, ad.getId());
+                    ps.setString(2, ad.getTitle());
+                    ps.setString(3, ad.getDescription());
+                    ps.setObject(4, ad.getPrice(), Types.DOUBLE);
+                    ps.setString(5, ad.getCategory());
+                    ps.setObject(6, ad.getUserId(), Types.INTEGER);
+                    ps.setTimestamp(7, Timestamp.valueOf(ad.getCreatedAt()));
+                });
+            }));
+        } catch (RuntimeException e) {
+            rows.forEach(pending -> pending.ad.setId(null));
+            throw e;
+        }
+        // версия новой строки - значение по умолчанию колонки
+        rows.forEach(pending -> pending.ad.setVersion(0L));
+    }
+
+    private static final class PendingInsert {
+        private static final int QUEUED = 0;
+        private static final int WRITING = 1;
+        private static final int CANCELLED = 2;
+
+        private final Ads ad;
+        private final CompletableFuture<Ads> result = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        private PendingInsert(Ads ad) {
+            this.ad = ad;
+        }
+
+        private boolean claim() {
+            return state.compareAndSet(QUEUED, WRITING);
+        }
+
+        private boolean cancel() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+    }
+
+    private final class ShardQueue {
+        private final int shard;
+        private final BlockingQueue<PendingInsert> queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        private final Thread worker;
+        private final DistributionSummary batchSize;
+        private final Timer queueDelay;
+        private final Timer writeTime;
+        private final Counter fallbacks;
+        private final Counter cancelled;
+
+        private ShardQueue(int shard) {
+            this.shard = shard;
+            String shardTag = String.valueOf(shard);
+            this.worker = new Thread(() -> runWorker(this), "ads-group-commit-" + shard);
+            this.worker.setDaemon(true);
+            this.batchSize = DistributionSummary.builder("ads.batch.size")
+                    .description("Number of ads written per group commit")
+                    .tag("shard", shardTag)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.queueDelay = Timer.builder("ads.batch.queue.delay")
+                    .description("Time an ad waited in the group commit queue")
+                    .tag("shard", shardTag)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.writeTime = Timer.builder("ads.batch.write")
+                    .description("Time to write one group commit batch")
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+            this.fallbacks = Counter.builder("ads.batch.fallback")
+                    .description("Ads written directly because the group commit queue was full")
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+            this.cancelled = Counter.builder("ads.batch.cancelled")
+                    .description("Queued ads dropped because the caller stopped waiting for the group commit")
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+            Gauge.builder("ads.batch.queue.size", queue, BlockingQueue::size)
+                    .description("Ads waiting in the group commit queue")
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+        }
+    }
+}
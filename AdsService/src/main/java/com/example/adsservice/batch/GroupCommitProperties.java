@@ -0,0 +1,18 @@
+package com.example.adsservice.batch;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.group-commit")
+public class GroupCommitProperties {
+    private boolean enabled = false;
+    private int maxBatchSize = 64;
+    private Duration maxDelay = Duration.ofMillis(5);
+    private int queueCapacity = 10_000;
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,55 @@
+package com.example.adsservice.client;
+
+import com.example.adsservice.config.UserServiceClientProperties;
+import com.example.adsservice.exception.AdsException;
+import com.example.adsservice.rpc.proto.UserDirectoryGrpc;
+import com.example.adsservice.rpc.proto.UserExistsReply;
+import com.example.adsservice.rpc.proto.UserIdRequest;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@ConditionalOnProperty(prefix = "ads.user-service", name = "transport", havingValue = "grpc", matchIfMissing = true)
+public class GrpcUserServiceClient implements UserServiceClient {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcUserServiceClient.class);
+
+    private static final Set<Status.Code> INSTANCE_FAILURES = EnumSet.of(
+            Status.Code.UNAVAILABLE, Status.Code.DEADLINE_EXCEEDED, Status.Code.INTERNAL,
+            Status.Code.RESOURCE_EXHAUSTED, Status.Code.UNKNOWN);
+
+    private final UserServiceBalancer balancer;
+    private final long deadlineMillis;
+
+    public GrpcUserServiceClient(UserServiceBalancer balancer, UserServiceClientProperties properties) {
+        this.balancer = balancer;
+        this.deadlineMillis = properties.getGrpc().getDeadline().toMillis();
+    }
+
+    @Override
+    public void checkUserExists(Integer userId) {
+        UserExistsReply reply;
+        try {
+            reply = balancer.call(instance -> UserDirectoryGrpc.newBlockingStub(instance.getChannel())
+                            .withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                            .checkUser(UserIdRequest.newBuilder().setUserId(userId).build()),
+                    e -> e instanceof StatusRuntimeException
+                            && INSTANCE_FAILURES.contains(((StatusRuntimeException) e).getStatus().getCode()));
+        } catch (StatusRuntimeException e) {
+            log.error("Error while checking user ID: {} in UserService over gRPC", userId, e);
+            throw new AdsException("Ошибка при проверке пользователя: " + e.getStatus());
+        }
+        if (!reply.getExists()) {
+            log.warn("User with ID {} not found in UserService", userId);
+            throw new AdsException("Пользователь с ID " + userId + " не найден");
+        }
+    }
+}
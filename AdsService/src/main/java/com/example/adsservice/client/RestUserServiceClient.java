@@ -0,0 +1,52 @@
+package com.example.adsservice.client;
+
+import com.example.adsservice.exception.AdsException;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "ads.user-service", name = "transport", havingValue = "rest")
+public class RestUserServiceClient implements UserServiceClient {
+
+    private static final Logger log = LoggerFactory.getLogger(RestUserServiceClient.class);
+
+    private final RestTemplate restTemplate;
+    private final UserServiceBalancer balancer;
+
+    @Override
+    public void checkUserExists(Integer userId) {
+        try {
+            ResponseEntity<Map<String, Object>> userResponse = balancer.call(instance -> restTemplate.exchange(
+                    instance.getRestUrl() + "/users/" + userId,
+                    HttpMethod.GET,
+                    null,
+                    new ParameterizedTypeReference<Map<String, Object>>() {
+                    }
+            ), RestUserServiceClient::isInstanceFailure);
+            if (userResponse.getStatusCode() != HttpStatus.OK) {
+                log.warn("User with ID {} not found in UserService", userId);
+                throw new AdsException("Пользователь с ID " + userId + " не найден");
+            }
+        } catch (RestClientException e) {
+            log.error("Error while checking user ID: {} in UserService", userId, e);
+            throw new AdsException("Ошибка при проверке пользователя: " + e.getMessage());
+        }
+    }
+
+    private static boolean isInstanceFailure(RuntimeException e) {
+        return !(e instanceof HttpClientErrorException);
+    }
+}
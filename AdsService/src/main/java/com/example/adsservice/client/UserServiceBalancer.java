@@ -0,0 +1,215 @@
+package com.example.adsservice.client;
+
+import com.example.adsservice.config.UserServiceClientProperties;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Балансировка вызовов UserService между экземплярами, так же как в шлюзе: наименее
+ * загруженный по числу незавершённых вызовов (из двух случайных или из всех) с поправкой
+ * на вес разогрева, активная проверка здоровья и исключение экземпляров после серии ошибок.
+ * Если доступных экземпляров не осталось, выбор идёт среди всех.
+ */
+@Component
+public class UserServiceBalancer implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(UserServiceBalancer.class);
+
+    private final UserServiceClientProperties.LoadBalancer config;
+    private final TaskScheduler taskScheduler;
+    private final MeterRegistry meterRegistry;
+    private final List<UserServiceInstance> instances = new ArrayList<>();
+    private final RestTemplate healthCheckTemplate;
+
+    public UserServiceBalancer(UserServiceClientProperties properties, TaskScheduler taskScheduler,
+                               MeterRegistry meterRegistry) {
+        this.config = properties.getLoadBalancer();
+        this.taskScheduler = taskScheduler;
+        this.meterRegistry = meterRegistry;
+        List<UserServiceClientProperties.Instance> configured = properties.getInstances();
+        if (configured.isEmpty()) {
+            UserServiceClientProperties.Instance single = new UserServiceClientProperties.Instance();
+            single.setRestUrl(properties.getRestUrl());
+            single.setGrpcHost(properties.getGrpc().getHost());
+            single.setGrpcPort(properties.getGrpc().getPort());
+            configured = List.of(single);
+        }
+        boolean grpc = properties.getTransport() == UserServiceClientProperties.Transport.GRPC;
+        for (UserServiceClientProperties.Instance instance : configured) {
+            ManagedChannel channel = grpc
+                    ? ManagedChannelBuilder.forAddress(instance.getGrpcHost(), instance.getGrpcPort())
+                    .usePlaintext()
+                    .keepAliveTime(30, TimeUnit.SECONDS)
+                    .keepAliveWithoutCalls(true)
+                    .build()
+                    : null;
+            instances.add(new UserServiceInstance(instance.getRestUrl(), channel));
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) config.getHealthCheck().getTimeout().toMillis());
+        requestFactory.setReadTimeout((int) config.getHealthCheck().getTimeout().toMillis());
+        this.healthCheckTemplate = new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (UserServiceInstance instance : instances) {
+            String name = instance.getChannel() != null ? instance.getChannel().authority() : instance.getRestUrl();
+            Gauge.builder("ads.user-service.instance.outstanding", instance, UserServiceInstance::getOutstanding)
+                    .description("Calls in flight to the UserService instance")
+                    .tag("instance", name)
+                    .register(meterRegistry);
+            Gauge.builder("ads.user-service.instance.state", instance, i -> i.getState().ordinal())
+                    .description("UserService instance state: 0 up, 1 ejected, 2 down")
+                    .tag("instance", name)
+                    .register(meterRegistry);
+        }
+        if (config.getHealthCheck().isEnabled()) {
+            taskScheduler.scheduleWithFixedDelay(this::checkAll, config.getHealthCheck().getInterval());
+        }
+        log.info("Balancing UserService calls across {} instance(s) with {}", instances.size(), config.getStrategy());
+    }
+
+    /**
+     * Выполняет вызов на выбранном экземпляре. isInstanceFailure отличает сбой экземпляра
+     * от обычного ответа об ошибке, например "пользователь не найден".
+     */
+    public <T> T call(Function<UserServiceInstance, T> call, Predicate<RuntimeException> isInstanceFailure) {
+        UserServiceInstance instance = choose();
+        instance.acquire();
+        try {
+            T result = call.apply(instance);
+            onResult(instance, true);
+            return result;
+        } catch (RuntimeException e) {
+            onResult(instance, !isInstanceFailure.test(e));
+            throw e;
+        } finally {
+            instance.release();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (UserServiceInstance instance : instances) {
+            if (instance.getChannel() != null) {
+                instance.getChannel().shutdownNow();
+            }
+        }
+    }
+
+    private UserServiceInstance choose() {
+        List<UserServiceInstance> candidates = new ArrayList<>(instances.size());
+        for (UserServiceInstance instance : instances) {
+            if (instance.isAvailable()) {
+                candidates.add(instance);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = instances;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        if (config.getStrategy() == UserServiceClientProperties.LoadBalancer.Strategy.LEAST_OUTSTANDING) {
+            UserServiceInstance best = candidates.get(0);
+            for (int i = 1; i < candidates.size(); i++) {
+                best = lessLoaded(best, candidates.get(i));
+            }
+            return best;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        return lessLoaded(candidates.get(first), candidates.get(second));
+    }
+
+    private UserServiceInstance lessLoaded(UserServiceInstance a, UserServiceInstance b) {
+        return load(a) <= load(b) ? a : b;
+    }
+
+    private double load(UserServiceInstance instance) {
+        return (instance.getOutstanding() + 1) / instance.weight(config.getSlowStart().toNanos(), config.getMinWeight());
+    }
+
+    private void onResult(UserServiceInstance instance, boolean success) {
+        UserServiceClientProperties.OutlierDetection outliers = config.getOutlierDetection();
+        if (!outliers.isEnabled() || !instance.recordResult(success, outliers.getConsecutiveFailures())) {
+            return;
+        }
+        long ejected = instances.stream().filter(UserServiceInstance::isEjected).count();
+        if ((ejected + 1) * 100 > (long) outliers.getMaxEjectionPercent() * instances.size()) {
+            count("outlier-detection", "ejection-skipped");
+            return;
+        }
+        instance.eject(outliers.getBaseEjectionTime().toNanos());
+        count("outlier-detection", "ejected");
+        log.warn("UserService instance {} ejected after {} consecutive failures",
+                instance.getRestUrl(), outliers.getConsecutiveFailures());
+    }
+
+    private void checkAll() {
+        UserServiceClientProperties.HealthCheck healthCheck = config.getHealthCheck();
+        for (UserServiceInstance instance : instances) {
+            Boolean changed = instance.recordHealthCheck(probe(instance),
+                    healthCheck.getHealthyThreshold(), healthCheck.getUnhealthyThreshold());
+            if (changed == null) {
+                continue;
+            }
+            count("health-check", changed ? "up" : "down");
+            if (changed) {
+                log.info("UserService instance {} passed health checks, warming up for {}", instance.getRestUrl(), config.getSlowStart());
+            } else {
+                log.warn("UserService instance {} failed health checks and is taken out of rotation", instance.getRestUrl());
+            }
+        }
+    }
+
+    private boolean probe(UserServiceInstance instance) {
+        if (instance.getChannel() != null) {
+            return instance.getChannel().getState(true) != ConnectivityState.TRANSIENT_FAILURE;
+        }
+        try {
+            return healthCheckTemplate.execute(instance.getRestUrl() + config.getHealthCheck().getPath(),
+                    HttpMethod.GET, null, response -> response.getRawStatusCode() < 500);
+        } catch (HttpStatusCodeException e) {
+            return !e.getStatusCode().is5xxServerError();
+        } catch (RestClientException e) {
+            return false;
+        }
+    }
+
+    private void count(String policy, String decision) {
+        Counter.builder("ads.user-service.balancer")
+                .description("Load balancer decisions for UserService calls")
+                .tag("policy", policy)
+                .tag("decision", decision)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.adsservice.client;
+
+public interface UserServiceClient {
+
+    void checkUserExists(Integer userId);
+}
@@ -0,0 +1,118 @@
+package com.example.adsservice.client;
+
+import io.grpc.ManagedChannel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Экземпляр UserService и его состояние для балансировщика.
+ */
+public class UserServiceInstance {
+
+    public enum State {
+        UP, EJECTED, DOWN
+    }
+
+    private final String restUrl;
+    private final ManagedChannel channel;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private volatile boolean healthy = true;
+    private volatile long ejectedUntil;
+    private volatile long warmingSince = System.nanoTime();
+    private int consecutiveFailures;
+    private int ejections;
+    private int healthChecksPassed;
+    private int healthChecksFailed;
+
+    UserServiceInstance(String restUrl, ManagedChannel channel) {
+        this.restUrl = restUrl;
+        this.channel = channel;
+    }
+
+    public String getRestUrl() {
+        return restUrl;
+    }
+
+    // null, если экземпляр вызывается по REST
+    public ManagedChannel getChannel() {
+        return channel;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public State getState() {
+        if (!healthy) {
+            return State.DOWN;
+        }
+        return isEjected() ? State.EJECTED : State.UP;
+    }
+
+    boolean isAvailable() {
+        return healthy && !isEjected();
+    }
+
+    boolean isEjected() {
+        return ejectedUntil != 0 && System.nanoTime() - ejectedUntil < 0;
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    // доля нагрузки, которую экземпляр может принять во время разогрева
+    double weight(long slowStartNanos, double minWeight) {
+        if (slowStartNanos <= 0) {
+            return 1;
+        }
+        double warmed = (double) (System.nanoTime() - warmingSince) / slowStartNanos;
+        return Math.max(minWeight, Math.min(1, warmed));
+    }
+
+    /**
+     * @return true, если экземпляр только что признан выбросом
+     */
+    synchronized boolean recordResult(boolean success, int failureThreshold) {
+        if (success) {
+            consecutiveFailures = 0;
+            return false;
+        }
+        return ++consecutiveFailures >= failureThreshold && !isEjected();
+    }
+
+    synchronized void eject(long baseEjectionNanos) {
+        ejections++;
+        ejectedUntil = System.nanoTime() + baseEjectionNanos * Math.min(ejections, 10);
+        consecutiveFailures = 0;
+        // после исключения экземпляр снова разогревается
+        warmingSince = ejectedUntil;
+    }
+
+    /**
+     * @return новое значение healthy, если оно изменилось, иначе null
+     */
+    synchronized Boolean recordHealthCheck(boolean passed, int healthyThreshold, int unhealthyThreshold) {
+        if (passed) {
+            healthChecksFailed = 0;
+            if (!healthy && ++healthChecksPassed >= healthyThreshold) {
+                healthy = true;
+                ejections = 0;
+                warmingSince = System.nanoTime();
+                return true;
+            }
+        } else {
+            healthChecksPassed = 0;
+            if (healthy && ++healthChecksFailed >= unhealthyThreshold) {
+                healthy = false;
+                return false;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.adsservice.config;
+
+import com.example.adsservice.batch.GroupCommitProperties;
+import com.example.adsservice.datasource.DataSourceRoutingProperties;
+import com.example.adsservice.datasource.ReadYourWritesTracker;
+import com.example.adsservice.datasource.ReplicaRoutingDataSource;
+import com.example.adsservice.datasource.RoutingDataSourceProxy;
+import com.example.adsservice.sharding.ShardRoutingDataSource;
+import com.example.adsservice.sharding.ShardingProperties;
+import com.example.adsservice.sql.SqlMonitorProperties;
+import com.example.adsservice.sql.SqlStatementListener;
+import com.zaxxer.hikari.HikariDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties({DataSourceRoutingProperties.class, ShardingProperties.class})
+public class DataSourceConfig {
+
+    private final DataSourceProperties dataSourceProperties;
+    private final DataSourceRoutingProperties routingProperties;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final Binder binder;
+
+    public DataSourceConfig(DataSourceProperties dataSourceProperties,
+                            DataSourceRoutingProperties routingProperties,
+                            ReadYourWritesTracker readYourWritesTracker,
+                            Environment environment) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.routingProperties = routingProperties;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.binder = Binder.get(environment);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardingProperties shardingProperties, GroupCommitProperties groupCommitProperties,
+                                 SqlMonitorProperties sqlMonitorProperties, SqlStatementListener statementListener) {
+        DataSource dataSource = routingDataSource(shardingProperties, groupCommitProperties);
+        if (!sqlMonitorProperties.isEnabled()) {
+            return dataSource;
+        }
+        // поверх маршрутизации: учитываются запросы к любому шарду и реплике
+        return ProxyDataSourceBuilder.create(dataSource)
+                .name("ads")
+                .listener(statementListener)
+                .build();
+    }
+
+    private DataSource routingDataSource(ShardingProperties shardingProperties, GroupCommitProperties groupCommitProperties) {
+        if (shardingProperties.isEnabled()) {
+            List<DataSource> shards = new ArrayList<>();
+            for (int i = 0; i < shardingProperties.getShards().size(); i++) {
+                ShardingProperties.Shard shard = shardingProperties.getShards().get(i);
+                HikariDataSource primary = createPool("shard-" + i, shard.getUrl(), shard.getUsername(), shard.getPassword());
+                shards.add(withReplicas(primary, shard.getReplicas()));
+            }
+            return new RoutingDataSourceProxy(new ShardRoutingDataSource(shards));
+        }
+
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (routingProperties.getReplicas().isEmpty()) {
+            // запросы, ждущие групповой записи, не должны держать соединение своей пустой транзакции
+            return groupCommitProperties.isEnabled() ? new RoutingDataSourceProxy(primary) : primary;
+        }
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("primary");
+        }
+        return new RoutingDataSourceProxy(withReplicas(primary, routingProperties.getReplicas()));
+    }
+
+    private DataSource withReplicas(HikariDataSource primary, List<DataSourceRoutingProperties.Replica> replicaProperties) {
+        if (replicaProperties.isEmpty()) {
+            return primary;
+        }
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            DataSourceRoutingProperties.Replica replica = replicaProperties.get(i);
+            HikariDataSource replicaDataSource = createPool(primary.getPoolName() + "-replica-" + i,
+                    replica.getUrl(),
+                    replica.getUsername() != null ? replica.getUsername() : primary.getUsername(),
+                    replica.getPassword() != null ? replica.getPassword() : primary.getPassword());
+            replicaDataSource.setConnectionTimeout(routingProperties.getReplicaConnectionTimeout().toMillis());
+            replicaDataSource.setReadOnly(true);
+            replicas.add(replicaDataSource);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas,
+                routingProperties.getSelection(), routingProperties.getHealthCheckInterval(), readYourWritesTracker);
+    }
+
+    private HikariDataSource createPool(String poolName, String url, String username, String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username != null ? username : dataSourceProperties.determineUsername());
+        dataSource.setPassword(password != null ? password : dataSourceProperties.determinePassword());
+        dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        return dataSource;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.adsservice.config;
+
+import com.example.adsservice.facets.FacetProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(FacetProperties.class)
+public class FacetsConfig {
+}
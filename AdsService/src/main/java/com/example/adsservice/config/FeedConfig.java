@@ -0,0 +1,10 @@
+package com.example.adsservice.config;
+
+import com.example.adsservice.feed.FeedProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(FeedProperties.class)
+public class FeedConfig {
+}
@@ -0,0 +1,10 @@
+package com.example.adsservice.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+// каналы к экземплярам UserService создаёт UserServiceBalancer
+@Configuration
+@EnableConfigurationProperties({UserServiceClientProperties.class, RpcServerProperties.class})
+public class GrpcConfig {
+}
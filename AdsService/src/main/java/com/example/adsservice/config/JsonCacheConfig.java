@@ -0,0 +1,27 @@
+package com.example.adsservice.config;
+
+import com.example.adsservice.jsoncache.AdsJsonCache;
+import com.example.adsservice.jsoncache.AdsJsonListHttpMessageConverter;
+import com.example.adsservice.jsoncache.JsonCacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(JsonCacheProperties.class)
+public class JsonCacheConfig implements WebMvcConfigurer {
+
+    private final AdsJsonCache adsJsonCache;
+
+    public JsonCacheConfig(AdsJsonCache adsJsonCache) {
+        this.adsJsonCache = adsJsonCache;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new AdsJsonListHttpMessageConverter(adsJsonCache));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.adsservice.config;
+
+import com.example.adsservice.migration.MigrationProperties;
+import com.example.adsservice.migration.MigrationSpringLiquibase;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+
+@Configuration
+@EnableConfigurationProperties(MigrationProperties.class)
+public class MigrationConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.liquibase")
+    public LiquibaseProperties liquibaseProperties() {
+        return new LiquibaseProperties();
+    }
+
+    // при шардировании changelog применяет ShardedSpringLiquibase из ShardingConfig
+    @Bean
+    @ConditionalOnProperty(prefix = "ads.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+    public SpringLiquibase liquibase(DataSource dataSource, LiquibaseProperties liquibaseProperties,
+                                     MigrationProperties migrationProperties) {
+        return MigrationSpringLiquibase.create(liquibaseProperties, migrationProperties.getMode(),
+                dataSource, Collections.emptyMap());
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.adsservice.config;
+
+import com.example.adsservice.profiling.FlightRecorderProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(FlightRecorderProperties.class)
+public class ProfilingConfig {
+}
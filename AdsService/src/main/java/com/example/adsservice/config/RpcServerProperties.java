@@ -0,0 +1,13 @@
+package com.example.adsservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.rpc.server")
+public class RpcServerProperties {
+    private boolean enabled = true;
+    private int port = 9080;
+}
@@ -0,0 +1,13 @@
+package com.example.adsservice.config;
+
+import com.example.adsservice.partition.PartitioningProperties;
+import com.example.adsservice.views.ViewCountingProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({PartitioningProperties.class, ViewCountingProperties.class})
+public class SchedulingConfig {
+}
@@ -0,0 +1,25 @@
+package com.example.adsservice.config;
+
+import com.example.adsservice.migration.MigrationProperties;
+import com.example.adsservice.sharding.ShardRoutingDataSource;
+import com.example.adsservice.sharding.ShardedSpringLiquibase;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+@Configuration
+@ConditionalOnProperty(prefix = "ads.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public SpringLiquibase liquibase(DataSource dataSource, LiquibaseProperties liquibaseProperties,
+                                     MigrationProperties migrationProperties) throws SQLException {
+        return new ShardedSpringLiquibase(liquibaseProperties, migrationProperties.getMode(),
+                dataSource.unwrap(ShardRoutingDataSource.class).getShards());
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.adsservice.config;
+
+import com.example.adsservice.sql.SqlMonitorProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(SqlMonitorProperties.class)
+public class SqlMonitorConfig {
+}
@@ -0,0 +1,80 @@
+package com.example.adsservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.user-service")
+public class UserServiceClientProperties {
+
+    public enum Transport {
+        REST, GRPC
+    }
+
+    private Transport transport = Transport.GRPC;
+    private String restUrl = "http://localhost:8089";
+    private Grpc grpc = new Grpc();
+    // экземпляры UserService; если список пуст, используется один экземпляр из restUrl и grpc
+    private List<Instance> instances = new ArrayList<>();
+    private LoadBalancer loadBalancer = new LoadBalancer();
+
+    @Getter
+    @Setter
+    public static class Grpc {
+        private String host = "localhost";
+        private int port = 9089;
+        private Duration deadline = Duration.ofSeconds(2);
+    }
+
+    @Getter
+    @Setter
+    public static class Instance {
+        private String restUrl;
+        private String grpcHost;
+        private int grpcPort;
+    }
+
+    @Getter
+    @Setter
+    public static class LoadBalancer {
+
+        public enum Strategy {
+            POWER_OF_TWO_CHOICES, LEAST_OUTSTANDING
+        }
+
+        private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+        // за это время вес вернувшегося в строй экземпляра растёт от minWeight до 1
+        private Duration slowStart = Duration.ofSeconds(30);
+        private double minWeight = 0.1;
+        private HealthCheck healthCheck = new HealthCheck();
+        private OutlierDetection outlierDetection = new OutlierDetection();
+    }
+
+    @Getter
+    @Setter
+    public static class HealthCheck {
+        private boolean enabled = true;
+        // для REST экземпляр жив при любом ответе кроме 5xx, для gRPC - пока канал не в TRANSIENT_FAILURE
+        private String path = "/actuator/health";
+        private Duration interval = Duration.ofSeconds(5);
+        private Duration timeout = Duration.ofSeconds(1);
+        private int healthyThreshold = 2;
+        private int unhealthyThreshold = 3;
+    }
+
+    @Getter
+    @Setter
+    public static class OutlierDetection {
+        private boolean enabled = true;
+        private int consecutiveFailures = 5;
+        // время исключения растёт с каждым повторным исключением экземпляра
+        private Duration baseEjectionTime = Duration.ofSeconds(30);
+        private int maxEjectionPercent = 50;
+    }
+}
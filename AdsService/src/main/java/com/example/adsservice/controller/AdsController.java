@@ -1,6 +1,20 @@
 package com.example.adsservice.controller;
 
+import com.example.adsservice.etag.AdsETags;
+import com.example.adsservice.exception.AdsBadRequestException;
+import com.example.adsservice.export.AdsExporter;
+import com.example.adsservice.facets.AdsFacetIndex;
+import com.example.adsservice.feed.AdsFeed;
+import com.example.adsservice.jsoncache.AdsJsonList;
+import com.example.adsservice.model.dto.AdViewsDto;
 import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.model.dto.AdsFacetsDto;
+import com.example.adsservice.model.dto.AdsMultiGetDto;
+import com.example.adsservice.model.dto.AdsPartitionDto;
+import com.example.adsservice.model.dto.AdsStatsDto;
+import com.example.adsservice.partition.AdsPartitionMaintenance;
+import com.example.adsservice.stats.AdsStatistics;
+import com.example.adsservice.views.AdViewCounter;
 import com.example.adsservice.service.AdsService;
 import com.google.gson.Gson;
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,12 +28,22 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/ads")
@@ -28,26 +52,187 @@ import java.util.Map;
 public class AdsController {
     private static final Logger log = LoggerFactory.getLogger(AdsController.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private  AdsService adsService;
+    private  AdsPartitionMaintenance partitionMaintenance;
+    private  AdsStatistics adsStatistics;
+    private  AdViewCounter adViewCounter;
+    private  AdsFacetIndex facetIndex;
+    private  AdsFeed adsFeed;
+    private  AdsExporter adsExporter;
     private  Gson gson;
 
     @Autowired
-    public AdsController(AdsService adsService) {
+    public AdsController(AdsService adsService, AdsPartitionMaintenance partitionMaintenance,
+                         AdsStatistics adsStatistics, AdViewCounter adViewCounter, AdsFacetIndex facetIndex,
+                         AdsFeed adsFeed, AdsExporter adsExporter) {
         this.adsService = adsService;
+        this.partitionMaintenance = partitionMaintenance;
+        this.adsStatistics = adsStatistics;
+        this.adViewCounter = adViewCounter;
+        this.facetIndex = facetIndex;
+        this.adsFeed = adsFeed;
+        this.adsExporter = adsExporter;
         this.gson = new Gson();
     }
 
-    @Operation(summary = "Получение всех объявлений", description = "Возвращает список всех объявлений")
+    @Operation(summary = "Получение всех объявлений", description = "Возвращает список всех объявлений, либо страницу по курсору afterId, если указан limit или период from/to")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Успешное получение списка объявлений",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = AdsDto.class))),
+            @ApiResponse(responseCode = "304", description = "Список не изменился с ETag из If-None-Match", content = @Content),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping
-    public List<AdsDto> getAllAds() {
-        log.info("Received request to get all ads");
-        return adsService.getAllAds();
+    public AdsJsonList getAllAds(
+            @Parameter(description = "ID последнего объявления предыдущей страницы")
+            @RequestParam(value = "afterId", required = false) Integer afterId,
+            @Parameter(description = "Размер страницы")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @Parameter(description = "Начало периода создания (включительно), например 2026-10-01T00:00:00")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода создания (не включительно)")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            WebRequest webRequest) {
+        List<AdsDto> ads;
+        if (limit != null || from != null || to != null) {
+            log.info("Received request to get ads page after ID: {}, limit: {}, from: {}, to: {}", afterId, limit, from, to);
+            ads = adsService.getAdsPage(afterId, limit != null ? limit : DEFAULT_PAGE_SIZE, from, to);
+        } else {
+            log.info("Received request to get all ads");
+            ads = adsService.getAllAds();
+        }
+        return notModified(ads, webRequest) ? null : new AdsJsonList(ads);
+    }
+
+    @Operation(summary = "Получение объявлений по списку ID", description = "Возвращает объявления в порядке переданных идентификаторов одним запросом к БД на шард; ненайденные идентификаторы перечисляются в missingIds. Каждое найденное объявление считается просмотренным, как при запросе по одному ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение объявлений",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AdsMultiGetDto.class))),
+            @ApiResponse(responseCode = "400", description = "Слишком много идентификаторов", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping(params = "ids")
+    public AdsMultiGetDto getAdsByIds(
+            @Parameter(description = "Идентификаторы объявлений через запятую, например 1,2,3", required = true)
+            @RequestParam("ids") List<Integer> ids) {
+        log.info("Received request to get {} ads by ID", ids.size());
+        AdsMultiGetDto result = adsService.getAdsByIds(ids);
+        result.getAds().forEach(ad -> adViewCounter.recordView(ad.getId()));
+        return result;
+    }
+
+    @Operation(summary = "Статистика объявлений", description = "Возвращает число объявлений на пользователя и перцентили цен; с userId - статистику одного пользователя. Значения берутся из памяти, таблица не сканируется")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение статистики",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AdsStatsDto.class))),
+            @ApiResponse(responseCode = "400", description = "Некорректный перцентиль", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping("/stats")
+    public AdsStatsDto getStats(
+            @Parameter(description = "Идентификатор пользователя")
+            @RequestParam(value = "userId", required = false) Integer userId,
+            @Parameter(description = "Перцентили в долях, например 0.5,0.9,0.99")
+            @RequestParam(value = "percentiles", defaultValue = "0.5,0.9,0.99") List<Double> percentiles) {
+        log.info("Received request to get ads stats for user ID: {}", userId);
+        for (Double percentile : percentiles) {
+            if (percentile == null || percentile < 0 || percentile > 1) {
+                throw new AdsBadRequestException("Перцентиль должен быть в диапазоне от 0 до 1: " + percentile);
+            }
+        }
+        return userId != null ? adsStatistics.getUserStats(userId, percentiles) : adsStatistics.getStats(percentiles);
+    }
+
+    @Operation(summary = "Фасеты объявлений", description = "Возвращает число объявлений по категориям и ценовым корзинам и идентификаторы объявлений, подходящих под фильтр. Считается по битмапам в памяти, таблица не сканируется")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение фасетов",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AdsFacetsDto.class))),
+            @ApiResponse(responseCode = "400", description = "Некорректный фильтр", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Фасеты отключены", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping("/facets")
+    public AdsFacetsDto getFacets(
+            @Parameter(description = "Категории, объединяются по ИЛИ")
+            @RequestParam(value = "category", required = false) List<String> categories,
+            @Parameter(description = "Минимальная цена (включительно)")
+            @RequestParam(value = "minPrice", required = false) Double minPrice,
+            @Parameter(description = "Максимальная цена (не включительно)")
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+            @Parameter(description = "Сколько идентификаторов подходящих объявлений вернуть")
+            @RequestParam(value = "ids", defaultValue = "0") int ids) {
+        log.info("Received request to get ads facets for categories: {}, price from {} to {}", categories, minPrice, maxPrice);
+        return facetIndex.query(categories, minPrice, maxPrice, ids);
+    }
+
+    @Operation(summary = "Лента изменений объявлений", description = "Server-Sent Events с созданными (created), изменёнными (updated) и удалёнными (deleted) объявлениями этого экземпляра. С заголовком Last-Event-ID лента продолжается с пропущенных событий; если их уже нет, приходит событие reset и объявления нужно перечитать")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Подписка на ленту",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+            @ApiResponse(responseCode = "404", description = "Лента отключена", content = @Content)
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAds(
+            @Parameter(description = "Id последнего полученного события")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.info("Received request to subscribe to ads feed after event {}", lastEventId);
+        return adsFeed.subscribe(lastEventId);
+    }
+
+    @Operation(summary = "Выгрузка объявлений", description = "Потоковая выгрузка всех объявлений или объявлений пользователя за период в CSV или NDJSON (по объекту на строку) прямо из PostgreSQL через COPY; при Accept-Encoding: gzip ответ сжимается")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Выгрузка объявлений",
+                    content = {@Content(mediaType = "text/csv"), @Content(mediaType = "application/x-ndjson")}),
+            @ApiResponse(responseCode = "400", description = "Неизвестный формат", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping("/export")
+    public void exportAds(
+            @Parameter(description = "Формат: csv или ndjson")
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @Parameter(description = "Идентификатор пользователя")
+            @RequestParam(value = "userId", required = false) Integer userId,
+            @Parameter(description = "Начало периода создания (включительно), например 2026-10-01T00:00:00")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода создания (не включительно)")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        log.info("Received request to export ads as {} for user ID: {}, from: {}, to: {}", format, userId, from, to);
+        AdsExporter.Format exportFormat = AdsExporter.Format.parse(format);
+        if (exportFormat == null) {
+            throw new AdsBadRequestException("Неизвестный формат выгрузки: " + format);
+        }
+        String extension = exportFormat == AdsExporter.Format.CSV ? "csv" : "ndjson";
+        response.setContentType(exportFormat == AdsExporter.Format.CSV ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ads." + extension + "\"");
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        try (OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024) : response.getOutputStream()) {
+            adsExporter.export(exportFormat, userId, from, to, out);
+        }
+    }
+
+    @Operation(summary = "Секции таблицы объявлений", description = "Возвращает месячные секции таблицы ads на всех шардах с оценкой числа строк и размером")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение списка секций",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AdsPartitionDto.class))),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping("/partitions")
+    public List<AdsPartitionDto> getPartitions() {
+        log.info("Received request to get ads partitions");
+        return partitionMaintenance.getPartitions();
     }
 
     @Operation(summary = "Получение объявления по ID", description = "Возвращает данные объявления по его идентификатору")
@@ -55,15 +240,53 @@ public class AdsController {
             @ApiResponse(responseCode = "200", description = "Успешное получение объявления",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = AdsDto.class))),
+            @ApiResponse(responseCode = "304", description = "Объявление не изменилось с ETag из If-None-Match", content = @Content),
             @ApiResponse(responseCode = "404", description = "Объявление не найдено", content = @Content),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping("/{id}")
     public AdsDto getAdById(
             @Parameter(description = "Идентификатор объявления", required = true)
-            @PathVariable("id") Integer id) {
+            @PathVariable("id") Integer id,
+            WebRequest webRequest) {
         log.info("Received request to get ad by ID: {}", id);
-        return adsService.getAdById(id);
+        AdsDto ad = adsService.getAdById(id);
+        adViewCounter.recordView(id);
+        String eTag = AdsETags.forAd(ad);
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ad;
+    }
+
+    @Operation(summary = "Число просмотров объявления", description = "Возвращает число просмотров объявления с учётом ещё не сброшенных в БД")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение числа просмотров",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AdViewsDto.class))),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping("/{id}/views")
+    public AdViewsDto getAdViews(
+            @Parameter(description = "Идентификатор объявления", required = true)
+            @PathVariable("id") Integer id) {
+        log.info("Received request to get views of ad ID: {}", id);
+        return adViewCounter.getViews(id);
+    }
+
+    @Operation(summary = "Самые просматриваемые объявления", description = "Возвращает самые просматриваемые объявления из памяти; maxOverestimate - верхняя граница завышения оценки")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение списка",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AdViewsDto.class))),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping("/hot")
+    public List<AdViewsDto> getHotAds(
+            @Parameter(description = "Размер списка")
+            @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        log.info("Received request to get {} hot ads", limit);
+        return adViewCounter.getHotAds(limit);
     }
 
     @Operation(summary = "Получение объявлений пользователя", description = "Возвращает список объявлений для указанного пользователя")
@@ -71,22 +294,25 @@ public class AdsController {
             @ApiResponse(responseCode = "200", description = "Успешное получение списка объявлений",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = AdsDto.class))),
+            @ApiResponse(responseCode = "304", description = "Список не изменился с ETag из If-None-Match", content = @Content),
             @ApiResponse(responseCode = "404", description = "Пользователь или объявления не найдены", content = @Content),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping("/by-user")
-    public List<AdsDto> getAdsByUserId(
+    public AdsJsonList getAdsByUserId(
             @Parameter(description = "Идентификатор пользователя", required = true)
-            @RequestParam("userId") Integer userId) {
+            @RequestParam("userId") Integer userId,
+            WebRequest webRequest) {
         log.info("Received request to get ads for user ID: {}", userId);
-        return adsService.getAdsByUserId(userId);
+        List<AdsDto> ads = adsService.getAdsByUserId(userId);
+        return notModified(ads, webRequest) ? null : new AdsJsonList(ads);
     }
 
     @Operation(summary = "Создание объявления", description = "Создаёт новое объявление на основе предоставленных данных")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Объявление успешно создано",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(example = "{\"message\": \"Объявление успешно создано\"}"))),
+                            schema = @Schema(example = "{\"message\": \"Объявление успешно создано\", \"id\": 1}"))),
             @ApiResponse(responseCode = "400", description = "Неверные данные запроса", content = @Content),
             @ApiResponse(responseCode = "404", description = "Пользователь не найден", content = @Content),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
@@ -96,8 +322,8 @@ public class AdsController {
             @Parameter(description = "Данные нового объявления", required = true)
             @RequestBody AdsDto adsDto) {
         log.info("Received request to create ad with title: {}", adsDto.getTitle());
-        adsService.createAd(adsDto);
-        Map<String, String> response = Map.of("message", "Объявление успешно создано");
+        AdsDto created = adsService.createAd(adsDto);
+        Map<String, Object> response = Map.of("message", "Объявление успешно создано", "id", created.getId());
         String jsonResponse = gson.toJson(response);
         return ResponseEntity.status(HttpStatus.CREATED).body(jsonResponse);
     }
@@ -109,6 +335,7 @@ public class AdsController {
                             schema = @Schema(example = "{\"message\": \"Объявление успешно обновлено\"}"))),
             @ApiResponse(responseCode = "400", description = "Неверные данные запроса", content = @Content),
             @ApiResponse(responseCode = "404", description = "Объявление или пользователь не найдены", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Объявление изменено после чтения: версия не совпала", content = @Content),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @PutMapping
@@ -122,20 +349,43 @@ public class AdsController {
         return ResponseEntity.ok(jsonResponse);
     }
 
-    @Operation(summary = "Удаление объявления по ID", description = "Удаляет объявление по его идентификатору")
+    @Operation(summary = "Частичное обновление объявления", description = "Меняет только переданные поля объявления, если его версия совпадает с version из тела запроса. Возвращает объявление с новой версией")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Объявление успешно обновлено",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AdsDto.class))),
+            @ApiResponse(responseCode = "400", description = "Не указана версия", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Объявление или пользователь не найдены", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Объявление изменено после чтения: версия не совпала", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @PatchMapping("/{id}")
+    public AdsDto patchAd(
+            @Parameter(description = "Идентификатор объявления", required = true)
+            @PathVariable("id") Integer id,
+            @Parameter(description = "Изменяемые поля и ожидаемая версия объявления, например {\"price\": 150.0, \"version\": 3}", required = true)
+            @RequestBody AdsDto patch) {
+        log.info("Received request to patch ad with ID: {}", id);
+        return adsService.patchAd(id, patch);
+    }
+
+    @Operation(summary = "Удаление объявления по ID", description = "Удаляет объявление по его идентификатору; с version - только если версия совпадает")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Объявление успешно удалено",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(example = "{\"message\": \"Объявление успешно удалено\"}"))),
             @ApiResponse(responseCode = "404", description = "Объявление не найдено", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Объявление изменено после чтения: версия не совпала", content = @Content),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteAd(
             @Parameter(description = "Идентификатор объявления", required = true)
-            @PathVariable("id") Integer id) {
+            @PathVariable("id") Integer id,
+            @Parameter(description = "Ожидаемая версия объявления")
+            @RequestParam(value = "version", required = false) Long version) {
         log.info("Received request to delete ad with ID: {}", id);
-        adsService.deleteAd(id);
+        adsService.deleteAd(id, version);
         Map<String, String> response = Map.of("message", "Объявление успешно удалено");
         String jsonResponse = gson.toJson(response);
         return ResponseEntity.ok(jsonResponse);
@@ -159,4 +409,9 @@ public class AdsController {
         String jsonResponse = gson.toJson(response);
         return ResponseEntity.ok(jsonResponse);
     }
+
+    private static boolean notModified(List<AdsDto> ads, WebRequest webRequest) {
+        String eTag = AdsETags.forList(ads);
+        return eTag != null && webRequest.checkNotModified(eTag);
+    }
 }
\ No newline at end of file
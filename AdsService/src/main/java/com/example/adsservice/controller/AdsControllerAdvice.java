@@ -1,6 +1,8 @@
 package com.example.adsservice.controller;
 
 import com.example.adsservice.controller.dto.ErrorDto;
+import com.example.adsservice.exception.AdsBadRequestException;
+import com.example.adsservice.exception.AdsConflictException;
 import com.example.adsservice.exception.AdsException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -20,6 +22,18 @@ public class AdsControllerAdvice {
         return buildApiException(HttpStatus.NOT_FOUND, e.getMessage(), "Ads error", "ads-error-code");
     }
 
+    @ExceptionHandler(AdsBadRequestException.class)
+    public ResponseEntity<ErrorDto> handleAdsBadRequestException(AdsBadRequestException e) {
+        log.warn(ADS_PROCESSING_EXCEPTION_MESSAGE, e.getMessage());
+        return buildApiException(HttpStatus.BAD_REQUEST, e.getMessage(), "Ads bad request", "ads-bad-request");
+    }
+
+    @ExceptionHandler(AdsConflictException.class)
+    public ResponseEntity<ErrorDto> handleAdsConflictException(AdsConflictException e) {
+        log.warn(ADS_PROCESSING_EXCEPTION_MESSAGE, e.getMessage());
+        return buildApiException(HttpStatus.CONFLICT, e.getMessage(), "Ads conflict", "ads-version-conflict");
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorDto> handleUnknownException(Exception e) {
         log.error(ADS_PROCESSING_EXCEPTION_MESSAGE, e.getMessage());
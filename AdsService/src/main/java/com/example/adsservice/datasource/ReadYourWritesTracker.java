@@ -0,0 +1,59 @@
+package com.example.adsservice.datasource;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ReadYourWritesTracker {
+
+    private static final ThreadLocal<Integer> CURRENT_USER = new ThreadLocal<>();
+
+    private final long windowNanos;
+    private final Map<Integer, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(DataSourceRoutingProperties properties) {
+        this.windowNanos = properties.getReadYourWritesWindow().toNanos();
+    }
+
+    public void setCurrentUser(Integer userId) {
+        CURRENT_USER.set(userId);
+    }
+
+    public Integer getCurrentUser() {
+        return CURRENT_USER.get();
+    }
+
+    public void clearCurrentUser() {
+        CURRENT_USER.remove();
+    }
+
+    public void recordWrite(Integer ownerId) {
+        if (windowNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (ownerId != null) {
+            lastWrites.put(ownerId, now);
+        }
+        Integer currentUser = CURRENT_USER.get();
+        if (currentUser != null) {
+            lastWrites.put(currentUser, now);
+        }
+    }
+
+    public boolean isCurrentUserWithinWindow() {
+        Integer currentUser = CURRENT_USER.get();
+        if (windowNanos <= 0 || currentUser == null) {
+            return false;
+        }
+        Long lastWrite = lastWrites.get(currentUser);
+        return lastWrite != null && System.nanoTime() - lastWrite < windowNanos;
+    }
+
+    void evictExpired() {
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(lastWrite -> now - lastWrite >= windowNanos);
+    }
+}
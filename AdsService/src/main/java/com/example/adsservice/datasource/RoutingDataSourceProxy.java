@@ -0,0 +1,22 @@
+package com.example.adsservice.datasource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+public class RoutingDataSourceProxy extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+    public RoutingDataSourceProxy(DataSource routingDataSource) {
+        super(routingDataSource);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (getTargetDataSource() instanceof DisposableBean) {
+            ((DisposableBean) getTargetDataSource()).destroy();
+        } else if (getTargetDataSource() instanceof AutoCloseable) {
+            ((AutoCloseable) getTargetDataSource()).close();
+        }
+    }
+}
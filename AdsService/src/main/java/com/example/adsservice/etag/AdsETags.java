@@ -0,0 +1,41 @@
+package com.example.adsservice.etag;
+
+import com.example.adsservice.model.dto.AdsDto;
+
+import java.util.List;
+
+/**
+ * ETag ответов без сериализации тела. У объявления это id и версия, у списка - число
+ * объявлений и хэш пар id-версия в порядке выдачи. Версия хранится в строке объявления и растёт
+ * при каждом изменении, поэтому один и тот же список получает один и тот же тег на любом
+ * экземпляре сервиса, с какой бы реплики или из какого снимка каталога он ни был прочитан.
+ * Тег считается по уже прочитанному списку: отдельный запрос до чтения мог бы попасть на
+ * другую реплику и подтвердить тегом более новое состояние, чем в теле ответа.
+ */
+public final class AdsETags {
+
+    private AdsETags() {
+    }
+
+    public static String forAd(AdsDto ad) {
+        return ad.getVersion() != null ? "\"ad-" + ad.getId() + "-" + ad.getVersion() + "\"" : null;
+    }
+
+    // null - у какого-то объявления нет версии, список без тега
+    public static String forList(List<AdsDto> ads) {
+        long hash = 0xcbf29ce484222325L;
+        for (AdsDto ad : ads) {
+            if (ad.getId() == null || ad.getVersion() == null) {
+                return null;
+            }
+            hash = mix(hash, ad.getId());
+            hash = mix(hash, ad.getVersion());
+        }
+        return "\"ads-" + ads.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    private static long mix(long hash, long value) {
+        long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.adsservice.event;
+
+import com.example.adsservice.model.dto.AdsDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Публикуется AdsService при каждом изменении объявления. Слушатели получают его
+ * после фиксации транзакции, поэтому видят только успешно записанные изменения.
+ */
+@Getter
+@RequiredArgsConstructor
+public class AdsChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final AdsDto before;
+    private final AdsDto after;
+
+    public static AdsChangedEvent created(AdsDto after) {
+        return new AdsChangedEvent(Type.CREATED, null, after);
+    }
+
+    public static AdsChangedEvent updated(AdsDto before, AdsDto after) {
+        return new AdsChangedEvent(Type.UPDATED, before, after);
+    }
+
+    public static AdsChangedEvent deleted(AdsDto before) {
+        return new AdsChangedEvent(Type.DELETED, before, null);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.adsservice.event;
+
+import com.example.adsservice.model.dto.AdsDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Публикуется при выводе устаревшей секции из таблицы ads: содержит объявления,
+ * которые перестали быть доступны.
+ */
+@Getter
+@RequiredArgsConstructor
+public class AdsExpiredEvent {
+
+    private final int shard;
+    private final String partition;
+    private final List<AdsDto> ads;
+}
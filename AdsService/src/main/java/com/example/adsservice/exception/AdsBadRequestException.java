@@ -0,0 +1,7 @@
+package com.example.adsservice.exception;
+
+public class AdsBadRequestException extends AdsException {
+    public AdsBadRequestException(String message) {
+        super(message);
+    }
+}
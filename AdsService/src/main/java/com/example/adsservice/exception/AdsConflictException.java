@@ -0,0 +1,7 @@
+package com.example.adsservice.exception;
+
+public class AdsConflictException extends AdsException {
+    public AdsConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.adsservice.facets;
+
+import com.example.adsservice.event.AdsChangedEvent;
+import com.example.adsservice.event.AdsExpiredEvent;
+import com.example.adsservice.exception.AdsBadRequestException;
+import com.example.adsservice.exception.AdsException;
+import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.model.dto.AdsFacetsDto;
+import com.example.adsservice.model.dto.PriceFacetDto;
+import com.example.adsservice.sharding.ShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Фасеты объявлений в памяти: на каждую категорию и каждую ценовую корзину хранится сжатый
+ * битмап (Roaring) идентификаторов объявлений. Счётчики фасетов и отфильтрованные наборы id
+ * считаются пересечением битмапов без обращения к таблице. Индекс строится из БД при старте,
+ * дальше обновляется по событиям изменения объявлений.
+ */
+@Component
+public class AdsFacetIndex implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(AdsFacetIndex.class);
+
+    private static final int REBUILD_FETCH_SIZE = 10_000;
+
+    private final FacetProperties properties;
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+    private final ShardRouter shardRouter;
+    private final double[] bounds;
+    private final Timer queryTime;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private State state;
+
+    public AdsFacetIndex(FacetProperties properties, DataSource dataSource,
+                         PlatformTransactionManager transactionManager, ShardRouter shardRouter,
+                         MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.transactionManager = transactionManager;
+        this.shardRouter = shardRouter;
+        this.bounds = properties.getPriceBounds().stream().mapToDouble(Double::doubleValue).toArray();
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalStateException("Границы ценовых корзин ads.facets.price-bounds должны возрастать");
+            }
+        }
+        this.state = new State(bounds.length + 1);
+        this.queryTime = Timer.builder("ads.facets.query")
+                .description("Time to compute ads facet counts")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("ads.facets.memory", this, AdsFacetIndex::sizeInBytes)
+                .description("Memory held by ads facet bitmaps and bucket prices")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.isEnabled()) {
+            log.info("Ads facets are disabled");
+            return;
+        }
+        rebuild();
+    }
+
+    public void rebuild() {
+        long started = System.nanoTime();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(REBUILD_FETCH_SIZE);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        List<State> shardStates = shardRouter.onAllShards(shard -> transactionTemplate.execute(status -> {
+            State shardState = new State(bounds.length + 1);
+            RowCallbackHandler rowHandler = rs -> shardState.add(
+                    rs.getInt("id"), rs.getString("category"), rs.getObject("price", Double.class));
+            jdbcTemplate.query("SELECT id, category, price FROM ads", rowHandler);
+            return shardState;
+        }));
+        State rebuilt = new State(bounds.length + 1);
+        shardStates.forEach(rebuilt::merge);
+        rebuilt.optimize();
+        lock.writeLock().lock();
+        try {
+            state = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Ads facet index rebuilt from {} ads in {} categories in {} ms",
+                rebuilt.all.getLongCardinality(), rebuilt.categories.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdsChanged(AdsChangedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.getBefore() != null) {
+                state.remove(event.getBefore());
+            }
+            if (event.getAfter() != null) {
+                state.add(event.getAfter().getId(), event.getAfter().getCategory(), event.getAfter().getPrice());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdsExpired(AdsExpiredEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            event.getAds().forEach(state::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Счётчики по категориям считаются с учётом фильтра по цене, счётчики по ценовым корзинам -
+     * с учётом фильтра по категориям, так что каждый фасет показывает, сколько объявлений
+     * останется при выборе его значения. total и adIds учитывают оба фильтра.
+     *
+     * @param categories категории, объединяемые по ИЛИ; пустой список - без фильтра
+     * @param minPrice   нижняя граница цены включительно
+     * @param maxPrice   верхняя граница цены не включительно
+     * @param idsLimit   сколько идентификаторов подходящих объявлений вернуть, по возрастанию
+     */
+    public AdsFacetsDto query(List<String> categories, Double minPrice, Double maxPrice, int idsLimit) {
+        if (!properties.isEnabled()) {
+            throw new AdsException("Фасеты объявлений отключены");
+        }
+        if (idsLimit < 0 || idsLimit > properties.getMaxIds()) {
+            throw new AdsBadRequestException("Число идентификаторов должно быть от 0 до " + properties.getMaxIds());
+        }
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new AdsBadRequestException("Нижняя граница цены больше верхней");
+        }
+        return queryTime.record(() -> {
+            lock.readLock().lock();
+            try {
+                return state.query(categories, minPrice, maxPrice, idsLimit);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    private double sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            return state.sizeInBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int bucketOf(double price) {
+        int index = Arrays.binarySearch(bounds, price);
+        return index >= 0 ? index + 1 : -(index + 1);
+    }
+
+    private double lowerBound(int bucket) {
+        return bucket == 0 ? Double.NEGATIVE_INFINITY : bounds[bucket - 1];
+    }
+
+    private double upperBound(int bucket) {
+        return bucket == bounds.length ? Double.POSITIVE_INFINITY : bounds[bucket];
+    }
+
+    private final class State {
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final Map<String, RoaringBitmap> categories = new TreeMap<>();
+        private final RoaringBitmap[] buckets;
+        // цены объявлений корзины по id: нужны, когда корзина оказывается на границе диапазона
+        private final IntDoubleHashMap[] prices;
+
+        State(int bucketCount) {
+            buckets = new RoaringBitmap[bucketCount];
+            prices = new IntDoubleHashMap[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                buckets[i] = new RoaringBitmap();
+                prices[i] = new IntDoubleHashMap();
+            }
+        }
+
+        void add(int id, String category, Double price) {
+            all.add(id);
+            if (category != null) {
+                categories.computeIfAbsent(category, c -> new RoaringBitmap()).add(id);
+            }
+            if (price != null) {
+                int bucket = bucketOf(price);
+                buckets[bucket].add(id);
+                prices[bucket].put(id, price);
+            }
+        }
+
+        void remove(AdsDto ad) {
+            int id = ad.getId();
+            all.remove(id);
+            if (ad.getCategory() != null) {
+                RoaringBitmap category = categories.get(ad.getCategory());
+                if (category != null) {
+                    category.remove(id);
+                    if (category.isEmpty()) {
+                        categories.remove(ad.getCategory());
+                    }
+                }
+            }
+            if (ad.getPrice() != null) {
+                int bucket = bucketOf(ad.getPrice());
+                buckets[bucket].remove(id);
+                prices[bucket].remove(id);
+            }
+        }
+
+        void merge(State other) {
+            all.or(other.all);
+            other.categories.forEach((category, ids) ->
+                    categories.computeIfAbsent(category, c -> new RoaringBitmap()).or(ids));
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i].or(other.buckets[i]);
+                prices[i].putAll(other.prices[i]);
+            }
+        }
+
+        void optimize() {
+            all.runOptimize();
+            categories.values().forEach(RoaringBitmap::runOptimize);
+            Arrays.stream(buckets).forEach(RoaringBitmap::runOptimize);
+        }
+
+        AdsFacetsDto query(List<String> categoryNames, Double minPrice, Double maxPrice, int idsLimit) {
+            RoaringBitmap categoryFilter = categoryNames == null || categoryNames.isEmpty()
+                    ? null
+                    : FastAggregation.or(categoryNames.stream()
+                    .map(categories::get)
+                    .filter(Objects::nonNull)
+                    .iterator());
+            RoaringBitmap priceFilter = minPrice == null && maxPrice == null
+                    ? null
+                    : priceRange(minPrice != null ? minPrice : Double.NEGATIVE_INFINITY,
+                    maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY);
+
+            RoaringBitmap matching = all;
+            if (categoryFilter != null) {
+                matching = RoaringBitmap.and(matching, categoryFilter);
+            }
+            if (priceFilter != null) {
+                matching = RoaringBitmap.and(matching, priceFilter);
+            }
+
+            Map<String, Long> categoryCounts = new LinkedHashMap<>();
+            categories.forEach((category, ids) -> categoryCounts.put(category, priceFilter == null
+                    ? ids.getLongCardinality()
+                    : RoaringBitmap.andCardinality(ids, priceFilter)));
+            List<PriceFacetDto> priceCounts = new ArrayList<>(buckets.length);
+            for (int i = 0; i < buckets.length; i++) {
+                priceCounts.add(PriceFacetDto.builder()
+                        .from(i == 0 ? null : bounds[i - 1])
+                        .to(i == bounds.length ? null : bounds[i])
+                        .count(categoryFilter == null
+                                ? buckets[i].getLongCardinality()
+                                : RoaringBitmap.andCardinality(buckets[i], categoryFilter))
+                        .build());
+            }
+            List<Integer> adIds = new ArrayList<>(Math.min(idsLimit, matching.getCardinality()));
+            PeekableIntIterator iterator = matching.getIntIterator();
+            while (adIds.size() < idsLimit && iterator.hasNext()) {
+                adIds.add(iterator.next());
+            }
+            return AdsFacetsDto.builder()
+                    .total(matching.getLongCardinality())
+                    .categories(categoryCounts)
+                    .prices(priceCounts)
+                    .adIds(adIds)
+                    .build();
+        }
+
+        private RoaringBitmap priceRange(double min, double max) {
+            RoaringBitmap result = new RoaringBitmap();
+            for (int i = 0; i < buckets.length; i++) {
+                double lower = lowerBound(i);
+                double upper = upperBound(i);
+                if (upper <= min || lower >= max) {
+                    continue;
+                }
+                if (lower >= min && upper <= max) {
+                    result.or(buckets[i]);
+                    continue;
+                }
+                // корзина пересекает границу диапазона - сверяем цены её объявлений
+                prices[i].forEach((id, price) -> {
+                    if (price >= min && price < max) {
+                        result.add(id);
+                    }
+                });
+            }
+            return result;
+        }
+
+        double sizeInBytes() {
+            long bytes = all.getLongSizeInBytes();
+            for (RoaringBitmap ids : categories.values()) {
+                bytes += ids.getLongSizeInBytes();
+            }
+            for (RoaringBitmap ids : buckets) {
+                bytes += ids.getLongSizeInBytes();
+            }
+            for (IntDoubleHashMap bucketPrices : prices) {
+                bytes += bucketPrices.sizeInBytes();
+            }
+            return bytes;
+        }
+    }
+}
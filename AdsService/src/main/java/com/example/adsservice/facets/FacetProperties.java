@@ -0,0 +1,17 @@
+package com.example.adsservice.facets;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.facets")
+public class FacetProperties {
+    private boolean enabled = true;
+    // границы ценовых корзин по возрастанию: [0; 1000), [1000; 5000), ..., [500000; +inf)
+    private List<Double> priceBounds = List.of(1_000.0, 5_000.0, 10_000.0, 50_000.0, 100_000.0, 500_000.0);
+    private int maxIds = 10_000;
+}
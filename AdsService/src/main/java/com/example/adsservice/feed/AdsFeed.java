@@ -0,0 +1,272 @@
+package com.example.adsservice.feed;
+
+import com.example.adsservice.event.AdsChangedEvent;
+import com.example.adsservice.exception.AdsException;
+import com.example.adsservice.model.dto.AdsDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Лента изменений объявлений этого экземпляра для SSE: created, updated и deleted.
+ * Событие сериализуется один раз и раздаётся всем подписчикам; последние replaySize событий
+ * хранятся для продолжения с Last-Event-ID. У каждого подписчика своя очередь на bufferSize
+ * событий, которую разбирает общий пул отправки, так что медленный клиент не задерживает
+ * запись объявления и других подписчиков. Если Last-Event-ID уже вытеснен или выдан до
+ * перезапуска, клиент получает событие reset и должен перечитать объявления через GET /ads.
+ */
+@Component
+public class AdsFeed implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AdsFeed.class);
+
+    private static final String RESET = "reset";
+    private static final Object HEARTBEAT = new Object();
+
+    private final FeedProperties properties;
+    private final ObjectMapper objectMapper;
+    private final TaskScheduler taskScheduler;
+    private final ExecutorService sender;
+    private final Counter dropped;
+    private final Counter disconnected;
+    // id события - эпоха экземпляра и номер, чтобы id после перезапуска не совпадали с прежними
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ArrayDeque<FeedEvent> replay = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private long sequence;
+
+    public AdsFeed(FeedProperties properties, ObjectMapper objectMapper, TaskScheduler taskScheduler,
+                   MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.taskScheduler = taskScheduler;
+        AtomicInteger counter = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(properties.getSenderThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "ads-feed-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("ads.feed.subscribers", subscribers, List::size)
+                .description("Clients subscribed to the ads SSE feed")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("ads.feed.dropped")
+                .description("Feed events skipped for slow subscribers")
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("ads.feed.disconnected")
+                .description("Slow subscribers disconnected from the feed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.isEnabled()) {
+            taskScheduler.scheduleAtFixedRate(this::heartbeat, properties.getHeartbeatInterval());
+        }
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        if (!properties.isEnabled()) {
+            throw new AdsException("Лента объявлений отключена");
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(properties.getConnectionTimeout().toMillis()));
+        synchronized (this) {
+            if (lastEventId != null) {
+                List<FeedEvent> missed = eventsAfter(lastEventId);
+                if (missed != null) {
+                    missed.forEach(subscriber.queue::add);
+                } else {
+                    subscriber.queue.add(new FeedEvent(sequence, id(sequence), RESET, "{}"));
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(e -> subscriber.close());
+        subscriber.schedule();
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdsChanged(AdsChangedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        AdsDto ad = event.getAfter() != null ? event.getAfter() : event.getBefore();
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(event.getAfter() != null ? ad : Map.of("id", ad.getId()));
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize feed event for ad {}", ad.getId(), e);
+            return;
+        }
+        publish(event.getType().name().toLowerCase(Locale.ROOT), data);
+    }
+
+    @Override
+    public void destroy() {
+        subscribers.forEach(Subscriber::close);
+        sender.shutdownNow();
+    }
+
+    private synchronized void publish(String type, String data) {
+        sequence++;
+        FeedEvent event = new FeedEvent(sequence, id(sequence), type, data);
+        replay.addLast(event);
+        if (replay.size() > properties.getReplaySize()) {
+            replay.removeFirst();
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offer(event, properties.getBufferSize())) {
+                continue;
+            }
+            if (properties.getSlowConsumerPolicy() == FeedProperties.SlowConsumerPolicy.DISCONNECT) {
+                disconnected.increment();
+                subscriber.close();
+            } else {
+                dropped.increment();
+            }
+        }
+    }
+
+    private void heartbeat() {
+        subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT, properties.getBufferSize()));
+    }
+
+    // null - продолжить нельзя, нужен reset
+    private List<FeedEvent> eventsAfter(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        long last;
+        try {
+            last = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator)) || last > sequence) {
+            return null;
+        }
+        long oldest = replay.isEmpty() ? sequence + 1 : replay.peekFirst().sequence;
+        if (last < oldest - 1) {
+            return null;
+        }
+        List<FeedEvent> missed = new ArrayList<>();
+        for (FeedEvent event : replay) {
+            if (event.sequence > last) {
+                missed.add(event);
+            }
+        }
+        return missed;
+    }
+
+    private String id(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private static final class FeedEvent {
+        private final long sequence;
+        private final String id;
+        private final String type;
+        private final String data;
+
+        private FeedEvent(long sequence, String id, String type, String data) {
+            this.sequence = sequence;
+            this.id = id;
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        // guarded by this
+        private final ArrayDeque<Object> queue = new ArrayDeque<>();
+        private boolean draining;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        boolean offer(Object item, int capacity) {
+            synchronized (this) {
+                if (closed) {
+                    return true;
+                }
+                if (queue.size() >= capacity) {
+                    return false;
+                }
+                queue.addLast(item);
+                if (draining) {
+                    return true;
+                }
+                draining = true;
+            }
+            sender.execute(this::drain);
+            return true;
+        }
+
+        void schedule() {
+            synchronized (this) {
+                if (draining || queue.isEmpty()) {
+                    return;
+                }
+                draining = true;
+            }
+            sender.execute(this::drain);
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            synchronized (this) {
+                queue.clear();
+            }
+            emitter.complete();
+        }
+
+        private void drain() {
+            while (true) {
+                Object item;
+                synchronized (this) {
+                    item = queue.pollFirst();
+                    if (item == null || closed) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    if (item == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    } else {
+                        FeedEvent event = (FeedEvent) item;
+                        emitter.send(SseEmitter.event().id(event.id).name(event.type).data(event.data));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Feed subscriber went away: {}", e.getMessage());
+                    close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.adsservice.feed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.feed")
+public class FeedProperties {
+
+    public enum SlowConsumerPolicy {
+        // отключить подписчика, он переподключится с Last-Event-ID и дочитает пропущенное
+        DISCONNECT,
+        // пропускать подписчику новые события, пока он не разгребёт очередь
+        DROP
+    }
+
+    private boolean enabled = true;
+    // сколько последних событий хранится для продолжения с Last-Event-ID
+    private int replaySize = 1000;
+    // очередь каждого подписчика
+    private int bufferSize = 256;
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DISCONNECT;
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    // после этого соединение закрывается, клиент переподключается с Last-Event-ID
+    private Duration connectionTimeout = Duration.ofMinutes(30);
+    private int senderThreads = 2;
+}
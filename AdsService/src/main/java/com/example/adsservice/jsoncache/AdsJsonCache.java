@@ -0,0 +1,194 @@
+package com.example.adsservice.jsoncache;
+
+import com.example.adsservice.event.AdsChangedEvent;
+import com.example.adsservice.event.AdsExpiredEvent;
+import com.example.adsservice.model.dto.AdsDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON каждого объявления, сериализованный один раз: списки объявлений собираются из готовых
+ * фрагментов прямо в поток ответа. Фрагмент привязан к id и версии объявления, поэтому DTO
+ * другой версии фрагмент не получит, даже если событие об изменении ещё не дошло. Объём кэша
+ * ограничен суммой размеров фрагментов, вытесняются давно не читанные объявления. Кэш разбит
+ * на сегменты по id со своей блокировкой и своей долей объёма, чтобы параллельные запросы
+ * списков не выстраивались в очередь на одном мониторе.
+ */
+@Component
+public class AdsJsonCache {
+
+    // заголовки объектов записи и массива, ключ и узел LinkedHashMap
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int SEGMENTS = 16;
+
+    private final JsonCacheProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Counter hits;
+    private final Counter misses;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public AdsJsonCache(JsonCacheProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        this.hits = Counter.builder("ads.json.cache.hits")
+                .description("Ads written from cached JSON")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ads.json.cache.misses")
+                .description("Ads serialized because their JSON was not cached")
+                .register(meterRegistry);
+        Gauge.builder("ads.json.cache.size", this, AdsJsonCache::size)
+                .description("Bytes of ad JSON held in the cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public void writeArray(List<AdsDto> ads, OutputStream out) throws IOException {
+        byte[][] fragments = properties.isEnabled() ? lookup(ads) : new byte[ads.size()][];
+        boolean[] serialized = new boolean[fragments.length];
+        boolean missed = false;
+        for (int i = 0; i < fragments.length; i++) {
+            if (fragments[i] == null) {
+                fragments[i] = objectMapper.writeValueAsBytes(ads.get(i));
+                serialized[i] = true;
+                missed = true;
+            }
+        }
+        if (missed && properties.isEnabled()) {
+            store(ads, fragments, serialized);
+        }
+        out.write('[');
+        for (int i = 0; i < fragments.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(fragments[i]);
+        }
+        out.write(']');
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdsChanged(AdsChangedEvent event) {
+        if (event.getBefore() != null) {
+            invalidate(List.of(event.getBefore()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdsExpired(AdsExpiredEvent event) {
+        invalidate(event.getAds());
+    }
+
+    private byte[][] lookup(List<AdsDto> ads) {
+        byte[][] fragments = new byte[ads.size()][];
+        int found = 0;
+        for (int i = 0; i < fragments.length; i++) {
+            AdsDto ad = ads.get(i);
+            if (ad.getVersion() == null) {
+                continue;
+            }
+            fragments[i] = segmentFor(ad.getId()).get(ad.getId(), ad.getVersion());
+            if (fragments[i] != null) {
+                found++;
+            }
+        }
+        hits.increment(found);
+        misses.increment(fragments.length - found);
+        return fragments;
+    }
+
+    private void store(List<AdsDto> ads, byte[][] fragments, boolean[] serialized) {
+        long maxSegmentBytes = properties.getMaxSize().toBytes() / SEGMENTS;
+        for (int i = 0; i < fragments.length; i++) {
+            AdsDto ad = ads.get(i);
+            if (serialized[i] && ad.getVersion() != null) {
+                segmentFor(ad.getId()).put(ad.getId(), new Entry(ad.getVersion(), fragments[i]), maxSegmentBytes);
+            }
+        }
+    }
+
+    private void invalidate(List<AdsDto> ads) {
+        for (AdsDto ad : ads) {
+            segmentFor(ad.getId()).remove(ad.getId());
+        }
+    }
+
+    private long size() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    private Segment segmentFor(int id) {
+        int hash = id * 0x9e3779b9;
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static long weight(Entry entry) {
+        return weight(entry.json);
+    }
+
+    private static long weight(byte[] json) {
+        return json.length + ENTRY_OVERHEAD;
+    }
+
+    private static final class Segment {
+        // guarded by this; порядок доступа - первым вытесняется давно не читанный
+        private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long bytes;
+
+        synchronized byte[] get(int id, long version) {
+            Entry entry = entries.get(id);
+            return entry != null && entry.version == version ? entry.json : null;
+        }
+
+        synchronized void put(int id, Entry entry, long maxBytes) {
+            Entry previous = entries.put(id, entry);
+            if (previous != null) {
+                bytes -= weight(previous);
+            }
+            bytes += weight(entry);
+            Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= weight(eldest.next().getValue());
+                eldest.remove();
+            }
+        }
+
+        synchronized void remove(int id) {
+            Entry removed = entries.remove(id);
+            if (removed != null) {
+                bytes -= weight(removed);
+            }
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final byte[] json;
+
+        private Entry(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+}
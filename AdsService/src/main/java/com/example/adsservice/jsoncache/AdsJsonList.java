@@ -0,0 +1,18 @@
+package com.example.adsservice.jsoncache;
+
+import com.example.adsservice.model.dto.AdsDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Список объявлений в ответе контроллера, который записывается в JSON из кэша
+ * {@link AdsJsonCache} вместо сериализации каждого объявления.
+ */
+@Getter
+@RequiredArgsConstructor
+public class AdsJsonList {
+
+    private final List<AdsDto> ads;
+}
@@ -0,0 +1,39 @@
+package com.example.adsservice.jsoncache;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+public class AdsJsonListHttpMessageConverter extends AbstractHttpMessageConverter<AdsJsonList> {
+
+    private final AdsJsonCache cache;
+
+    public AdsJsonListHttpMessageConverter(AdsJsonCache cache) {
+        super(MediaType.APPLICATION_JSON);
+        this.cache = cache;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return AdsJsonList.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected AdsJsonList readInternal(Class<? extends AdsJsonList> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("AdsJsonList is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(AdsJsonList list, HttpOutputMessage outputMessage) throws IOException {
+        cache.writeArray(list.getAds(), outputMessage.getBody());
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.adsservice.jsoncache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.json-cache")
+public class JsonCacheProperties {
+    private boolean enabled = true;
+    // суммарный размер JSON объявлений в кэше; при превышении вытесняются давно не читанные
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+}
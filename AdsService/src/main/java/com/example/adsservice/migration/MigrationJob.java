@@ -0,0 +1,52 @@
+package com.example.adsservice.migration;
+
+import com.example.adsservice.config.DataSourceConfig;
+import com.example.adsservice.config.GroupCommitConfig;
+import com.example.adsservice.config.MigrationConfig;
+import com.example.adsservice.config.ShardingConfig;
+import com.example.adsservice.datasource.ReadYourWritesTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Разовый запуск миграций: поднимает только пулы соединений и Liquibase, применяет changelog
+ * ко всем шардам и завершается. Экземпляры сервиса при этом стартуют с
+ * ads.migration.mode=validate и не ждут блокировки changelog.
+ * <p>
+ * {@code java -jar target/AdsService-*.jar --migrate}
+ */
+@ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, DataSourceAutoConfiguration.class})
+@Import({DataSourceConfig.class, GroupCommitConfig.class, ReadYourWritesTracker.class,
+        MigrationConfig.class, ShardingConfig.class})
+public class MigrationJob {
+
+    public static final String ARGUMENT = "--migrate";
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationJob.class);
+
+    public static boolean isRequested(String[] args) {
+        return Arrays.asList(args).contains(ARGUMENT);
+    }
+
+    public static void run(String[] args) {
+        long started = System.nanoTime();
+        String[] jobArgs = Stream.concat(Arrays.stream(args), Stream.of("--ads.migration.mode=migrate", "--spring.liquibase.enabled=true"))
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MigrationJob.class)
+                .web(WebApplicationType.NONE)
+                .run(jobArgs);
+        log.info("Migrations applied in {} ms", (System.nanoTime() - started) / 1_000_000);
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.adsservice.migration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.migration")
+public class MigrationProperties {
+
+    private Mode mode = Mode.MIGRATE;
+
+    public enum Mode {
+        // накатить changelog при старте экземпляра
+        MIGRATE,
+        // только проверить, что все changeset уже применены отдельным запуском миграций
+        VALIDATE
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.adsservice.migration;
+
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.changelog.ChangeSet;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * SpringLiquibase с режимом VALIDATE: экземпляр не берёт блокировку changelog и ничего не
+ * применяет, а только сверяет changelog с DATABASECHANGELOG и не стартует, если остались
+ * неприменённые changeset.
+ */
+public class MigrationSpringLiquibase extends SpringLiquibase {
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationSpringLiquibase.class);
+
+    private final MigrationProperties.Mode mode;
+
+    public MigrationSpringLiquibase(MigrationProperties.Mode mode) {
+        this.mode = mode;
+    }
+
+    public static MigrationSpringLiquibase create(LiquibaseProperties properties, MigrationProperties.Mode mode,
+                                                  DataSource dataSource, Map<String, String> extraParameters) {
+        MigrationSpringLiquibase liquibase = new MigrationSpringLiquibase(mode);
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(properties.getChangeLog());
+        liquibase.setContexts(properties.getContexts());
+        liquibase.setLabelFilter(properties.getLabels());
+        liquibase.setDefaultSchema(properties.getDefaultSchema());
+        liquibase.setLiquibaseSchema(properties.getLiquibaseSchema());
+        liquibase.setLiquibaseTablespace(properties.getLiquibaseTablespace());
+        liquibase.setDatabaseChangeLogTable(properties.getDatabaseChangeLogTable());
+        liquibase.setDatabaseChangeLogLockTable(properties.getDatabaseChangeLogLockTable());
+        liquibase.setDropFirst(properties.isDropFirst());
+        liquibase.setTestRollbackOnUpdate(properties.isTestRollbackOnUpdate());
+        liquibase.setTag(properties.getTag());
+        liquibase.setShouldRun(properties.isEnabled());
+        Map<String, String> parameters = new HashMap<>();
+        if (properties.getParameters() != null) {
+            parameters.putAll(properties.getParameters());
+        }
+        parameters.putAll(extraParameters);
+        liquibase.setChangeLogParameters(parameters);
+        return liquibase;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws LiquibaseException {
+        if (mode == MigrationProperties.Mode.VALIDATE && shouldRun) {
+            validateApplied();
+            return;
+        }
+        super.afterPropertiesSet();
+    }
+
+    private void validateApplied() throws LiquibaseException {
+        long started = System.nanoTime();
+        try (Connection connection = getDataSource().getConnection();
+             Liquibase liquibase = createLiquibase(connection)) {
+            List<ChangeSet> pending = liquibase.listUnrunChangeSets(new Contexts(getContexts()),
+                    new LabelExpression(getLabelFilter()));
+            if (!pending.isEmpty()) {
+                String ids = pending.stream().map(ChangeSet::toString).collect(Collectors.joining(", "));
+                throw new IllegalStateException("Database schema of " + getBeanName() + " is behind the changelog, "
+                        + pending.size() + " changesets are not applied: " + ids
+                        + ". Run the migration job before starting the service");
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+        log.info("Schema of {} is up to date with {}, checked in {} ms",
+                getBeanName(), getChangeLog(), (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.adsservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdViewsDto {
+    private Integer adId;
+    private Long views;
+    private Long maxOverestimate;
+}
@@ -18,6 +18,8 @@ public class AdsDto {
     private String title;
     private String description;
     private Double price;
+    private String category;
     private Integer userId;
     private LocalDateTime createdAt;
+    private Long version;
 }
\ No newline at end of file
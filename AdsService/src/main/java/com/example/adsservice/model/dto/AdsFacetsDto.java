@@ -0,0 +1,22 @@
+package com.example.adsservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdsFacetsDto {
+    private Long total;
+    private Map<String, Long> categories;
+    private List<PriceFacetDto> prices;
+    private List<Integer> adIds;
+}
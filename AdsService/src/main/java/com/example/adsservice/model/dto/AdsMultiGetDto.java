@@ -0,0 +1,19 @@
+package com.example.adsservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdsMultiGetDto {
+    private List<AdsDto> ads;
+    private List<Integer> missingIds;
+}
@@ -0,0 +1,20 @@
+package com.example.adsservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdsPartitionDto {
+    private Integer shard;
+    private String name;
+    private String bounds;
+    private Long estimatedRows;
+    private Long totalBytes;
+}
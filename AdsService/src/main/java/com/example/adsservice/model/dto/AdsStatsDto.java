@@ -0,0 +1,25 @@
+package com.example.adsservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdsStatsDto {
+    private Integer userId;
+    private Long totalAds;
+    private Long usersWithAds;
+    private Double averageAdsPerUser;
+    private Map<String, Double> adsPerUserPercentiles;
+    private Long pricedAds;
+    private Double averagePrice;
+    private Map<String, Double> pricePercentiles;
+}
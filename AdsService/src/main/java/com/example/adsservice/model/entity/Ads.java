@@ -10,6 +10,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
 import java.time.LocalDateTime;
 
 @Entity(name = "ads")
@@ -25,6 +26,9 @@ public class Ads {
     private String title;
     private String description;
     private Double price;
+    private String category;
     private Integer userId;
     private LocalDateTime createdAt;
+    @Version
+    private Long version;
 }
\ No newline at end of file
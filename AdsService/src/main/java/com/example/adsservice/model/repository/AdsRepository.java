@@ -1,11 +1,29 @@
 package com.example.adsservice.model.repository;
 
 import com.example.adsservice.model.entity.Ads;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface AdsRepository extends JpaRepository<Ads, Integer> {
+
+    List<Ads> findAllByUserId(Integer userId);
+
+    List<Ads> findAllByOrderByIdAsc();
+
+    List<Ads> findAllByIdIn(Collection<Integer> ids);
+
+    List<Ads> findByIdGreaterThanOrderByIdAsc(Integer afterId, Pageable pageable);
+
+    // границы по created_at позволяют PostgreSQL отсечь лишние месячные секции
+    @Query("select a from ads a where a.createdAt >= :from and a.createdAt < :to and a.id > :afterId order by a.id")
+    List<Ads> findCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                 @Param("afterId") Integer afterId, Pageable pageable);
 }
\ No newline at end of file
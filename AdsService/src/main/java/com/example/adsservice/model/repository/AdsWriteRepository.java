@@ -0,0 +1,118 @@
+package com.example.adsservice.model.repository;
+
+import com.example.adsservice.model.entity.Ads;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Изменение и удаление объявлений одним запросом. Обновление условное по версии и возвращает
+ * строку до и после изменения: прежние значения нужны слушателям AdsChangedEvent.
+ * Пустой результат означает, что объявления нет или его версия уже другая.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AdsWriteRepository {
+
+    private static final String COLUMNS = "id, title, description, price, category, user_id, created_at, version";
+    private static final String REPLACE_SET =
+            "title = ?, description = ?, price = ?, category = ?, user_id = ?";
+    private static final String PATCH_SET = "title = COALESCE(?, a.title), description = COALESCE(?, a.description), " +
+            "price = COALESCE(?, a.price), category = COALESCE(?, a.category), user_id = COALESCE(?, a.user_id)";
+    // подзапрос блокирует строку и отдаёт её прежнее состояние в RETURNING
+    private static final String UPDATE_SQL = "UPDATE ads a SET %s, version = a.version + 1 " +
+            "FROM (SELECT " + COLUMNS + " FROM ads WHERE id = ? FOR UPDATE) old " +
+            "WHERE a.id = old.id AND a.created_at = old.created_at%s " +
+            "RETURNING old.title AS old_title, old.description AS old_description, old.price AS old_price, " +
+            "old.category AS old_category, old.user_id AS old_user_id, old.version AS old_version, " +
+            "a.id, a.title, a.description, a.price, a.category, a.user_id, a.created_at, a.version";
+    private static final String VERSION_CONDITION = " AND a.version = ?";
+    private static final int[] SET_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.VARCHAR, Types.INTEGER};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Полная замена полей объявления; без expectedVersion - безусловная.
+     */
+    public Optional<Change> replace(Ads values, Long expectedVersion) {
+        return update(REPLACE_SET, values, expectedVersion);
+    }
+
+    /**
+     * Частичное обновление: null в values оставляет поле без изменений.
+     */
+    public Optional<Change> patch(Ads values, long expectedVersion) {
+        return update(PATCH_SET, values, expectedVersion);
+    }
+
+    public Optional<Ads> delete(Integer id, Long expectedVersion) {
+        String sql = "DELETE FROM ads WHERE id = ?" + (expectedVersion != null ? " AND version = ?" : "") +
+                " RETURNING " + COLUMNS;
+        Object[] args = expectedVersion != null ? new Object[]{id, expectedVersion} : new Object[]{id};
+        return jdbcTemplate.query(sql, this::mapAd, args).stream().findFirst();
+    }
+
+    public List<Ads> deleteByUserId(Integer userId) {
+        return jdbcTemplate.query("DELETE FROM ads WHERE user_id = ? RETURNING " + COLUMNS, this::mapAd, userId);
+    }
+
+    public Optional<Long> findVersion(Integer id) {
+        return jdbcTemplate.queryForList("SELECT version FROM ads WHERE id = ?", Long.class, id).stream().findFirst();
+    }
+
+    private Optional<Change> update(String setClause, Ads values, Long expectedVersion) {
+        String sql = String.format(UPDATE_SQL, setClause, expectedVersion != null ? VERSION_CONDITION : "");
+        int count = SET_TYPES.length + (expectedVersion != null ? 2 : 1);
+        Object[] args = new Object[count];
+        int[] types = new int[count];
+        Object[] set = {values.getTitle(), values.getDescription(), values.getPrice(), values.getCategory(), values.getUserId()};
+        System.arraycopy(set, 0, args, 0, set.length);
+        System.arraycopy(SET_TYPES, 0, types, 0, SET_TYPES.length);
+        args[SET_TYPES.length] = values.getId();
+        types[SET_TYPES.length] = Types.INTEGER;
+        if (expectedVersion != null) {
+            args[count - 1] = expectedVersion;
+            types[count - 1] = Types.BIGINT;
+        }
+        RowMapper<Change> mapper = (rs, rowNum) -> new Change(Ads.builder()
+                .id(rs.getInt("id"))
+                .title(rs.getString("old_title"))
+                .description(rs.getString("old_description"))
+                .price(rs.getObject("old_price", Double.class))
+                .category(rs.getString("old_category"))
+                .userId(rs.getObject("old_user_id", Integer.class))
+                .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                .version(rs.getLong("old_version"))
+                .build(), mapAd(rs, rowNum));
+        return jdbcTemplate.query(sql, args, types, mapper).stream().findFirst();
+    }
+
+    private Ads mapAd(ResultSet rs, int rowNum) throws SQLException {
+        return Ads.builder()
+                .id(rs.getInt("id"))
+                .title(rs.getString("title"))
+                .description(rs.getString("description"))
+                .price(rs.getObject("price", Double.class))
+                .category(rs.getString("category"))
+                .userId(rs.getObject("user_id", Integer.class))
+                .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                .version(rs.getLong("version"))
+                .build();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Change {
+        private final Ads before;
+        private final Ads after;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.adsservice.partition;
+
+import com.example.adsservice.event.AdsExpiredEvent;
+import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.model.dto.AdsPartitionDto;
+import com.example.adsservice.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Обслуживает месячные секции таблицы ads: заранее создаёт будущие секции,
+ * отключает или удаляет секции старше срока хранения и пишет в лог их размеры.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdsPartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(AdsPartitionMaintenance.class);
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("ads_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'ads_'yyyy_MM");
+    private static final long MAINTENANCE_LOCK = 0x6164735f70617274L;
+
+    private static final String PARTITIONS_SQL =
+            "SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bounds, " +
+            "GREATEST(c.reltuples, 0)::bigint AS estimated_rows, pg_total_relation_size(c.oid) AS total_bytes " +
+            "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'ads'::regclass ORDER BY c.relname";
+
+    private final PartitioningProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${ads.partitioning.cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!properties.isEnabled()) {
+            log.debug("Ads partition maintenance is disabled");
+            return;
+        }
+        shardRouter.onAllShards(shard -> {
+            try {
+                maintainShard(shard);
+            } catch (RuntimeException e) {
+                log.error("Ads partition maintenance failed on shard {}", shard, e);
+            }
+            return null;
+        });
+        for (AdsPartitionDto partition : getPartitions()) {
+            log.info("Ads partition {} on shard {}: {} rows (estimated), {} bytes",
+                    partition.getName(), partition.getShard(), partition.getEstimatedRows(), partition.getTotalBytes());
+        }
+    }
+
+    public List<AdsPartitionDto> getPartitions() {
+        return shardRouter.onAllShards(shard -> jdbcTemplate.query(PARTITIONS_SQL, (rs, rowNum) -> AdsPartitionDto.builder()
+                        .shard(shard)
+                        .name(rs.getString("name"))
+                        .bounds(rs.getString("bounds"))
+                        .estimatedRows(rs.getLong("estimated_rows"))
+                        .totalBytes(rs.getLong("total_bytes"))
+                        .build()))
+                .stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    private void maintainShard(int shard) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, MAINTENANCE_LOCK);
+            if (!Boolean.TRUE.equals(locked)) {
+                log.info("Ads partition maintenance is already running on shard {}, skipping", shard);
+                return;
+            }
+            YearMonth current = YearMonth.now();
+            for (int i = 0; i <= properties.getPremakeMonths(); i++) {
+                createPartition(current.plusMonths(i));
+            }
+            if (properties.getRetentionMonths() > 0) {
+                YearMonth oldestKept = current.minusMonths(properties.getRetentionMonths());
+                for (AdsPartitionDto partition : jdbcTemplate.query(PARTITIONS_SQL,
+                        (rs, rowNum) -> AdsPartitionDto.builder().name(rs.getString("name")).build())) {
+                    Matcher matcher = PARTITION_NAME.matcher(partition.getName());
+                    if (matcher.matches() && YearMonth.of(Integer.parseInt(matcher.group(1)),
+                            Integer.parseInt(matcher.group(2))).isBefore(oldestKept)) {
+                        expirePartition(shard, partition.getName());
+                    }
+                }
+            }
+        });
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + month.format(PARTITION_FORMAT) + " PARTITION OF ads " +
+                "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    private void expirePartition(int shard, String name) {
+        // блокируем запись в секцию, чтобы список выводимых объявлений совпал с содержимым секции
+        jdbcTemplate.execute("LOCK TABLE " + name + " IN SHARE MODE");
+        List<AdsDto> expired = jdbcTemplate.query(
+                "SELECT id, title, description, price, user_id, created_at FROM " + name,
+                (rs, rowNum) -> AdsDto.builder()
+                        .id(rs.getInt("id"))
+                        .title(rs.getString("title"))
+                        .description(rs.getString("description"))
+                        .price(rs.getObject("price", Double.class))
+                        .userId(rs.getInt("user_id"))
+                        .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                        .build());
+        eventPublisher.publishEvent(new AdsExpiredEvent(shard, name, expired));
+        jdbcTemplate.execute("ALTER TABLE ads DETACH PARTITION " + name);
+        switch (properties.getExpiryAction()) {
+            case DROP:
+                jdbcTemplate.execute("DROP TABLE " + name);
+                break;
+            case ARCHIVE:
+                String schema = quoteIdentifier(properties.getArchiveSchema());
+                jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + schema);
+                jdbcTemplate.execute("ALTER TABLE " + name + " SET SCHEMA " + schema);
+                break;
+            default:
+                break;
+        }
+        log.info("Expired ads partition {} with {} ads on shard {} ({})", name, expired.size(), shard, properties.getExpiryAction());
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
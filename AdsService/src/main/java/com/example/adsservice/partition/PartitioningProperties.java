@@ -0,0 +1,23 @@
+package com.example.adsservice.partition;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.partitioning")
+public class PartitioningProperties {
+
+    public enum ExpiryAction {
+        DROP, DETACH, ARCHIVE
+    }
+
+    private boolean enabled = true;
+    private int premakeMonths = 3;
+    // 0 - хранить объявления бессрочно
+    private int retentionMonths = 0;
+    private ExpiryAction expiryAction = ExpiryAction.DETACH;
+    private String archiveSchema = "ads_archive";
+    private String cron = "0 15 3 * * *";
+}
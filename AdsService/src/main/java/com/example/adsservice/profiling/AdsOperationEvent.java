@@ -0,0 +1,22 @@
+package com.example.adsservice.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.ads.AdsOperation")
+@Label("Ads Operation")
+@Category({"Ads Service"})
+@Description("Call of a public AdsService method")
+@StackTrace(false)
+class AdsOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,50 @@
+package com.example.adsservice.profiling;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * События JFR вокруг горячих путей, чтобы в записи рядом со сборкой мусора и блокировками
+ * были видны операции сервиса. Пока запись не идёт, событие выключено и стоит одной проверки.
+ */
+@Aspect
+@Component
+public class FlightRecorderAspect {
+
+    @Around("execution(public * com.example.adsservice.service.AdsService.*(..))")
+    public Object adsOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        AdsOperationEvent event = new AdsOperationEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        event.begin();
+        try {
+            Object result = joinPoint.proceed();
+            event.succeeded = true;
+            return result;
+        } finally {
+            event.operation = joinPoint.getSignature().getName();
+            event.commit();
+        }
+    }
+
+    @Around("execution(* com.example.adsservice.client.UserServiceClient+.checkUserExists(..)) && args(userId)")
+    public Object userCheck(ProceedingJoinPoint joinPoint, Integer userId) throws Throwable {
+        UserCheckEvent event = new UserCheckEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        event.begin();
+        try {
+            Object result = joinPoint.proceed();
+            event.succeeded = true;
+            return result;
+        } finally {
+            event.userId = userId != null ? userId : 0;
+            event.transport = joinPoint.getTarget().getClass().getSimpleName();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.adsservice.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.autoconfigure.web.server.ConditionalOnManagementPort;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Запись Java Flight Recorder по запросу: POST /actuator/flightrecorder {"profile", "duration"}
+ * запускает запись, POST /actuator/flightrecorder/{id} останавливает её досрочно,
+ * GET /actuator/flightrecorder/{id} отдаёт файл .jfr (у идущей записи - снятое на этот момент),
+ * DELETE /actuator/flightrecorder/{id} удаляет запись и файл.
+ * Файлы содержат свойства и окружение JVM, поэтому эндпоинт есть только при отдельном
+ * management.server.port и никогда не открывается на основном порту приложения.
+ */
+@Component
+@ConditionalOnManagementPort(ManagementPortType.DIFFERENT)
+@Endpoint(id = "flightrecorder")
+public class FlightRecorderEndpoint implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecorderEndpoint.class);
+
+    private final FlightRecorderProperties properties;
+    private final long pid = ProcessHandle.current().pid();
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+
+    public FlightRecorderEndpoint(FlightRecorderProperties properties) {
+        this.properties = properties;
+    }
+
+    @ReadOperation
+    public List<RecordingDescriptor> recordings() {
+        return recordings.values().stream()
+                .sorted(Comparator.comparing(Recording::getId))
+                .map(RecordingDescriptor::new)
+                .collect(Collectors.toList());
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Object> start(@Nullable String profile, @Nullable Duration duration) {
+        if (!FlightRecorder.isAvailable()) {
+            return badRequest("Java Flight Recorder недоступен в этой JVM");
+        }
+        Duration length = duration != null ? duration : properties.getDefaultDuration();
+        if (length.isNegative() || length.isZero() || length.compareTo(properties.getMaxDuration()) > 0) {
+            return badRequest("Длительность записи должна быть больше 0 и не больше " + properties.getMaxDuration());
+        }
+        if (recordings.size() >= properties.getMaxRecordings()) {
+            return badRequest("Уже есть " + recordings.size() + " записей, удалите ненужные");
+        }
+        String profileName = profile != null ? profile : properties.getDefaultProfile();
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(profileName);
+        } catch (IOException | ParseException e) {
+            return badRequest("Неизвестный профиль JFR: " + profileName);
+        }
+        Recording recording = new Recording(configuration);
+        try {
+            Files.createDirectories(Paths.get(properties.getDirectory()));
+            recording.setName("on-demand-" + profileName);
+            recording.setToDisk(true);
+            recording.setDuration(length);
+            // по окончании записи JFR сам сбрасывает её в этот файл
+            recording.setDestination(file(recording, ""));
+            recording.start();
+        } catch (IOException e) {
+            recording.close();
+            throw new UncheckedIOException(e);
+        }
+        recordings.put(recording.getId(), recording);
+        log.info("Started JFR recording {} with profile {} for {}", recording.getId(), profileName, length);
+        return new WebEndpointResponse<>(new RecordingDescriptor(recording));
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<RecordingDescriptor> stop(@Selector long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        try {
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+                log.info("Stopped JFR recording {}", id);
+            }
+        } catch (IllegalStateException ignored) {
+            // запись только что остановилась по истечении длительности
+        }
+        return new WebEndpointResponse<>(new RecordingDescriptor(recording));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector long id) throws IOException {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path file = recording.getDestination();
+        if (recording.getState() == RecordingState.RUNNING) {
+            file = file(recording, "-partial");
+            recording.dump(file);
+        }
+        if (file == null || !Files.exists(file)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(new FileSystemResource(file));
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Void> delete(@Selector long id) {
+        Recording recording = recordings.remove(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        close(recording);
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+
+    @Override
+    public void destroy() {
+        recordings.values().forEach(this::close);
+        recordings.clear();
+    }
+
+    private void close(Recording recording) {
+        Path partial = file(recording, "-partial");
+        Path destination = recording.getDestination();
+        recording.close();
+        try {
+            Files.deleteIfExists(partial);
+            if (destination != null) {
+                Files.deleteIfExists(destination);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete JFR recording {} files: {}", recording.getId(), e.getMessage());
+        }
+    }
+
+    // ответ самого эндпоинта, а не исключение: иначе его перехватит общий обработчик контроллеров
+    private static WebEndpointResponse<Object> badRequest(String message) {
+        return new WebEndpointResponse<>(Map.of("error", message), WebEndpointResponse.STATUS_BAD_REQUEST);
+    }
+
+    private Path file(Recording recording, String suffix) {
+        return Paths.get(properties.getDirectory(), "ads-" + pid + "-" + recording.getId() + suffix + ".jfr");
+    }
+
+    @Getter
+    public static final class RecordingDescriptor {
+        private final long id;
+        private final String name;
+        private final RecordingState state;
+        private final Instant startTime;
+        private final Duration duration;
+        private final long size;
+
+        private RecordingDescriptor(Recording recording) {
+            this.id = recording.getId();
+            this.name = recording.getName();
+            this.state = recording.getState();
+            this.startTime = recording.getStartTime();
+            this.duration = recording.getDuration();
+            this.size = recording.getSize();
+        }
+    }
+}
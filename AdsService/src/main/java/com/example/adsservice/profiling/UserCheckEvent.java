@@ -0,0 +1,25 @@
+package com.example.adsservice.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.ads.UserCheck")
+@Label("User Existence Check")
+@Category({"Ads Service", "UserService Client"})
+@Description("Call to UserService checking that a user exists")
+@StackTrace(false)
+class UserCheckEvent extends Event {
+
+    @Label("User Id")
+    int userId;
+
+    @Label("Transport")
+    String transport;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,83 @@
+package com.example.adsservice.rpc;
+
+import com.example.adsservice.exception.AdsException;
+import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.rpc.proto.Ad;
+import com.example.adsservice.rpc.proto.AdsCatalogGrpc;
+import com.example.adsservice.rpc.proto.AdsListReply;
+import com.example.adsservice.rpc.proto.DeleteAdsReply;
+import com.example.adsservice.rpc.proto.UserIdRequest;
+import com.example.adsservice.service.AdsService;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class AdsCatalogGrpcService extends AdsCatalogGrpc.AdsCatalogImplBase {
+
+    private static final Logger log = LoggerFactory.getLogger(AdsCatalogGrpcService.class);
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final AdsService adsService;
+
+    @Override
+    public void getAdsByUser(UserIdRequest request, StreamObserver<AdsListReply> responseObserver) {
+        try {
+            List<AdsDto> ads = adsService.getAdsByUserId(request.getUserId());
+            AdsListReply.Builder reply = AdsListReply.newBuilder();
+            ads.forEach(ad -> reply.addAds(toMessage(ad)));
+            responseObserver.onNext(reply.build());
+            responseObserver.onCompleted();
+        } catch (AdsException e) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription(e.getMessage()).asRuntimeException());
+        } catch (RuntimeException e) {
+            log.error("gRPC GetAdsByUser failed for user ID: {}", request.getUserId(), e);
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void deleteAdsByUser(UserIdRequest request, StreamObserver<DeleteAdsReply> responseObserver) {
+        try {
+            int deleted = adsService.deleteAdsByUserId(request.getUserId());
+            responseObserver.onNext(DeleteAdsReply.newBuilder().setDeleted(deleted).build());
+            responseObserver.onCompleted();
+        } catch (AdsException e) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription(e.getMessage()).asRuntimeException());
+        } catch (RuntimeException e) {
+            log.error("gRPC DeleteAdsByUser failed for user ID: {}", request.getUserId(), e);
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    private Ad toMessage(AdsDto ad) {
+        Ad.Builder builder = Ad.newBuilder()
+                .setId(ad.getId())
+                .setUserId(ad.getUserId());
+        if (ad.getTitle() != null) {
+            builder.setTitle(ad.getTitle());
+        }
+        if (ad.getDescription() != null) {
+            builder.setDescription(ad.getDescription());
+        }
+        if (ad.getPrice() != null) {
+            builder.setPrice(ad.getPrice());
+        }
+        if (ad.getCategory() != null) {
+            builder.setCategory(ad.getCategory());
+        }
+        if (ad.getCreatedAt() != null) {
+            builder.setCreatedAtMicros(ChronoUnit.MICROS.between(EPOCH, ad.getCreatedAt()));
+        }
+        return builder.build();
+    }
+}
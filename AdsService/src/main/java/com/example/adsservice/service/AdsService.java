@@ -1,24 +1,37 @@
 package com.example.adsservice.service;
 
+import com.example.adsservice.batch.AdsGroupCommitter;
+import com.example.adsservice.client.UserServiceClient;
+import com.example.adsservice.datasource.ReadYourWritesTracker;
+import com.example.adsservice.event.AdsChangedEvent;
+import com.example.adsservice.exception.AdsBadRequestException;
+import com.example.adsservice.exception.AdsConflictException;
 import com.example.adsservice.exception.AdsException;
 import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.model.dto.AdsMultiGetDto;
 import com.example.adsservice.model.entity.Ads;
 import com.example.adsservice.model.repository.AdsRepository;
+import com.example.adsservice.model.repository.AdsWriteRepository;
+import com.example.adsservice.sharding.ShardRouter;
+import com.example.adsservice.snapshot.CatalogSnapshot;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,51 +39,106 @@ import java.util.stream.Collectors;
 public class AdsService {
 
     private static final Logger log = LoggerFactory.getLogger(AdsService.class);
+    private static final LocalDateTime CREATED_AT_MIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime CREATED_AT_MAX = LocalDateTime.of(9999, 12, 31, 0, 0);
+    // тот же предел, что gateway.max-multi-get-ids у шлюза
+    private static final int MULTI_GET_MAX_IDS = 200;
+    // размер списка IN (...) в одном запросе; степень двойки, чтобы не дополнять полные части
+    private static final int MULTI_GET_CHUNK_SIZE = 256;
 
     private final AdsRepository adsRepository;
-    private final RestTemplate restTemplate;
+    private final AdsWriteRepository adsWriteRepository;
+    private final UserServiceClient userServiceClient;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AdsGroupCommitter groupCommitter;
+    private final CatalogSnapshot catalogSnapshot;
 
+    @Transactional(readOnly = true)
     public List<AdsDto> getAllAds() {
         log.info("Fetching all ads from the database");
-        List<Ads> ads = adsRepository.findAll();
+        List<Ads> ads = shardRouter.onAllShards(shard -> adsRepository.findAllByOrderByIdAsc()).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Ads::getId))
+                .collect(Collectors.toList());
         log.debug("Found {} ads", ads.size());
         return ads.stream().map(this::convertToDto).collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public List<AdsDto> getAdsPage(Integer afterId, int limit, LocalDateTime from, LocalDateTime to) {
+        log.info("Fetching page of {} ads after ID: {}, created from {} to {}", limit, afterId, from, to);
+        int cursor = afterId != null ? afterId : 0;
+        PageRequest page = PageRequest.of(0, limit);
+        boolean dateFiltered = from != null || to != null;
+        LocalDateTime createdFrom = from != null ? from : CREATED_AT_MIN;
+        LocalDateTime createdTo = to != null ? to : CREATED_AT_MAX;
+        return shardRouter.onAllShards(shard -> dateFiltered
+                        ? adsRepository.findCreatedBetween(createdFrom, createdTo, cursor, page)
+                        : adsRepository.findByIdGreaterThanOrderByIdAsc(cursor, page)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Ads::getId))
+                .limit(limit)
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
     public AdsDto getAdById(Integer id) {
         log.info("Fetching ad with ID: {}", id);
-        Optional<Ads> adOptional = adsRepository.findById(id);
-        Ads ad = adOptional.orElseThrow(() -> {
+        Optional<AdsDto> adOptional = catalogSnapshot.isReady()
+                ? catalogSnapshot.findById(id)
+                : shardRouter.onShard(shardRouter.shardForAd(id), () -> adsRepository.findById(id)).map(this::convertToDto);
+        return adOptional.orElseThrow(() -> {
             log.error("Ad with ID {} not found", id);
             return new AdsException("Объявление с ID " + id + " не найдено");
         });
-        return convertToDto(ad);
     }
 
+    // объявления идут в порядке ids без повторов, ненайденные id перечисляются в missingIds
+    @Transactional(readOnly = true)
+    public AdsMultiGetDto getAdsByIds(List<Integer> ids) {
+        Set<Integer> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        log.info("Fetching {} ads by ID", requested.size());
+        if (requested.size() > MULTI_GET_MAX_IDS) {
+            throw new AdsBadRequestException("За один запрос можно получить не больше " + MULTI_GET_MAX_IDS + " объявлений");
+        }
+        Map<Integer, AdsDto> found = new HashMap<>();
+        if (catalogSnapshot.isReady()) {
+            requested.forEach(id -> catalogSnapshot.findById(id).ifPresent(ad -> found.put(id, ad)));
+        } else {
+            Map<Integer, List<Integer>> idsByShard = requested.stream()
+                    .collect(Collectors.groupingBy(shardRouter::shardForAd));
+            shardRouter.onAllShards(shard -> findAllByIds(idsByShard.getOrDefault(shard, List.of())))
+                    .forEach(ads -> ads.forEach(ad -> found.put(ad.getId(), convertToDto(ad))));
+        }
+        List<AdsDto> ads = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : requested) {
+            AdsDto ad = found.get(id);
+            if (ad != null) {
+                ads.add(ad);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        log.debug("Found {} of {} requested ads", ads.size(), requested.size());
+        return AdsMultiGetDto.builder().ads(ads).missingIds(missingIds).build();
+    }
+
+    @Transactional(readOnly = true)
     public List<AdsDto> getAdsByUserId(Integer userId) {
         log.info("Fetching ads for user with ID: {}", userId);
 
-        String userServiceUrl = "http://localhost:8089/users/" + userId;
-        try {
-            ResponseEntity<Map<String, Object>> userResponse = restTemplate.exchange(
-                    userServiceUrl,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<Map<String, Object>>() {
-                    }
-            );
-            if (userResponse.getStatusCode() != HttpStatus.OK) {
-                log.warn("User with ID {} not found in UserService", userId);
-                throw new AdsException("Пользователь с ID " + userId + " не найден");
-            }
-            log.debug("User with ID {} exists, proceeding to fetch ads", userId);
-        } catch (RestClientException e) {
-            log.error("Error while checking user ID: {} in UserService", userId, e);
-            throw new AdsException("Ошибка при проверке пользователя: " + e.getMessage());
-        }
+        userServiceClient.checkUserExists(userId);
+        log.debug("User with ID {} exists, proceeding to fetch ads", userId);
 
-        List<Ads> ads = adsRepository.findAll().stream()
-                .filter(ad -> ad.getUserId().equals(userId))
+        List<AdsDto> ads = catalogSnapshot.isReady()
+                ? catalogSnapshot.findByUserId(userId)
+                : shardRouter.onShard(shardRouter.shardForUser(userId), () -> adsRepository.findAllByUserId(userId)).stream()
+                .map(this::convertToDto)
                 .collect(Collectors.toList());
 
         if (ads.isEmpty()) {
@@ -78,120 +146,135 @@ public class AdsService {
             throw new AdsException("У пользователя с ID " + userId + " нет объявлений");
         }
 
-        return ads.stream().map(this::convertToDto).collect(Collectors.toList());
+        return ads;
     }
 
-    public void createAd(AdsDto adsDto) {
+    @Transactional
+    public AdsDto createAd(AdsDto adsDto) {
         log.info("Creating new ad with title: {}", adsDto.getTitle());
 
-        String userServiceUrl = "http://localhost:8089/users/" + adsDto.getUserId();
-        try {
-            ResponseEntity<Map<String, Object>> userResponse = restTemplate.exchange(
-                    userServiceUrl,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<Map<String, Object>>() {
-                    }
-            );
-            if (userResponse.getStatusCode() != HttpStatus.OK) {
-                log.warn("User with ID {} not found in UserService", adsDto.getUserId());
-                throw new AdsException("Пользователь с ID " + adsDto.getUserId() + " не найден");
-            }
-            log.debug("User with ID {} exists, proceeding to create ad", adsDto.getUserId());
-        } catch (RestClientException e) {
-            log.error("Error while checking user ID: {} in UserService", adsDto.getUserId(), e);
-            throw new AdsException("Ошибка при проверке пользователя: " + e.getMessage());
-        }
+        userServiceClient.checkUserExists(adsDto.getUserId());
+        log.debug("User with ID {} exists, proceeding to create ad", adsDto.getUserId());
 
         Ads ad = convertToEntity(adsDto);
         ad.setCreatedAt(LocalDateTime.now());
-        adsRepository.save(ad);
+        int shard = shardRouter.shardForUser(ad.getUserId());
+        if (groupCommitter.isEnabled()) {
+            groupCommitter.insert(shard, ad);
+        } else {
+            shardRouter.onShard(shard, () -> adsRepository.save(ad));
+        }
+        readYourWritesTracker.recordWrite(ad.getUserId());
+        AdsDto created = convertToDto(ad);
+        eventPublisher.publishEvent(AdsChangedEvent.created(created));
         log.debug("Ad created with ID: {}", ad.getId());
+        return created;
     }
 
+    // версия в adsDto необязательна: без неё объявление заменяется безусловно
+    @Transactional
     public void updateAd(AdsDto adsDto) {
         log.info("Updating ad with ID: {}", adsDto.getId());
-        Optional<Ads> adOptional = adsRepository.findById(adsDto.getId());
-        Ads ad = adOptional.orElseThrow(() -> {
-            log.error("Ad with ID {} not found for update", adsDto.getId());
-            return new AdsException("Объявление с ID " + adsDto.getId() + " не найдено");
-        });
+        int shard = checkSameShard(adsDto.getId(), adsDto.getUserId());
+        AdsWriteRepository.Change change = shardRouter.onShard(shard,
+                        () -> adsWriteRepository.replace(convertToEntity(adsDto), adsDto.getVersion()))
+                .orElseThrow(() -> notFoundOrConflict(shard, adsDto.getId(), adsDto.getVersion()));
+        applyChange(change);
+        log.debug("Ad with ID {} updated successfully", adsDto.getId());
+    }
 
-        if (!ad.getUserId().equals(adsDto.getUserId())) {
-            String userServiceUrl = "http://localhost:8089/users/" + adsDto.getUserId();
-            try {
-                ResponseEntity<Map<String, Object>> userResponse = restTemplate.exchange(
-                        userServiceUrl,
-                        HttpMethod.GET,
-                        null,
-                        new ParameterizedTypeReference<Map<String, Object>>() {
-                        }
-                );
-                if (userResponse.getStatusCode() != HttpStatus.OK) {
-                    log.warn("User with ID {} not found in UserService", adsDto.getUserId());
-                    throw new AdsException("Пользователь с ID " + adsDto.getUserId() + " не найден");
-                }
-                log.debug("User with ID {} exists, proceeding to update ad", adsDto.getUserId());
-            } catch (RestClientException e) {
-                log.error("Error while checking user ID: {} in UserService", adsDto.getUserId(), e);
-                throw new AdsException("Ошибка при проверке пользователя: " + e.getMessage());
-            }
+    @Transactional
+    public AdsDto patchAd(Integer adId, AdsDto patch) {
+        log.info("Patching ad with ID: {} at version {}", adId, patch.getVersion());
+        if (patch.getVersion() == null) {
+            throw new AdsBadRequestException("Для частичного обновления объявления нужна его версия");
         }
-
-        ad.setTitle(adsDto.getTitle());
-        ad.setDescription(adsDto.getDescription());
-        ad.setPrice(adsDto.getPrice());
-        ad.setUserId(adsDto.getUserId());
-        adsRepository.save(ad);
-        log.debug("Ad with ID {} updated successfully", ad.getId());
+        int shard = patch.getUserId() != null ? checkSameShard(adId, patch.getUserId()) : shardRouter.shardForAd(adId);
+        Ads values = convertToEntity(patch);
+        values.setId(adId);
+        AdsWriteRepository.Change change = shardRouter.onShard(shard, () -> adsWriteRepository.patch(values, patch.getVersion()))
+                .orElseThrow(() -> notFoundOrConflict(shard, adId, patch.getVersion()));
+        AdsDto after = applyChange(change);
+        log.debug("Ad with ID {} patched to version {}", adId, after.getVersion());
+        return after;
     }
 
-    public void deleteAd(Integer adId) {
+    @Transactional
+    public void deleteAd(Integer adId, Long version) {
         log.info("Deleting ad with ID: {}", adId);
-        Optional<Ads> adOptional = adsRepository.findById(adId);
-        Ads ad = adOptional.orElseThrow(() -> {
-            log.error("Ad with ID {} not found for deletion", adId);
-            return new AdsException("Объявление с ID " + adId + " не найдено");
-        });
-        adsRepository.delete(ad);
+        int shard = shardRouter.shardForAd(adId);
+        Ads ad = shardRouter.onShard(shard, () -> adsWriteRepository.delete(adId, version))
+                .orElseThrow(() -> notFoundOrConflict(shard, adId, version));
+        readYourWritesTracker.recordWrite(ad.getUserId());
+        eventPublisher.publishEvent(AdsChangedEvent.deleted(convertToDto(ad)));
         log.debug("Ad with ID {} deleted successfully", adId);
     }
 
-    public void deleteAdsByUserId(Integer userId) {
+    @Transactional
+    public int deleteAdsByUserId(Integer userId) {
         log.info("Deleting ads for user with ID: {}", userId);
 
 
-        String userServiceUrl = "http://localhost:8089/users/" + userId;
-        try {
-            ResponseEntity<Map<String, Object>> userResponse = restTemplate.exchange(
-                    userServiceUrl,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<Map<String, Object>>() {
-                    }
-            );
-            if (userResponse.getStatusCode() != HttpStatus.OK) {
-                log.warn("User with ID {} not found in UserService", userId);
-                throw new AdsException("Пользователь с ID " + userId + " не найден");
-            }
-            log.debug("User with ID {} exists, proceeding to delete ads", userId);
-        } catch (RestClientException e) {
-            log.error("Error while checking user ID: {} in UserService", userId, e);
-            throw new AdsException("Ошибка при проверке пользователя: " + e.getMessage());
-        }
+        userServiceClient.checkUserExists(userId);
+        log.debug("User with ID {} exists, proceeding to delete ads", userId);
 
 
-        List<Ads> ads = adsRepository.findAll().stream()
-                .filter(ad -> ad.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        int shard = shardRouter.shardForUser(userId);
+        List<Ads> ads = shardRouter.onShard(shard, () -> adsWriteRepository.deleteByUserId(userId));
 
         if (ads.isEmpty()) {
             log.warn("No ads found for user ID: {}", userId);
             throw new AdsException("Объявления пользователя с ID " + userId + " не найдены");
         }
 
-        adsRepository.deleteAll(ads);
+        readYourWritesTracker.recordWrite(userId);
+        ads.forEach(ad -> eventPublisher.publishEvent(AdsChangedEvent.deleted(convertToDto(ad))));
         log.debug("Deleted {} ads for user ID: {}", ads.size(), userId);
+        return ads.size();
+    }
+
+    private List<Ads> findAllByIds(List<Integer> ids) {
+        List<Ads> ads = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MULTI_GET_CHUNK_SIZE) {
+            ads.addAll(adsRepository.findAllByIdIn(ids.subList(from, Math.min(ids.size(), from + MULTI_GET_CHUNK_SIZE))));
+        }
+        return ads;
+    }
+
+    private int checkSameShard(Integer adId, Integer userId) {
+        int shard = shardRouter.shardForAd(adId);
+        if (shardRouter.shardForUser(userId) != shard) {
+            log.error("Ad with ID {} cannot be moved to user ID {} on another shard", adId, userId);
+            throw new AdsException("Нельзя передать объявление с ID " + adId + " пользователю из другого шарда");
+        }
+        return shard;
+    }
+
+    // строка уже изменена; если объявление передано несуществующему пользователю, исключение откатит транзакцию
+    private AdsDto applyChange(AdsWriteRepository.Change change) {
+        Ads after = change.getAfter();
+        if (!Objects.equals(change.getBefore().getUserId(), after.getUserId())) {
+            userServiceClient.checkUserExists(after.getUserId());
+            log.debug("User with ID {} exists, proceeding to update ad", after.getUserId());
+        }
+        readYourWritesTracker.recordWrite(after.getUserId());
+        AdsDto updated = convertToDto(after);
+        eventPublisher.publishEvent(AdsChangedEvent.updated(convertToDto(change.getBefore()), updated));
+        return updated;
+    }
+
+    // запись не изменила ни одной строки; отдельный запрос нужен только для выбора между 404 и 409
+    private AdsException notFoundOrConflict(int shard, Integer adId, Long expectedVersion) {
+        Optional<Long> version = expectedVersion != null
+                ? shardRouter.onShard(shard, () -> adsWriteRepository.findVersion(adId))
+                : Optional.empty();
+        if (version.isPresent()) {
+            log.warn("Ad with ID {} is at version {}, expected {}", adId, version.get(), expectedVersion);
+            return new AdsConflictException("Объявление с ID " + adId + " уже изменено: текущая версия "
+                    + version.get() + ", ожидалась " + expectedVersion);
+        }
+        log.error("Ad with ID {} not found", adId);
+        return new AdsException("Объявление с ID " + adId + " не найдено");
     }
 
     private AdsDto convertToDto(Ads ad) {
@@ -200,8 +283,10 @@ public class AdsService {
                 .title(ad.getTitle())
                 .description(ad.getDescription())
                 .price(ad.getPrice())
+                .category(ad.getCategory())
                 .userId(ad.getUserId())
                 .createdAt(ad.getCreatedAt())
+                .version(ad.getVersion())
                 .build();
     }
 
@@ -211,8 +296,9 @@ public class AdsService {
                 .title(adsDto.getTitle())
                 .description(adsDto.getDescription())
                 .price(adsDto.getPrice())
+                .category(adsDto.getCategory())
                 .userId(adsDto.getUserId())
                 .createdAt(adsDto.getCreatedAt())
                 .build();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
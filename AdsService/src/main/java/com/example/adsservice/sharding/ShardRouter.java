@@ -0,0 +1,142 @@
+package com.example.adsservice.sharding;
+
+import com.example.adsservice.datasource.ReadYourWritesTracker;
+import com.example.adsservice.exception.AdsException;
+import com.example.adsservice.sql.RequestSqlStats;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+@Component
+public class ShardRouter implements DisposableBean {
+
+    private final int shardCount;
+    private final ExecutorService fanOutExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    public ShardRouter(ShardingProperties properties, PlatformTransactionManager transactionManager,
+                       ReadYourWritesTracker readYourWritesTracker) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.shardCount = properties.isEnabled() ? Math.max(1, properties.getShards().size()) : 1;
+        if (shardCount > 1) {
+            int threads = properties.getFanOutThreads() > 0 ? properties.getFanOutThreads() : shardCount * 2;
+            AtomicInteger counter = new AtomicInteger();
+            this.fanOutExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "shard-fan-out-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.fanOutExecutor = null;
+        }
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardForUser(Integer userId) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        int hash = userId;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shardCount);
+    }
+
+    // идентификаторы на шарде i выдаются последовательностью START i + 1 INCREMENT shardCount
+    public int shardForAd(Integer adId) {
+        return shardCount == 1 ? 0 : Math.floorMod(adId - 1, shardCount);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = ShardContext.set(shard);
+        try {
+            return action.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    public void onShard(int shard, Runnable action) {
+        onShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет action на каждом шарде параллельно. Транзакция вызывающего в потоки шардов
+     * не переходит, поэтому внутри read-only транзакции каждый шард получает свою read-only
+     * транзакцию и того же пользователя read-your-writes: иначе чтения ушли бы на primary.
+     */
+    public <T> List<T> onAllShards(IntFunction<T> action) {
+        List<T> results = new ArrayList<>(shardCount);
+        if (shardCount == 1) {
+            results.add(action.apply(0));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        RequestSqlStats sqlStats = RequestSqlStats.current();
+        boolean readOnly = TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        Integer user = readYourWritesTracker.getCurrentUser();
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(fanOutExecutor.submit(() -> {
+                RequestSqlStats previous = RequestSqlStats.bind(sqlStats);
+                readYourWritesTracker.setCurrentUser(user);
+                try {
+                    return onShard(target, () -> readOnly
+                            ? readOnlyTransaction.execute(status -> action.apply(target))
+                            : action.apply(target));
+                } finally {
+                    readYourWritesTracker.clearCurrentUser();
+                    RequestSqlStats.bind(previous);
+                }
+            }));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new AdsException("Запрос к шардам прерван");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    @Override
+    public void destroy() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdownNow();
+        }
+    }
+}
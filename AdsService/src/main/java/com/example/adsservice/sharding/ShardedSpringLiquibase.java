@@ -0,0 +1,63 @@
+package com.example.adsservice.sharding;
+
+import com.example.adsservice.migration.MigrationProperties;
+import com.example.adsservice.migration.MigrationSpringLiquibase;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Применяет changelog к каждому шарду. Параметры shardIndex/shardCount задают шаг
+ * последовательности идентификаторов, чтобы id объявлений не пересекались между шардами.
+ * На шардах нет таблицы users, поэтому changelog применяется с контекстом shard и
+ * changeset, которые ссылаются на users, помечены context:!shard.
+ */
+public class ShardedSpringLiquibase extends SpringLiquibase {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedSpringLiquibase.class);
+
+    private static final String SHARD_CONTEXT = "shard";
+
+    private final LiquibaseProperties properties;
+    private final MigrationProperties.Mode mode;
+    private final List<DataSource> shards;
+
+    public ShardedSpringLiquibase(LiquibaseProperties properties, MigrationProperties.Mode mode, List<DataSource> shards) {
+        this.properties = properties;
+        this.mode = mode;
+        this.shards = shards;
+        setChangeLog(properties.getChangeLog());
+    }
+
+    @Override
+    public void afterPropertiesSet() throws LiquibaseException {
+        if (!properties.isEnabled()) {
+            log.info("Liquibase is disabled, skipping migrations on {} shards", shards.size());
+            return;
+        }
+        for (int i = 0; i < shards.size(); i++) {
+            log.info("{} Liquibase changelog on shard {}", mode == MigrationProperties.Mode.VALIDATE ? "Validating" : "Applying", i);
+            createShardLiquibase(i).afterPropertiesSet();
+        }
+    }
+
+    private SpringLiquibase createShardLiquibase(int shard) {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("shardIndex", String.valueOf(shard));
+        parameters.put("shardCount", String.valueOf(shards.size()));
+        SpringLiquibase liquibase = MigrationSpringLiquibase.create(properties, mode, shards.get(shard), parameters);
+        liquibase.setContexts(properties.getContexts() == null
+                ? SHARD_CONTEXT
+                : properties.getContexts() + "," + SHARD_CONTEXT);
+        liquibase.setResourceLoader(getResourceLoader());
+        liquibase.setBeanName(getBeanName() + "-shard-" + shard);
+        return liquibase;
+    }
+}
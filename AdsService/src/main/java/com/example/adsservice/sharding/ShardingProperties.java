@@ -0,0 +1,28 @@
+package com.example.adsservice.sharding;
+
+import com.example.adsservice.datasource.DataSourceRoutingProperties;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+    private List<Shard> shards = new ArrayList<>();
+    private int fanOutThreads = 0;
+
+    @Getter
+    @Setter
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private List<DataSourceRoutingProperties.Replica> replicas = new ArrayList<>();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.adsservice.snapshot;
+
+import com.example.adsservice.model.dto.AdsDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Снимок объявлений одного шарда в отображённом в память файле. Колонки фиксированной ширины
+ * упорядочены по id объявления, строки лежат в общей области байт UTF-8, индекс пользователя
+ * хранит отсортированные user_id и для каждого диапазон номеров строк его объявлений.
+ * <pre>
+ * заголовок | id int[n] | user_id int[n] | price double[n] | created_at long[n] | version long[n]
+ *           | title, description, category: смещение int[n] и длина int[n]
+ *           | user_id int[m] | начало int[m] | число int[m] | номера строк int[k] | строки
+ * </pre>
+ * Один MappedByteBuffer ограничен 2 ГБ, поэтому снимок шарда должен в них помещаться.
+ */
+final class CatalogSegment {
+
+    static final int MAGIC = 0x41445343;
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_SIZE = 40;
+    static final int STRING_COLUMNS = 3;
+
+    static final int NULL_USER_ID = Integer.MIN_VALUE;
+    static final long NULL_CREATED_AT = Long.MIN_VALUE;
+    static final int NULL_STRING = -1;
+    static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int adCount;
+    private final int userCount;
+    private final int idsOffset;
+    private final int userIdsOffset;
+    private final int pricesOffset;
+    private final int createdAtOffset;
+    private final int versionsOffset;
+    private final int stringsOffset;
+    private final int usersOffset;
+    private final int userStartsOffset;
+    private final int userCountsOffset;
+    private final int userRowsOffset;
+    private final int arenaOffset;
+
+    private CatalogSegment(Path file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Файл " + file + " не является снимком объявлений версии " + FORMAT_VERSION);
+        }
+        this.adCount = buffer.getInt(8);
+        this.userCount = buffer.getInt(12);
+        int userRowCount = buffer.getInt(16);
+        this.idsOffset = HEADER_SIZE;
+        this.userIdsOffset = idsOffset + adCount * Integer.BYTES;
+        this.pricesOffset = userIdsOffset + adCount * Integer.BYTES;
+        this.createdAtOffset = pricesOffset + adCount * Double.BYTES;
+        this.versionsOffset = createdAtOffset + adCount * Long.BYTES;
+        this.stringsOffset = versionsOffset + adCount * Long.BYTES;
+        this.usersOffset = stringsOffset + STRING_COLUMNS * 2 * adCount * Integer.BYTES;
+        this.userStartsOffset = usersOffset + userCount * Integer.BYTES;
+        this.userCountsOffset = userStartsOffset + userCount * Integer.BYTES;
+        this.userRowsOffset = userCountsOffset + userCount * Integer.BYTES;
+        this.arenaOffset = userRowsOffset + userRowCount * Integer.BYTES;
+    }
+
+    static CatalogSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new CatalogSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    int getAdCount() {
+        return adCount;
+    }
+
+    long getSizeInBytes() {
+        return buffer.capacity();
+    }
+
+    AdsDto findById(int adId) {
+        int row = search(idsOffset, adCount, adId);
+        return row >= 0 ? read(row) : null;
+    }
+
+    List<AdsDto> findByUserId(int userId) {
+        int user = search(usersOffset, userCount, userId);
+        if (user < 0) {
+            return new ArrayList<>();
+        }
+        int start = buffer.getInt(userStartsOffset + user * Integer.BYTES);
+        int count = buffer.getInt(userCountsOffset + user * Integer.BYTES);
+        List<AdsDto> ads = new ArrayList<>(count);
+        for (int i = start; i < start + count; i++) {
+            ads.add(read(buffer.getInt(userRowsOffset + i * Integer.BYTES)));
+        }
+        return ads;
+    }
+
+    private AdsDto read(int row) {
+        int userId = buffer.getInt(userIdsOffset + row * Integer.BYTES);
+        double price = buffer.getDouble(pricesOffset + row * Double.BYTES);
+        long createdAt = buffer.getLong(createdAtOffset + row * Long.BYTES);
+        return AdsDto.builder()
+                .id(buffer.getInt(idsOffset + row * Integer.BYTES))
+                .title(string(0, row))
+                .description(string(1, row))
+                .price(Double.isNaN(price) ? null : price)
+                .category(string(2, row))
+                .userId(userId == NULL_USER_ID ? null : userId)
+                .createdAt(createdAt == NULL_CREATED_AT ? null : EPOCH.plus(createdAt, ChronoUnit.MICROS))
+                .version(buffer.getLong(versionsOffset + row * Long.BYTES))
+                .build();
+    }
+
+    private String string(int column, int row) {
+        int offsets = stringsOffset + column * 2 * adCount * Integer.BYTES;
+        int lengths = offsets + adCount * Integer.BYTES;
+        int length = buffer.getInt(lengths + row * Integer.BYTES);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(arenaOffset + buffer.getInt(offsets + row * Integer.BYTES));
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // бинарный поиск по отсортированной колонке int, возвращает номер строки или -1
+    private int search(int offset, int count, int key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = buffer.getInt(offset + mid * Integer.BYTES);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.adsservice.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Потоковая запись снимка шарда в формате {@link CatalogSegment}. Каждая колонка пишется
+ * во временный файл по мере чтения строк, поэтому куча не зависит от размера каталога;
+ * в конце колонки склеиваются за заголовком и файл атомарно переименовывается в итоговый.
+ * Объявления подаются по возрастанию id, строки индекса - по возрастанию user_id.
+ */
+final class CatalogSegmentWriter implements Closeable {
+
+    private static final int IDS = 0;
+    private static final int USER_IDS = 1;
+    private static final int PRICES = 2;
+    private static final int CREATED_AT = 3;
+    private static final int VERSIONS = 4;
+    private static final int STRINGS = 5;
+    private static final int USERS = STRINGS + CatalogSegment.STRING_COLUMNS * 2;
+    private static final int USER_STARTS = USERS + 1;
+    private static final int USER_COUNTS = USERS + 2;
+    private static final int USER_ROWS = USERS + 3;
+    private static final int ARENA = USERS + 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path target;
+    private final Path[] columnFiles = new Path[ARENA + 1];
+    private final DataOutputStream[] columns = new DataOutputStream[ARENA + 1];
+
+    private int adCount;
+    private int userCount;
+    private int userRowCount;
+    private long arenaSize;
+    private int currentUser;
+    private int currentUserStart = -1;
+    private boolean finished;
+
+    CatalogSegmentWriter(Path target) {
+        this.target = target;
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                columnFiles[i] = target.resolveSibling(target.getFileName() + ".col" + i + ".tmp");
+                columns[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(columnFiles[i]), BUFFER_SIZE));
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void addAd(int id, Integer userId, Double price, LocalDateTime createdAt, long version,
+               String title, String description, String category) {
+        try {
+            columns[IDS].writeInt(id);
+            columns[USER_IDS].writeInt(userId != null ? userId : CatalogSegment.NULL_USER_ID);
+            columns[PRICES].writeDouble(price != null ? price : Double.NaN);
+            columns[CREATED_AT].writeLong(createdAt != null
+                    ? ChronoUnit.MICROS.between(CatalogSegment.EPOCH, createdAt)
+                    : CatalogSegment.NULL_CREATED_AT);
+            columns[VERSIONS].writeLong(version);
+            writeString(0, title);
+            writeString(1, description);
+            writeString(2, category);
+            adCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void addUserRow(int userId, int row) {
+        try {
+            if (currentUserStart < 0 || userId != currentUser) {
+                endUser();
+                currentUser = userId;
+                currentUserStart = userRowCount;
+            }
+            columns[USER_ROWS].writeInt(row);
+            userRowCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void finish() {
+        try {
+            endUser();
+            for (DataOutputStream column : columns) {
+                column.close();
+            }
+            long size = CatalogSegment.HEADER_SIZE;
+            for (Path columnFile : columnFiles) {
+                size += Files.size(columnFile);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Снимок шарда занимает " + size + " байт, больше 2 ГБ");
+            }
+            Path assembled = target.resolveSibling(target.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(assembled, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                out.write(header());
+                for (Path columnFile : columnFiles) {
+                    try (FileChannel in = FileChannel.open(columnFile, StandardOpenOption.READ)) {
+                        long position = 0;
+                        while (position < in.size()) {
+                            position += in.transferTo(position, in.size() - position, out);
+                        }
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(assembled, target, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < columns.length; i++) {
+            try {
+                if (columns[i] != null) {
+                    columns[i].close();
+                }
+                if (columnFiles[i] != null) {
+                    Files.deleteIfExists(columnFiles[i]);
+                }
+            } catch (IOException ignored) {
+                // временный файл будет удалён при следующем старте
+            }
+        }
+        try {
+            Files.deleteIfExists(target.resolveSibling(target.getFileName() + ".tmp"));
+            if (!finished) {
+                Files.deleteIfExists(target);
+            }
+        } catch (IOException ignored) {
+            // то же
+        }
+    }
+
+    private void writeString(int column, String value) throws IOException {
+        if (value == null) {
+            columns[STRINGS + column * 2].writeInt(0);
+            columns[STRINGS + column * 2 + 1].writeInt(CatalogSegment.NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (arenaSize + bytes.length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Строки снимка шарда не помещаются в 2 ГБ");
+        }
+        columns[STRINGS + column * 2].writeInt((int) arenaSize);
+        columns[STRINGS + column * 2 + 1].writeInt(bytes.length);
+        columns[ARENA].write(bytes);
+        arenaSize += bytes.length;
+    }
+
+    private void endUser() throws IOException {
+        if (currentUserStart < 0) {
+            return;
+        }
+        columns[USERS].writeInt(currentUser);
+        columns[USER_STARTS].writeInt(currentUserStart);
+        columns[USER_COUNTS].writeInt(userRowCount - currentUserStart);
+        userCount++;
+        currentUserStart = -1;
+    }
+
+    private ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(CatalogSegment.HEADER_SIZE);
+        header.putInt(CatalogSegment.MAGIC)
+                .putInt(CatalogSegment.FORMAT_VERSION)
+                .putInt(adCount)
+                .putInt(userCount)
+                .putInt(userRowCount)
+                .putInt(0)
+                .putLong(arenaSize)
+                .putLong(System.currentTimeMillis());
+        header.flip();
+        return header;
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.adsservice.snapshot;
+
+import com.example.adsservice.event.AdsChangedEvent;
+import com.example.adsservice.event.AdsExpiredEvent;
+import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.sharding.ShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Каталог объявлений для чтения по id и по пользователю из снимков шардов, отображённых в память
+ * ({@link CatalogSegment}), без обращения к БД и без хранения объявлений в куче. Снимки
+ * перестраиваются в фоне раз в rebuildInterval и подменяются целиком. Изменения, сделанные
+ * этим экземпляром после начала сборки, лежат в небольшой дельте в куче и перекрывают снимок.
+ * Изменения других экземпляров видны только после следующей сборки.
+ */
+@Component
+public class CatalogSnapshot implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    private static final String ADS_SQL =
+            "SELECT id, user_id, price, created_at, version, title, description, category FROM ads ORDER BY id";
+    // номера строк совпадают с порядком ADS_SQL, так как оба запроса идут в одной транзакции REPEATABLE READ
+    private static final String USER_ROWS_SQL = "SELECT user_id, row_no FROM " +
+            "(SELECT user_id, id, (row_number() OVER (ORDER BY id) - 1)::int AS row_no FROM ads) rows " +
+            "WHERE user_id IS NOT NULL ORDER BY user_id, id";
+    private static final String FILE_PREFIX = "ads-";
+    private static final int BUILD_FETCH_SIZE = 10_000;
+    // удалённое объявление в дельте
+    private static final AdsDto REMOVED = new AdsDto();
+
+    private final SnapshotProperties properties;
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+    private final ShardRouter shardRouter;
+    private final Timer buildTime;
+    private final long pid = ProcessHandle.current().pid();
+    private final ScheduledExecutorService builder;
+
+    // снимок и дельта к нему подменяются одной ссылкой
+    private volatile Generation current;
+    private Map<Integer, AdsDto> pendingDelta;
+
+    public CatalogSnapshot(SnapshotProperties properties, DataSource dataSource,
+                           PlatformTransactionManager transactionManager, ShardRouter shardRouter,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.transactionManager = transactionManager;
+        this.shardRouter = shardRouter;
+        this.builder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ads-snapshot-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.buildTime = Timer.builder("ads.snapshot.build")
+                .description("Time to build the memory-mapped ads catalog snapshot")
+                .register(meterRegistry);
+        Gauge.builder("ads.snapshot.size", this, CatalogSnapshot::sizeInBytes)
+                .description("Size of the mapped ads catalog snapshot files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("ads.snapshot.delta", this, snapshot -> snapshot.current != null ? snapshot.current.delta.size() : 0)
+                .description("Ads changed since the current snapshot was built")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.isEnabled()) {
+            log.info("Ads catalog snapshot is disabled");
+            return;
+        }
+        try {
+            Files.createDirectories(directory());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        removeStaleFiles();
+        long interval = properties.getRebuildInterval().toMillis();
+        builder.scheduleWithFixedDelay(this::rebuild, 0, interval, TimeUnit.MILLISECONDS);
+        log.info("Ads catalog snapshot enabled in {}, rebuild interval {}", directory(), properties.getRebuildInterval());
+    }
+
+    /**
+     * До первой сборки снимка чтение идёт из БД.
+     */
+    public boolean isReady() {
+        return current != null;
+    }
+
+    public Optional<AdsDto> findById(int adId) {
+        Generation generation = current;
+        AdsDto changed = generation.delta.get(adId);
+        if (changed != null) {
+            return changed == REMOVED ? Optional.empty() : Optional.of(changed);
+        }
+        return Optional.ofNullable(generation.segments[shardRouter.shardForAd(adId)].findById(adId));
+    }
+
+    public List<AdsDto> findByUserId(int userId) {
+        Generation generation = current;
+        List<AdsDto> ads = generation.segments[shardRouter.shardForUser(userId)].findByUserId(userId);
+        ads.removeIf(ad -> generation.delta.containsKey(ad.getId()));
+        generation.delta.values().stream()
+                .filter(ad -> ad != REMOVED && Integer.valueOf(userId).equals(ad.getUserId()))
+                .forEach(ads::add);
+        ads.sort(Comparator.comparing(AdsDto::getId));
+        return ads;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdsChanged(AdsChangedEvent event) {
+        if (event.getAfter() != null) {
+            record(event.getAfter().getId(), event.getAfter());
+        } else {
+            record(event.getBefore().getId(), REMOVED);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdsExpired(AdsExpiredEvent event) {
+        event.getAds().forEach(ad -> record(ad.getId(), REMOVED));
+    }
+
+    public void rebuild() {
+        long started = System.nanoTime();
+        synchronized (this) {
+            pendingDelta = new ConcurrentHashMap<>();
+        }
+        CatalogSegment[] built;
+        try {
+            built = shardRouter.onAllShards(this::buildSegment).toArray(new CatalogSegment[0]);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDelta = null;
+            }
+            log.error("Ads catalog snapshot build failed, keeping the previous one", e);
+            return;
+        }
+        Generation previous;
+        synchronized (this) {
+            previous = current;
+            current = new Generation(built, pendingDelta);
+            pendingDelta = null;
+        }
+        buildTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (previous != null) {
+            // отображение старого файла остаётся действительным до сборки мусора, читатели его дочитают
+            Arrays.stream(previous.segments).forEach(segment -> delete(segment.getFile()));
+        }
+        log.info("Ads catalog snapshot built: {} ads, {} bytes in {} ms",
+                Arrays.stream(built).mapToLong(CatalogSegment::getAdCount).sum(),
+                Arrays.stream(built).mapToLong(CatalogSegment::getSizeInBytes).sum(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public void destroy() {
+        builder.shutdownNow();
+    }
+
+    private synchronized void record(int adId, AdsDto ad) {
+        if (current != null) {
+            current.delta.put(adId, ad);
+        }
+        if (pendingDelta != null) {
+            pendingDelta.put(adId, ad);
+        }
+    }
+
+    private CatalogSegment buildSegment(int shard) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(BUILD_FETCH_SIZE);
+        // не read-only: снимок читается с primary, иначе отставание реплики потеряло бы записи до начала сборки
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        Path file = directory().resolve(FILE_PREFIX + pid + "-shard-" + shard + "-" + System.currentTimeMillis() + ".snapshot");
+        transactionTemplate.executeWithoutResult(status -> {
+            try (CatalogSegmentWriter writer = new CatalogSegmentWriter(file)) {
+                jdbcTemplate.query(ADS_SQL, rs -> {
+                    writer.addAd(rs.getInt("id"), rs.getObject("user_id", Integer.class),
+                            rs.getObject("price", Double.class), rs.getObject("created_at", LocalDateTime.class), rs.getLong("version"),
+                            rs.getString("title"), rs.getString("description"), rs.getString("category"));
+                });
+                jdbcTemplate.query(USER_ROWS_SQL, rs -> {
+                    writer.addUserRow(rs.getInt("user_id"), rs.getInt("row_no"));
+                });
+                writer.finish();
+            }
+        });
+        try {
+            return CatalogSegment.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private double sizeInBytes() {
+        Generation generation = current;
+        return generation == null ? 0 : Arrays.stream(generation.segments).mapToLong(CatalogSegment::getSizeInBytes).sum();
+    }
+
+    private Path directory() {
+        return Paths.get(properties.getDirectory());
+    }
+
+    // файлы снимков завершившихся процессов; каталог может быть общим для нескольких экземпляров
+    private void removeStaleFiles() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory(), FILE_PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int end = name.indexOf('-', FILE_PREFIX.length());
+                try {
+                    long owner = Long.parseLong(name.substring(FILE_PREFIX.length(), end));
+                    if (owner == pid || ProcessHandle.of(owner).isEmpty()) {
+                        delete(file);
+                    }
+                } catch (RuntimeException ignored) {
+                    // чужой файл
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean up ads catalog snapshot directory {}: {}", directory(), e.getMessage());
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete ads catalog snapshot file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class Generation {
+        private final CatalogSegment[] segments;
+        private final Map<Integer, AdsDto> delta;
+
+        private Generation(CatalogSegment[] segments, Map<Integer, AdsDto> delta) {
+            this.segments = segments;
+            this.delta = delta;
+        }
+    }
+}
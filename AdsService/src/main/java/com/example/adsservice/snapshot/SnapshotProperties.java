@@ -0,0 +1,16 @@
+package com.example.adsservice.snapshot;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.snapshot")
+public class SnapshotProperties {
+    private boolean enabled = false;
+    private String directory = System.getProperty("java.io.tmpdir") + "/ads-snapshot";
+    private Duration rebuildInterval = Duration.ofMinutes(5);
+}
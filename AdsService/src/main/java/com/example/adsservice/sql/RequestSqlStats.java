@@ -0,0 +1,63 @@
+package com.example.adsservice.sql;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Запросы к БД одного HTTP-запроса. К потоку привязывается {@link SqlRequestFilter};
+ * задачи, уходящие в другие потоки (обход шардов), переносят его через {@link #bind}.
+ */
+public final class RequestSqlStats {
+
+    private static final ThreadLocal<RequestSqlStats> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder timeMillis = new LongAdder();
+    // по тексту запроса: Hibernate повторяет один и тот же текст, нормализация нужна только для лога
+    private final Map<String, LongAdder> executions = new ConcurrentHashMap<>();
+
+    public static RequestSqlStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Привязывает статистику к текущему потоку и возвращает прежнюю для восстановления.
+     */
+    public static RequestSqlStats bind(RequestSqlStats stats) {
+        RequestSqlStats previous = CURRENT.get();
+        if (stats != null) {
+            CURRENT.set(stats);
+        } else {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+    void record(String query, long elapsedMillis) {
+        statements.increment();
+        timeMillis.add(elapsedMillis);
+        executions.computeIfAbsent(query, key -> new LongAdder()).increment();
+    }
+
+    long getStatements() {
+        return statements.sum();
+    }
+
+    long getTimeMillis() {
+        return timeMillis.sum();
+    }
+
+    Map.Entry<String, Long> mostRepeated() {
+        String query = null;
+        long count = 0;
+        for (Map.Entry<String, LongAdder> entry : executions.entrySet()) {
+            long value = entry.getValue().sum();
+            if (value > count) {
+                query = entry.getKey();
+                count = value;
+            }
+        }
+        return Map.entry(query != null ? query : "", count);
+    }
+}
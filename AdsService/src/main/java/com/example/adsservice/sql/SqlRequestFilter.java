@@ -0,0 +1,67 @@
+package com.example.adsservice.sql;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Считает запросы к БД и время в БД на каждый HTTP-запрос и публикует их по эндпоинтам.
+ * Запрос, превысивший statementBudget, пишется в лог вместе с самым частым запросом к БД:
+ * при N+1 это один и тот же SELECT, выполненный для каждой строки.
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlRequestFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlRequestFilter.class);
+
+    private final SqlMonitorProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestSqlStats stats = new RequestSqlStats();
+        RequestSqlStats previous = RequestSqlStats.bind(stats);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestSqlStats.bind(previous);
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestSqlStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+        long statements = stats.getStatements();
+        meterRegistry.summary("http.server.requests.sql.statements", tags).record(statements);
+        meterRegistry.timer("http.server.requests.sql.time", tags).record(stats.getTimeMillis(), TimeUnit.MILLISECONDS);
+        if (statements > properties.getStatementBudget()) {
+            meterRegistry.counter("http.server.requests.sql.over.budget", tags).increment();
+            Map.Entry<String, Long> repeated = stats.mostRepeated();
+            log.warn("{} {} ran {} SQL statements in {} ms, budget is {}; most repeated {} times: {}",
+                    request.getMethod(), request.getRequestURI(), statements, stats.getTimeMillis(),
+                    properties.getStatementBudget(), repeated.getValue(), SqlStatementListener.normalize(repeated.getKey()));
+        }
+    }
+}
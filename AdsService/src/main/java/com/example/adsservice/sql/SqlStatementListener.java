@@ -0,0 +1,109 @@
+package com.example.adsservice.sql;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+/**
+ * Слушатель выполненных через datasource-proxy запросов: добавляет их к статистике текущего
+ * HTTP-запроса и пишет в лог медленные. В лог попадают только типы параметров, не значения:
+ * среди них бывают хеши паролей и персональные данные.
+ */
+@Component
+public class SqlStatementListener implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementListener.class);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_LOGGED_PARAMETER_SETS = 3;
+
+    private final long slowQueryThresholdMillis;
+    private final Counter slowQueries;
+
+    public SqlStatementListener(SqlMonitorProperties properties, MeterRegistry meterRegistry) {
+        this.slowQueryThresholdMillis = properties.getSlowQueryThreshold().toMillis();
+        this.slowQueries = Counter.builder("sql.slow.queries")
+                .description("SQL statements slower than ads.sql.slow-query-threshold")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty()) {
+            return;
+        }
+        // пакет из нескольких запросов уходит в БД за один раз и считается одним обращением
+        String query = queryInfoList.get(0).getQuery();
+        RequestSqlStats stats = RequestSqlStats.current();
+        if (stats != null) {
+            stats.record(query, execInfo.getElapsedTime());
+        }
+        if (execInfo.getElapsedTime() >= slowQueryThresholdMillis) {
+            slowQueries.increment();
+            log.warn("Slow SQL: {} ms, {}{}: {} parameters {}", execInfo.getElapsedTime(),
+                    execInfo.isSuccess() ? "succeeded" : "failed",
+                    execInfo.isBatch() ? ", batch of " + execInfo.getBatchSize() : "",
+                    normalize(query), parameterShapes(queryInfoList.get(0)));
+        }
+    }
+
+    /**
+     * Текст запроса без литералов и с однострочными пробелами; списки IN (?, ?, ...) схлопываются,
+     * чтобы запросы, отличающиеся только длиной списка, выглядели одинаково.
+     */
+    static String normalize(String query) {
+        String normalized = STRING_LITERAL.matcher(query).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?, ...)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    // например [Integer, String(12), null]; у пакета - первые наборы параметров
+    private static String parameterShapes(QueryInfo queryInfo) {
+        List<List<ParameterSetOperation>> parametersList = queryInfo.getParametersList();
+        StringJoiner sets = new StringJoiner(", ");
+        for (int i = 0; i < parametersList.size() && i < MAX_LOGGED_PARAMETER_SETS; i++) {
+            StringJoiner shapes = new StringJoiner(", ", "[", "]");
+            for (ParameterSetOperation operation : parametersList.get(i)) {
+                shapes.add(shape(operation));
+            }
+            sets.add(shapes.toString());
+        }
+        if (parametersList.size() > MAX_LOGGED_PARAMETER_SETS) {
+            sets.add("... " + (parametersList.size() - MAX_LOGGED_PARAMETER_SETS) + " more");
+        }
+        return sets.toString();
+    }
+
+    private static String shape(ParameterSetOperation operation) {
+        Object[] args = operation.getArgs();
+        Object value = args.length > 1 ? args[1] : null;
+        if (ParameterSetOperation.isSetNullParameterOperation(operation) || value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence) {
+            return "String(" + ((CharSequence) value).length() + ")";
+        }
+        if (value instanceof byte[]) {
+            return "byte[" + ((byte[]) value).length + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+}
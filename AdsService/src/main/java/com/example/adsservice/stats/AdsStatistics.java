@@ -0,0 +1,184 @@
+package com.example.adsservice.stats;
+
+import com.example.adsservice.event.AdsChangedEvent;
+import com.example.adsservice.event.AdsExpiredEvent;
+import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.model.dto.AdsStatsDto;
+import com.example.adsservice.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Статистика объявлений в памяти: число объявлений по пользователям и распределения цен.
+ * Строится из БД один раз при старте, дальше обновляется по событиям изменения объявлений,
+ * поэтому чтение статистики не обращается к таблице.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdsStatistics implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(AdsStatistics.class);
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final int REBUILD_FETCH_SIZE = 10_000;
+
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+    private final ShardRouter shardRouter;
+
+    private State state = new State();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        long started = System.nanoTime();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(REBUILD_FETCH_SIZE);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        List<State> shardStates = shardRouter.onAllShards(shard -> transactionTemplate.execute(status -> {
+            State shardState = new State();
+            RowCallbackHandler rowHandler = rs -> shardState.apply(rs.getObject("user_id", Integer.class), rs.getObject("price", Double.class), 1);
+            jdbcTemplate.query("SELECT user_id, price FROM ads", rowHandler);
+            return shardState;
+        }));
+        State rebuilt = new State();
+        shardStates.forEach(rebuilt::merge);
+        synchronized (this) {
+            state = rebuilt;
+        }
+        log.info("Ads statistics rebuilt from {} ads in {} ms", rebuilt.totalAds, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAdsChanged(AdsChangedEvent event) {
+        if (event.getBefore() != null) {
+            state.apply(event.getBefore().getUserId(), event.getBefore().getPrice(), -1);
+        }
+        if (event.getAfter() != null) {
+            state.apply(event.getAfter().getUserId(), event.getAfter().getPrice(), 1);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAdsExpired(AdsExpiredEvent event) {
+        for (AdsDto ad : event.getAds()) {
+            state.apply(ad.getUserId(), ad.getPrice(), -1);
+        }
+        log.info("Removed {} expired ads of partition {} from statistics", event.getAds().size(), event.getPartition());
+    }
+
+    public synchronized AdsStatsDto getStats(List<Double> percentiles) {
+        return AdsStatsDto.builder()
+                .totalAds(state.totalAds)
+                .usersWithAds((long) state.users.size())
+                .averageAdsPerUser(nanToNull(state.adsPerUser.getAverage()))
+                .adsPerUserPercentiles(percentiles(state.adsPerUser, percentiles))
+                .pricedAds(state.prices.getCount())
+                .averagePrice(nanToNull(state.prices.getAverage()))
+                .pricePercentiles(percentiles(state.prices, percentiles))
+                .build();
+    }
+
+    public synchronized AdsStatsDto getUserStats(Integer userId, List<Double> percentiles) {
+        UserStats user = state.users.get(userId);
+        QuantileSketch prices = user != null ? user.prices : new QuantileSketch(RELATIVE_ACCURACY);
+        return AdsStatsDto.builder()
+                .userId(userId)
+                .totalAds(user != null ? user.adCount : 0L)
+                .pricedAds(prices.getCount())
+                .averagePrice(nanToNull(prices.getAverage()))
+                .pricePercentiles(percentiles(prices, percentiles))
+                .build();
+    }
+
+    private static Map<String, Double> percentiles(QuantileSketch sketch, List<Double> percentiles) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Double q : percentiles) {
+            result.put("p" + BigDecimal.valueOf(q * 100).stripTrailingZeros().toPlainString(), nanToNull(sketch.quantile(q)));
+        }
+        return result;
+    }
+
+    private static Double nanToNull(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static final class UserStats {
+        private long adCount;
+        private final QuantileSketch prices = new QuantileSketch(RELATIVE_ACCURACY);
+    }
+
+    private static final class State {
+        private final Map<Integer, UserStats> users = new HashMap<>();
+        private final QuantileSketch prices = new QuantileSketch(RELATIVE_ACCURACY);
+        // распределение числа объявлений на пользователя
+        private final QuantileSketch adsPerUser = new QuantileSketch(RELATIVE_ACCURACY);
+        private long totalAds;
+
+        void apply(Integer userId, Double price, int delta) {
+            if (price != null) {
+                if (delta > 0) {
+                    prices.add(price);
+                } else {
+                    prices.remove(price);
+                }
+            }
+            totalAds += delta;
+            // объявление без пользователя учитывается только в общих показателях
+            if (userId == null) {
+                return;
+            }
+            UserStats user = users.computeIfAbsent(userId, id -> new UserStats());
+            if (user.adCount > 0) {
+                adsPerUser.remove(user.adCount);
+            }
+            user.adCount += delta;
+            if (price != null) {
+                if (delta > 0) {
+                    user.prices.add(price);
+                } else {
+                    user.prices.remove(price);
+                }
+            }
+            if (user.adCount > 0) {
+                adsPerUser.add(user.adCount);
+            } else {
+                users.remove(userId);
+            }
+        }
+
+        void merge(State other) {
+            other.users.forEach((userId, otherUser) -> {
+                UserStats user = users.computeIfAbsent(userId, id -> new UserStats());
+                if (user.adCount > 0) {
+                    adsPerUser.remove(user.adCount);
+                }
+                user.adCount += otherUser.adCount;
+                user.prices.merge(otherUser.prices);
+                adsPerUser.add(user.adCount);
+            });
+            prices.merge(other.prices);
+            totalAds += other.totalAds;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.adsservice.stats;
+
+/**
+ * Скетч квантилей в духе DDSketch: значения раскладываются по логарифмическим корзинам,
+ * поэтому оценка любого квантиля отличается от точной не более чем на relativeAccuracy.
+ * В отличие от t-digest корзины хранят только счётчики, так что значение можно удалить,
+ * а скетчи с одинаковой точностью - слить. Не потокобезопасен.
+ */
+public class QuantileSketch {
+
+    private static final double MIN_INDEXABLE = 1e-9;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final BucketStore positive = new BucketStore();
+    private final BucketStore negative = new BucketStore();
+    private long zeroCount;
+    private long count;
+    private double sum;
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("relativeAccuracy must be in (0, 1): " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public void add(double value) {
+        update(value, 1);
+    }
+
+    public void remove(double value) {
+        update(value, -1);
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different accuracy");
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getAverage() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    public double quantile(double q) {
+        if (count <= 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (q * (count - 1));
+        long seen = 0;
+        for (int i = negative.maxIndex(); i >= negative.minIndex(); i--) {
+            seen += negative.get(i);
+            if (seen > rank) {
+                return -value(i);
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0;
+        }
+        for (int i = positive.minIndex(); i <= positive.maxIndex(); i++) {
+            seen += positive.get(i);
+            if (seen > rank) {
+                return value(i);
+            }
+        }
+        return value(positive.maxIndex());
+    }
+
+    private void update(double value, long delta) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (value > MIN_INDEXABLE) {
+            positive.add(index(value), delta);
+        } else if (value < -MIN_INDEXABLE) {
+            negative.add(index(-value), delta);
+        } else {
+            zeroCount += delta;
+        }
+        count += delta;
+        sum += delta * value;
+    }
+
+    // корзина i покрывает (gamma^(i-1), gamma^i]
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /**
+     * Плотный массив счётчиков корзин со смещением; расширяется в нужную сторону.
+     */
+    private static final class BucketStore {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] counts;
+        private int offset;
+
+        void add(int index, long delta) {
+            ensureCapacity(index);
+            counts[index - offset] += delta;
+        }
+
+        long get(int index) {
+            int position = index - offset;
+            return counts == null || position < 0 || position >= counts.length ? 0 : counts[position];
+        }
+
+        int minIndex() {
+            return counts == null ? 0 : offset;
+        }
+
+        int maxIndex() {
+            return counts == null ? -1 : offset + counts.length - 1;
+        }
+
+        void merge(BucketStore other) {
+            if (other.counts == null) {
+                return;
+            }
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        private void ensureCapacity(int index) {
+            if (counts == null) {
+                counts = new long[INITIAL_CAPACITY];
+                offset = index - INITIAL_CAPACITY / 2;
+                return;
+            }
+            if (index >= offset && index < offset + counts.length) {
+                return;
+            }
+            int min = Math.min(offset, index);
+            int max = Math.max(offset + counts.length - 1, index);
+            int slack = Math.max(INITIAL_CAPACITY, (max - min + 1) / 2);
+            if (index < offset) {
+                min -= slack;
+            } else {
+                max += slack;
+            }
+            long[] grown = new long[max - min + 1];
+            System.arraycopy(counts, 0, grown, offset - min, counts.length);
+            counts = grown;
+            offset = min;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.adsservice.views;
+
+import com.example.adsservice.event.AdsChangedEvent;
+import com.example.adsservice.event.AdsExpiredEvent;
+import com.example.adsservice.model.dto.AdViewsDto;
+import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Счётчики просмотров объявлений. Просмотры копятся в памяти в нескольких полосах,
+ * полоса выбирается по потоку, так что потоки почти не конкурируют за блокировку.
+ * Раз в flushInterval накопленное сбрасывается в ad_views пакетным upsert; при падении
+ * теряются только просмотры с последнего сброса. Самые просматриваемые объявления
+ * отслеживаются Space-Saving и отдаются из памяти.
+ */
+@Component
+public class AdViewCounter implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AdViewCounter.class);
+
+    // просмотры удалённого к моменту сброса объявления отбрасываются, иначе строка ad_views осиротеет
+    private static final String UPSERT_SQL = "INSERT INTO ad_views (ad_id, views, updated_at) " +
+            "SELECT ?, ?, now() WHERE EXISTS (SELECT 1 FROM ads WHERE id = ?) " +
+            "ON CONFLICT (ad_id) DO UPDATE SET views = ad_views.views + EXCLUDED.views, updated_at = now()";
+
+    private final ViewCountingProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final TaskScheduler taskScheduler;
+    private final TransactionTemplate newTransaction;
+    private final Stripe[] stripes;
+    private final SpaceSaving hotAds;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public AdViewCounter(ViewCountingProperties properties, JdbcTemplate jdbcTemplate,
+                         ShardRouter shardRouter, TaskScheduler taskScheduler,
+                         PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.taskScheduler = taskScheduler;
+        // слушатели событий работают после коммита исходной транзакции, поэтому пишут в своей
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        int stripeCount = properties.getStripes() > 0
+                ? properties.getStripes()
+                : Runtime.getRuntime().availableProcessors() * 2;
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.hotAds = new SpaceSaving(properties.getHotCapacity());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.isEnabled()) {
+            log.info("Ad view counting is disabled");
+            return;
+        }
+        List<Map<String, Object>> persisted = shardRouter.onAllShards(shard -> jdbcTemplate.queryForList(
+                        "SELECT ad_id, views FROM ad_views ORDER BY views DESC LIMIT ?", properties.getHotCapacity()))
+                .stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        synchronized (hotAds) {
+            persisted.forEach(row -> hotAds.offer(((Number) row.get("ad_id")).intValue(), ((Number) row.get("views")).longValue()));
+        }
+        taskScheduler.scheduleWithFixedDelay(this::flush, properties.getFlushInterval());
+        log.info("Ad view counting started with {} stripes, flush interval {}", stripes.length, properties.getFlushInterval());
+    }
+
+    public void recordView(int adId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Stripe stripe = stripes[stripeIndex()];
+        stripe.lock.lock();
+        try {
+            stripe.pending.addTo(adId, 1);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public AdViewsDto getViews(int adId) {
+        List<Long> persisted = shardRouter.onShard(shardRouter.shardForAd(adId),
+                () -> jdbcTemplate.queryForList("SELECT views FROM ad_views WHERE ad_id = ?", Long.class, adId));
+        long views = persisted.isEmpty() ? 0 : persisted.get(0);
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                views += stripe.pending.get(adId);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return AdViewsDto.builder().adId(adId).views(views).maxOverestimate(0L).build();
+    }
+
+    public List<AdViewsDto> getHotAds(int limit) {
+        synchronized (hotAds) {
+            return hotAds.top(limit).stream()
+                    .map(counter -> AdViewsDto.builder()
+                            .adId(counter.getKey())
+                            .views(counter.getCount())
+                            .maxOverestimate(counter.getError())
+                            .build())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            IntLongHashMap drained = drain();
+            if (drained.isEmpty()) {
+                return;
+            }
+            Map<Integer, IntLongHashMap> byShard = new TreeMap<>();
+            drained.forEach((adId, views) -> byShard
+                    .computeIfAbsent(shardRouter.shardForAd(adId), shard -> new IntLongHashMap())
+                    .addTo(adId, views));
+            // в список популярных попадают только записанные просмотры: несохранённые вернутся
+            // в полосу и будут учтены, когда повторный сброс удастся
+            byShard.forEach((shard, views) -> {
+                IntLongHashMap written = flushShard(shard, views);
+                synchronized (hotAds) {
+                    written.forEach(hotAds::offer);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Ad views flush failed", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdsChanged(AdsChangedEvent event) {
+        if (event.getType() != AdsChangedEvent.Type.DELETED) {
+            return;
+        }
+        int adId = event.getBefore().getId();
+        synchronized (hotAds) {
+            hotAds.remove(adId);
+        }
+        shardRouter.onShard(shardRouter.shardForAd(adId), () -> newTransaction.execute(
+                status -> jdbcTemplate.update("DELETE FROM ad_views WHERE ad_id = ?", adId)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdsExpired(AdsExpiredEvent event) {
+        Integer[] adIds = event.getAds().stream().map(AdsDto::getId).toArray(Integer[]::new);
+        synchronized (hotAds) {
+            Arrays.stream(adIds).forEach(hotAds::remove);
+        }
+        shardRouter.onShard(event.getShard(), () -> newTransaction.execute(
+                status -> jdbcTemplate.update("DELETE FROM ad_views WHERE ad_id = ANY (?)",
+                        ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", adIds)))));
+    }
+
+    @Override
+    public void destroy() {
+        if (properties.isEnabled()) {
+            flush();
+        }
+    }
+
+    private IntLongHashMap flushShard(int shard, IntLongHashMap views) {
+        int[] adIds = new int[views.size()];
+        int[] position = {0};
+        views.forEach((adId, count) -> adIds[position[0]++] = adId);
+        // одинаковый порядок строк в пакете исключает взаимные блокировки между экземплярами сервиса
+        Arrays.sort(adIds);
+        try {
+            int[] updated = shardRouter.onShard(shard, () -> jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setInt(1, adIds[i]);
+                    ps.setLong(2, views.get(adIds[i]));
+                    ps.setInt(3, adIds[i]);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return adIds.length;
+                }
+            }));
+            IntLongHashMap written = new IntLongHashMap(adIds.length);
+            for (int i = 0; i < adIds.length; i++) {
+                if (updated[i] != 0) {
+                    written.addTo(adIds[i], views.get(adIds[i]));
+                }
+            }
+            log.debug("Flushed views of {} ads to shard {}, {} deleted ads skipped",
+                    written.size(), shard, adIds.length - written.size());
+            return written;
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush views of {} ads to shard {}, will retry: {}", adIds.length, shard, e.getMessage());
+            Stripe stripe = stripes[0];
+            stripe.lock.lock();
+            try {
+                views.forEach(stripe.pending::addTo);
+            } finally {
+                stripe.lock.unlock();
+            }
+            return new IntLongHashMap();
+        }
+    }
+
+    private IntLongHashMap drain() {
+        IntLongHashMap drained = new IntLongHashMap();
+        for (Stripe stripe : stripes) {
+            IntLongHashMap pending;
+            stripe.lock.lock();
+            try {
+                if (stripe.pending.isEmpty()) {
+                    continue;
+                }
+                pending = stripe.pending;
+                stripe.pending = new IntLongHashMap();
+            } finally {
+                stripe.lock.unlock();
+            }
+            pending.forEach(drained::addTo);
+        }
+        return drained;
+    }
+
+    private int stripeIndex() {
+        return (int) (Thread.currentThread().getId() * 0x9e3779b97f4a7c15L >>> 32) & (stripes.length - 1);
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private IntLongHashMap pending = new IntLongHashMap();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.adsservice.views;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Алгоритм Space-Saving для поиска самых частых ключей в потоке. Хранит не более capacity счётчиков;
+ * при вытеснении новый ключ наследует счётчик минимального, поэтому оценка count завышена
+ * не более чем на error. Не потокобезопасен.
+ */
+public class SpaceSaving {
+
+    private static final Comparator<Counter> BY_COUNT = Comparator
+            .comparingLong((Counter counter) -> counter.count)
+            .thenComparingInt(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<Integer, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> ordered = new TreeSet<>(BY_COUNT);
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public void offer(int key, long weight) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            ordered.remove(counter);
+            counter.count += weight;
+            ordered.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(key, weight, 0);
+        } else {
+            Counter evicted = ordered.pollFirst();
+            counters.remove(evicted.key);
+            counter = new Counter(key, evicted.count + weight, evicted.count);
+        }
+        counters.put(key, counter);
+        ordered.add(counter);
+    }
+
+    public void remove(int key) {
+        Counter counter = counters.remove(key);
+        if (counter != null) {
+            ordered.remove(counter);
+        }
+    }
+
+    public List<Counter> top(int limit) {
+        List<Counter> result = new ArrayList<>(Math.min(limit, counters.size()));
+        Iterator<Counter> iterator = ordered.descendingIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            Counter counter = iterator.next();
+            result.add(new Counter(counter.key, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    public static final class Counter {
+        private final int key;
+        private long count;
+        private final long error;
+
+        private Counter(int key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public int getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.adsservice.views;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ads.views")
+public class ViewCountingProperties {
+    private boolean enabled = true;
+    private Duration flushInterval = Duration.ofSeconds(1);
+    // 0 - по два счётчика на ядро
+    private int stripes = 0;
+    private int hotCapacity = 1000;
+}
@@ -21,7 +21,7 @@ COMMENT ON COLUMN ads.created_at IS 'Дата и время создания о
 
 --rollback DROP TABLE ads;
 
---changeset username:2025-03-16_add_fk_to_ads labels:ads
+--changeset username:2025-03-16_add_fk_to_ads labels:ads context:!shard
 ALTER TABLE ads
     ADD CONSTRAINT fk_ads_user_id
         FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE;
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+--changeset username:2026-10-18_ads_category labels:ads
+
+ALTER TABLE ads ADD COLUMN category VARCHAR(64);
+
+COMMENT ON COLUMN ads.category IS 'Категория объявления';
+
+--rollback ALTER TABLE ads DROP COLUMN category;
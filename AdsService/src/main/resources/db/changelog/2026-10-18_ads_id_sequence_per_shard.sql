@@ -0,0 +1,14 @@
+--liquibase formatted sql
+--changeset username:2026-10-18_ads_id_sequence_per_shard labels:ads
+
+ALTER TABLE ads ALTER COLUMN id SET INCREMENT BY ${shardCount};
+
+SELECT setval(pg_get_serial_sequence('ads', 'id'),
+              next_id + (((${shardIndex} - (next_id - 1)) % ${shardCount}) + ${shardCount}) % ${shardCount},
+              false)
+FROM (SELECT COALESCE(MAX(id), 0) + 1 AS next_id FROM ads) AS ids;
+
+CREATE INDEX IF NOT EXISTS idx_ads_user_id ON ads (user_id);
+
+--rollback DROP INDEX IF EXISTS idx_ads_user_id;
+--rollback ALTER TABLE ads ALTER COLUMN id SET INCREMENT BY 1;
@@ -0,0 +1,64 @@
+--liquibase formatted sql
+--changeset username:2026-10-18_ads_partition_by_created_at labels:ads splitStatements:false
+
+DO $$
+DECLARE
+    legacy_sequence TEXT := pg_get_serial_sequence('ads', 'id');
+    sequence_increment BIGINT;
+    sequence_next BIGINT;
+    partition_month DATE;
+    last_month DATE := date_trunc('month', now()) + INTERVAL '3 months';
+BEGIN
+    SELECT increment_by INTO sequence_increment
+    FROM pg_sequences
+    WHERE format('%I.%I', schemaname, sequencename) = legacy_sequence;
+    EXECUTE format('SELECT CASE WHEN is_called THEN last_value + %s ELSE last_value END FROM %s',
+                   sequence_increment, legacy_sequence) INTO sequence_next;
+
+    ALTER TABLE ads RENAME TO ads_legacy;
+    ALTER TABLE ads_legacy RENAME CONSTRAINT ads_pkey TO ads_legacy_pkey;
+    EXECUTE format('ALTER SEQUENCE %s RENAME TO ads_legacy_id_seq', legacy_sequence);
+    DROP INDEX IF EXISTS idx_ads_user_id;
+
+    CREATE TABLE ads
+    (
+        id INTEGER GENERATED BY DEFAULT AS IDENTITY,
+        title VARCHAR(255),
+        description VARCHAR(255),
+        price DOUBLE PRECISION,
+        user_id INTEGER,
+        created_at TIMESTAMP NOT NULL DEFAULT now(),
+        PRIMARY KEY (id, created_at)
+    ) PARTITION BY RANGE (created_at);
+
+    EXECUTE format('ALTER TABLE ads ALTER COLUMN id SET INCREMENT BY %s RESTART WITH %s',
+                   sequence_increment, sequence_next);
+
+    SELECT date_trunc('month', COALESCE(MIN(created_at), now())) INTO partition_month FROM ads_legacy;
+    WHILE partition_month <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF ads FOR VALUES FROM (%L) TO (%L)',
+                       'ads_' || to_char(partition_month, 'YYYY_MM'),
+                       partition_month, partition_month + INTERVAL '1 month');
+        partition_month := partition_month + INTERVAL '1 month';
+    END LOOP;
+
+    INSERT INTO ads (id, title, description, price, user_id, created_at)
+    SELECT id, title, description, price, user_id, COALESCE(created_at, now())
+    FROM ads_legacy;
+    DROP TABLE ads_legacy;
+
+    CREATE INDEX idx_ads_user_id ON ads (user_id);
+    IF to_regclass('users') IS NOT NULL THEN
+        ALTER TABLE ads
+            ADD CONSTRAINT fk_ads_user_id
+                FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE;
+    END IF;
+END $$;
+
+COMMENT ON TABLE ads IS 'Таблица объявлений, секционированная по месяцам created_at';
+COMMENT ON COLUMN ads.id IS 'Идентификатор объявления';
+COMMENT ON COLUMN ads.title IS 'Заголовок объявления';
+COMMENT ON COLUMN ads.description IS 'Описание объявления';
+COMMENT ON COLUMN ads.price IS 'Цена объявления';
+COMMENT ON COLUMN ads.user_id IS 'Идентификатор пользователя, создавшего объявление';
+COMMENT ON COLUMN ads.created_at IS 'Дата и время создания объявления, ключ секционирования';
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+--changeset username:2026-10-18_ads_version labels:ads
+
+ALTER TABLE ads ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+COMMENT ON COLUMN ads.version IS 'Версия объявления для оптимистической блокировки';
+
+--rollback ALTER TABLE ads DROP COLUMN version;
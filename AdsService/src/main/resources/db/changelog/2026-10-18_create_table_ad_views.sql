@@ -0,0 +1,18 @@
+--liquibase formatted sql
+--changeset username:2026-10-18_create_table_ad_views labels:ads
+
+CREATE TABLE ad_views
+(
+    ad_id INTEGER PRIMARY KEY,
+    views BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_ad_views_views ON ad_views (views DESC);
+
+COMMENT ON TABLE ad_views IS 'Счётчики просмотров объявлений';
+COMMENT ON COLUMN ad_views.ad_id IS 'Идентификатор объявления';
+COMMENT ON COLUMN ad_views.views IS 'Число просмотров';
+COMMENT ON COLUMN ad_views.updated_at IS 'Время последнего сброса счётчика в БД';
+
+--rollback DROP TABLE ad_views;
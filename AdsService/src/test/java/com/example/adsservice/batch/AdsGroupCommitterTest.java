@@ -0,0 +1,135 @@
+package com.example.adsservice.batch;
+
+import com.example.adsservice.datasource.DataSourceRoutingProperties;
+import com.example.adsservice.datasource.ReadYourWritesTracker;
+import com.example.adsservice.exception.AdsException;
+import com.example.adsservice.model.entity.Ads;
+import com.example.adsservice.sharding.ShardRouter;
+import com.example.adsservice.sharding.ShardingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdsGroupCommitterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdsGroupCommitter committer;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        committer.destroy();
+    }
+
+    @Test
+    void insertStillQueuedAfterTimeoutIsCancelledAndNeverWritten() throws InterruptedException {
+        committer = start(Duration.ofMillis(500), Duration.ofMillis(50));
+
+        assertThatThrownBy(() -> committer.insert(0, ad()))
+                .isInstanceOf(AdsException.class)
+                .hasMessageContaining("не сохранено");
+        // остановка дожидается потока шарда и дописывает всё, что осталось в очереди
+        committer.destroy();
+
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(Integer.class), anyInt());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), ArgumentMatchers.<Collection<Object>>any(), anyInt(),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<Object>>any());
+        assertThat(meterRegistry.counter("ads.batch.cancelled", "shard", "0").count()).isEqualTo(1);
+    }
+
+    @Test
+    @Timeout(10)
+    void insertAlreadyBeingWrittenIsReportedAfterTimeout() throws InterruptedException {
+        committer = start(Duration.ZERO, Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), anyInt())).thenAnswer(invocation -> {
+            release.await();
+            return List.of(42);
+        });
+        AtomicReference<Ads> saved = new AtomicReference<>();
+        Thread caller = new Thread(() -> saved.set(committer.insert(0, ad())));
+        caller.start();
+
+        // ограниченное ожидание идёт в TIMED_WAITING, неограниченное после таймаута - в WAITING
+        while (caller.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        caller.join();
+
+        assertThat(saved.get().getId()).isEqualTo(42);
+        assertThat(saved.get().getVersion()).isZero();
+        assertThat(meterRegistry.counter("ads.batch.cancelled", "shard", "0").count()).isZero();
+    }
+
+    @Test
+    @Timeout(10)
+    void failedBatchIsRetriedRowByRowWithoutRecordingQueueDelayTwice() {
+        committer = start(Duration.ofSeconds(5), Duration.ofSeconds(5), 2);
+        AtomicInteger nextId = new AtomicInteger(100);
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), anyInt())).thenAnswer(invocation -> {
+            if ((int) invocation.getArgument(2) > 1) {
+                throw new DataIntegrityViolationException("bad row");
+            }
+            return List.of(nextId.incrementAndGet());
+        });
+
+        CompletableFuture<Ads> first = CompletableFuture.supplyAsync(() -> committer.insert(0, ad()));
+        CompletableFuture<Ads> second = CompletableFuture.supplyAsync(() -> committer.insert(0, ad()));
+
+        assertThat(List.of(first.join().getId(), second.join().getId())).containsExactlyInAnyOrder(101, 102);
+        assertThat(meterRegistry.timer("ads.batch.queue.delay", "shard", "0").count()).isEqualTo(2);
+        assertThat(meterRegistry.summary("ads.batch.size", "shard", "0").count()).isEqualTo(1);
+    }
+
+    private AdsGroupCommitter start(Duration maxDelay, Duration timeout) {
+        return start(maxDelay, timeout, new GroupCommitProperties().getMaxBatchSize());
+    }
+
+    private AdsGroupCommitter start(Duration maxDelay, Duration timeout, int maxBatchSize) {
+        GroupCommitProperties properties = new GroupCommitProperties();
+        properties.setEnabled(true);
+        properties.setMaxBatchSize(maxBatchSize);
+        properties.setMaxDelay(maxDelay);
+        properties.setTimeout(timeout);
+        AdsGroupCommitter started = new AdsGroupCommitter(properties, jdbcTemplate, mock(PlatformTransactionManager.class),
+                new ShardRouter(new ShardingProperties(), mock(PlatformTransactionManager.class),
+                new ReadYourWritesTracker(new DataSourceRoutingProperties())), meterRegistry);
+        started.afterPropertiesSet();
+        return started;
+    }
+
+    private static Ads ad() {
+        Ads ad = new Ads();
+        ad.setTitle("Велосипед");
+        ad.setUserId(1);
+        ad.setPrice(100.0);
+        ad.setCreatedAt(LocalDateTime.now());
+        return ad;
+    }
+}
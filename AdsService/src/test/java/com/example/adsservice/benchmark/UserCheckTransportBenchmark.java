@@ -0,0 +1,88 @@
+package com.example.adsservice.benchmark;
+
+import com.example.adsservice.client.GrpcUserServiceClient;
+import com.example.adsservice.client.RestUserServiceClient;
+import com.example.adsservice.client.UserServiceBalancer;
+import com.example.adsservice.client.UserServiceClient;
+import com.example.adsservice.config.UserServiceClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сравнение REST и gRPC канала проверки пользователя. Требует запущенный UserService на localhost:
+ * {@code mvn test -Dtest=UserCheckTransportBenchmark -Dbenchmark=true -Dbenchmark.userId=1}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserCheckTransportBenchmark {
+
+    private static final int USER_ID = Integer.getInteger("benchmark.userId", 1);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final int CALLS_PER_THREAD = Integer.getInteger("benchmark.calls", 2_000);
+    private static final int WARMUP_CALLS = 2_000;
+
+    @Test
+    void compareTransports() throws Exception {
+        UserServiceClientProperties restProperties = new UserServiceClientProperties();
+        restProperties.setTransport(UserServiceClientProperties.Transport.REST);
+        UserServiceClientProperties grpcProperties = new UserServiceClientProperties();
+        UserServiceBalancer restBalancer = balancer(restProperties);
+        UserServiceBalancer grpcBalancer = balancer(grpcProperties);
+        try {
+            run("rest", new RestUserServiceClient(new RestTemplate(), restBalancer));
+            run("grpc", new GrpcUserServiceClient(grpcBalancer, grpcProperties));
+        } finally {
+            restBalancer.destroy();
+            grpcBalancer.destroy();
+        }
+    }
+
+    private static UserServiceBalancer balancer(UserServiceClientProperties properties) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        return new UserServiceBalancer(properties, scheduler, new SimpleMeterRegistry());
+    }
+
+    private void run(String name, UserServiceClient client) throws Exception {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            client.checkUserExists(USER_ID);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> futures = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                long[] latencies = new long[CALLS_PER_THREAD];
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    long callStarted = System.nanoTime();
+                    client.checkUserExists(USER_ID);
+                    latencies[i] = System.nanoTime() - callStarted;
+                }
+                return latencies;
+            }));
+        }
+        long[] all = new long[THREADS * CALLS_PER_THREAD];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        Arrays.sort(all);
+        System.out.printf("%-4s calls=%d throughput=%.0f/s p50=%.3fms p99=%.3fms max=%.3fms%n",
+                name, all.length, all.length / (elapsed / 1e9),
+                all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6);
+    }
+}
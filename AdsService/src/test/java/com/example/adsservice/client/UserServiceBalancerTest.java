@@ -0,0 +1,113 @@
+package com.example.adsservice.client;
+
+import com.example.adsservice.config.UserServiceClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class UserServiceBalancerTest {
+
+    private final UserServiceClientProperties properties = new UserServiceClientProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    UserServiceBalancerTest() {
+        properties.setTransport(UserServiceClientProperties.Transport.REST);
+        UserServiceClientProperties.LoadBalancer config = properties.getLoadBalancer();
+        config.getHealthCheck().setEnabled(false);
+        config.setSlowStart(Duration.ZERO);
+        config.getOutlierDetection().setConsecutiveFailures(2);
+    }
+
+    @Test
+    void callGoesToLessLoadedInstance() {
+        UserServiceBalancer balancer = balancer("http://a", "http://b");
+
+        // пока первый вызов не завершён, его экземпляр загружен сильнее
+        String[] nested = new String[1];
+        String outer = balancer.call(first -> {
+            nested[0] = balancer.call(UserServiceInstance::getRestUrl, e -> true);
+            return first.getRestUrl();
+        }, e -> true);
+
+        assertThat(nested[0]).isNotEqualTo(outer);
+    }
+
+    @Test
+    void leastOutstandingAvoidsAllBusyInstances() {
+        properties.getLoadBalancer().setStrategy(UserServiceClientProperties.LoadBalancer.Strategy.LEAST_OUTSTANDING);
+        UserServiceBalancer balancer = balancer("http://a", "http://b", "http://c");
+
+        List<String> chosen = new ArrayList<>();
+        balancer.call(a -> {
+            chosen.add(a.getRestUrl());
+            return balancer.call(b -> {
+                chosen.add(b.getRestUrl());
+                return balancer.call(c -> chosen.add(c.getRestUrl()), e -> true);
+            }, e -> true);
+        }, e -> true);
+
+        assertThat(chosen).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void instanceFailuresEjectUpToMaxEjectionPercent() {
+        UserServiceBalancer balancer = balancer("http://a", "http://b");
+        for (int i = 0; i < 20; i++) {
+            failOnce(balancer);
+        }
+
+        // 50% от двух экземпляров - исключается только один, второй продолжает получать вызовы
+        assertThat(meterRegistry.counter("ads.user-service.balancer",
+                "policy", "outlier-detection", "decision", "ejected").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("ads.user-service.balancer",
+                "policy", "outlier-detection", "decision", "ejection-skipped").count()).isPositive();
+        List<String> chosen = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            chosen.add(balancer.call(UserServiceInstance::getRestUrl, e -> true));
+        }
+        assertThat(chosen).containsOnly(chosen.get(0));
+    }
+
+    @Test
+    void applicationErrorsDoNotEject() {
+        UserServiceBalancer balancer = balancer("http://a", "http://b");
+        for (int i = 0; i < 20; i++) {
+            assertThatThrownBy(() -> balancer.call(instance -> {
+                throw new IllegalArgumentException("user not found");
+            }, e -> false)).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        assertThat(meterRegistry.find("ads.user-service.balancer").counter()).isNull();
+    }
+
+    @Test
+    void singleConfiguredUrlIsUsedWithoutInstancesList() {
+        properties.setRestUrl("http://single");
+        UserServiceBalancer balancer = new UserServiceBalancer(properties, mock(TaskScheduler.class), meterRegistry);
+
+        assertThat(balancer.call(UserServiceInstance::getRestUrl, e -> true)).isEqualTo("http://single");
+    }
+
+    private static void failOnce(UserServiceBalancer balancer) {
+        assertThatThrownBy(() -> balancer.call(instance -> {
+            throw new IllegalStateException("unavailable");
+        }, e -> true)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private UserServiceBalancer balancer(String... urls) {
+        for (String url : urls) {
+            UserServiceClientProperties.Instance instance = new UserServiceClientProperties.Instance();
+            instance.setRestUrl(url);
+            properties.getInstances().add(instance);
+        }
+        return new UserServiceBalancer(properties, mock(TaskScheduler.class), meterRegistry);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.adsservice.facets;
+
+import com.example.adsservice.datasource.DataSourceRoutingProperties;
+import com.example.adsservice.datasource.ReadYourWritesTracker;
+import com.example.adsservice.event.AdsChangedEvent;
+import com.example.adsservice.event.AdsExpiredEvent;
+import com.example.adsservice.exception.AdsBadRequestException;
+import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.model.dto.AdsFacetsDto;
+import com.example.adsservice.model.dto.PriceFacetDto;
+import com.example.adsservice.sharding.ShardRouter;
+import com.example.adsservice.sharding.ShardingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class AdsFacetIndexTest {
+
+    private final AdsFacetIndex index;
+
+    AdsFacetIndexTest() {
+        FacetProperties properties = new FacetProperties();
+        properties.setPriceBounds(List.of(100.0, 1_000.0));
+        index = new AdsFacetIndex(properties, mock(DataSource.class), mock(PlatformTransactionManager.class),
+                new ShardRouter(new ShardingProperties(), mock(PlatformTransactionManager.class),
+                new ReadYourWritesTracker(new DataSourceRoutingProperties())), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void priceOnBoundFallsIntoUpperBucket() {
+        add(1, "auto", 99.99);
+        add(2, "auto", 100.0);
+        add(3, "home", 999.99);
+        add(4, "home", 1_000.0);
+        add(5, "home", null);
+
+        AdsFacetsDto facets = index.query(List.of(), null, null, 10);
+
+        assertThat(facets.getTotal()).isEqualTo(5);
+        assertThat(facets.getPrices()).extracting(PriceFacetDto::getFrom).containsExactly(null, 100.0, 1_000.0);
+        assertThat(facets.getPrices()).extracting(PriceFacetDto::getTo).containsExactly(100.0, 1_000.0, null);
+        assertThat(facets.getPrices()).extracting(PriceFacetDto::getCount).containsExactly(1L, 2L, 1L);
+        assertThat(facets.getAdIds()).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void rangeCuttingBucketsChecksExactPrices() {
+        add(1, "auto", 50.0);
+        add(2, "auto", 150.0);
+        add(3, "home", 500.0);
+        add(4, "home", 999.0);
+        add(5, "auto", 5_000.0);
+
+        // минимум включительно, максимум не включительно, обе границы внутри корзин
+        AdsFacetsDto facets = index.query(List.of(), 150.0, 999.0, 10);
+
+        assertThat(facets.getTotal()).isEqualTo(2);
+        assertThat(facets.getAdIds()).containsExactly(2, 3);
+        assertThat(facets.getCategories()).containsEntry("auto", 1L).containsEntry("home", 1L);
+        // ценовые счётчики не сужаются собственным фильтром по цене
+        assertThat(facets.getPrices()).extracting(PriceFacetDto::getCount).containsExactly(1L, 3L, 1L);
+    }
+
+    @Test
+    void rangeAlignedWithBoundsUsesWholeBuckets() {
+        add(1, "auto", 99.0);
+        add(2, "auto", 100.0);
+        add(3, "home", 999.0);
+        add(4, "home", 1_000.0);
+
+        AdsFacetsDto facets = index.query(List.of(), 100.0, 1_000.0, 10);
+
+        assertThat(facets.getAdIds()).containsExactly(2, 3);
+    }
+
+    @Test
+    void categoryFilterNarrowsPriceCountsButNotCategoryCounts() {
+        add(1, "auto", 10.0);
+        add(2, "auto", 500.0);
+        add(3, "home", 500.0);
+        add(4, "books", 2_000.0);
+
+        AdsFacetsDto facets = index.query(List.of("auto", "missing"), null, null, 10);
+
+        assertThat(facets.getTotal()).isEqualTo(2);
+        assertThat(facets.getPrices()).extracting(PriceFacetDto::getCount).containsExactly(1L, 1L, 0L);
+        assertThat(facets.getCategories()).containsEntry("auto", 2L).containsEntry("home", 1L).containsEntry("books", 1L);
+    }
+
+    @Test
+    void priceChangeMovesAdBetweenBuckets() {
+        AdsDto before = ad(1, "auto", 500.0);
+        index.onAdsChanged(AdsChangedEvent.created(before));
+        AdsDto after = ad(1, "auto", 5_000.0);
+        index.onAdsChanged(AdsChangedEvent.updated(before, after));
+
+        assertThat(index.query(List.of(), 400.0, 600.0, 10).getTotal()).isZero();
+        assertThat(index.query(List.of(), 4_000.0, 6_000.0, 10).getAdIds()).containsExactly(1);
+        assertThat(index.query(List.of(), null, null, 10).getPrices())
+                .extracting(PriceFacetDto::getCount).containsExactly(0L, 0L, 1L);
+    }
+
+    @Test
+    void deletedAndExpiredAdsLeaveAllFacets() {
+        AdsDto deleted = ad(1, "auto", 500.0);
+        AdsDto expired = ad(2, "home", 600.0);
+        index.onAdsChanged(AdsChangedEvent.created(deleted));
+        index.onAdsChanged(AdsChangedEvent.created(expired));
+        add(3, "home", 700.0);
+
+        index.onAdsChanged(AdsChangedEvent.deleted(deleted));
+        index.onAdsExpired(new AdsExpiredEvent(0, "ads_2026_09", List.of(expired)));
+
+        AdsFacetsDto facets = index.query(List.of(), 550.0, 800.0, 10);
+        assertThat(facets.getAdIds()).containsExactly(3);
+        assertThat(facets.getCategories()).doesNotContainKey("auto").containsEntry("home", 1L);
+    }
+
+    @Test
+    void idsAreLimitedInAscendingOrder() {
+        for (int id = 20; id > 0; id--) {
+            add(id, "auto", (double) id);
+        }
+
+        assertThat(index.query(List.of(), null, null, 3).getAdIds()).containsExactly(1, 2, 3);
+        assertThat(index.query(List.of(), null, null, 0).getAdIds()).isEmpty();
+    }
+
+    @Test
+    void invalidFilterIsBadRequest() {
+        assertThatThrownBy(() -> index.query(List.of(), 500.0, 100.0, 10)).isInstanceOf(AdsBadRequestException.class);
+        assertThatThrownBy(() -> index.query(List.of(), null, null, -1)).isInstanceOf(AdsBadRequestException.class);
+        assertThatThrownBy(() -> index.query(List.of(), null, null, 10_001)).isInstanceOf(AdsBadRequestException.class);
+    }
+
+    private void add(int id, String category, Double price) {
+        index.onAdsChanged(AdsChangedEvent.created(ad(id, category, price)));
+    }
+
+    private static AdsDto ad(int id, String category, Double price) {
+        return AdsDto.builder().id(id).category(category).price(price).userId(1).version(0L).build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.adsservice.facets;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntDoubleHashMapTest {
+
+    @Test
+    void putGetAndRemoveIncludingZeroKey() {
+        IntDoubleHashMap map = new IntDoubleHashMap();
+        map.put(0, 1.5);
+        map.put(7, 2.5);
+        map.put(7, 3.5);
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(0)).isEqualTo(1.5);
+        assertThat(map.get(7)).isEqualTo(3.5);
+        assertThat(map.get(8)).isNaN();
+
+        assertThat(map.remove(0)).isTrue();
+        assertThat(map.remove(0)).isFalse();
+        assertThat(map.remove(8)).isFalse();
+        assertThat(map.get(0)).isNaN();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void removalKeepsCollidingKeysReachable() {
+        // после рехэшей и удалений из середины цепочек все оставшиеся ключи должны находиться
+        IntDoubleHashMap map = new IntDoubleHashMap(4);
+        Map<Integer, Double> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key) != null);
+            } else {
+                map.put(key, i);
+                expected.put(key, (double) i);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+        Map<Integer, Double> iterated = new HashMap<>();
+        map.forEach(iterated::put);
+        assertThat(iterated).isEqualTo(expected);
+    }
+}
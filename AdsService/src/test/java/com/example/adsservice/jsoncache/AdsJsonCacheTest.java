@@ -0,0 +1,59 @@
+package com.example.adsservice.jsoncache;
+
+import com.example.adsservice.model.dto.AdsDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdsJsonCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JsonCacheProperties properties = new JsonCacheProperties();
+
+    @Test
+    void cachedFragmentIsServedOnlyForTheSameVersion() throws IOException {
+        AdsJsonCache cache = new AdsJsonCache(properties, objectMapper, meterRegistry);
+        List<AdsDto> ads = List.of(ad(1, 0), ad(2, 0));
+
+        assertThat(write(cache, ads)).isEqualTo(objectMapper.writeValueAsString(ads));
+        assertThat(write(cache, ads)).isEqualTo(objectMapper.writeValueAsString(ads));
+        assertThat(meterRegistry.counter("ads.json.cache.hits").count()).isEqualTo(2);
+
+        List<AdsDto> updated = List.of(ad(1, 1), ad(2, 0));
+        assertThat(write(cache, updated)).isEqualTo(objectMapper.writeValueAsString(updated));
+        assertThat(meterRegistry.counter("ads.json.cache.misses").count()).isEqualTo(3);
+    }
+
+    @Test
+    void sizeStaysWithinLimit() throws IOException {
+        properties.setMaxSize(DataSize.ofKilobytes(64));
+        AdsJsonCache cache = new AdsJsonCache(properties, objectMapper, meterRegistry);
+        List<AdsDto> ads = new ArrayList<>();
+        for (int id = 1; id <= 5_000; id++) {
+            ads.add(ad(id, 0));
+        }
+
+        assertThat(write(cache, ads)).isEqualTo(objectMapper.writeValueAsString(ads));
+        double size = meterRegistry.get("ads.json.cache.size").gauge().value();
+        assertThat(size).isPositive().isLessThanOrEqualTo(DataSize.ofKilobytes(64).toBytes());
+    }
+
+    private static String write(AdsJsonCache cache, List<AdsDto> ads) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.writeArray(ads, out);
+        return out.toString("UTF-8");
+    }
+
+    private static AdsDto ad(int id, long version) {
+        return AdsDto.builder().id(id).title("Объявление " + id).userId(1).price(100.0 + id).version(version).build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.adsservice.sharding;
+
+import com.example.adsservice.datasource.DataSourceRoutingProperties;
+import com.example.adsservice.datasource.ReadYourWritesTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardRouterTest {
+
+    private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(new DataSourceRoutingProperties());
+    private final StubTransactionManager transactionManager = new StubTransactionManager();
+    private final ShardRouter router = new ShardRouter(twoShards(), transactionManager, tracker);
+
+    @AfterEach
+    void stop() {
+        router.destroy();
+        tracker.clearCurrentUser();
+    }
+
+    @Test
+    void readOnlyTransactionAndUserReachShardThreads() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        tracker.setCurrentUser(42);
+
+        List<String> seen = readOnly.execute(status -> router.onAllShards(shard -> describe(shard)));
+
+        assertThat(seen).containsExactly("0:true:42", "1:true:42");
+    }
+
+    @Test
+    void shardThreadsRunWithoutTransactionOutsideReadOnlyOne() {
+        List<String> seen = new TransactionTemplate(transactionManager)
+                .execute(status -> router.onAllShards(shard -> describe(shard)));
+
+        assertThat(seen).containsExactly("0:false:null", "1:false:null");
+        assertThat(router.onAllShards(shard -> describe(shard))).containsExactly("0:false:null", "1:false:null");
+    }
+
+    private String describe(int shard) {
+        assertThat(ShardContext.current()).isEqualTo(shard);
+        return shard + ":" + TransactionSynchronizationManager.isCurrentTransactionReadOnly() + ":" + tracker.getCurrentUser();
+    }
+
+    private static ShardingProperties twoShards() {
+        ShardingProperties properties = new ShardingProperties();
+        properties.setEnabled(true);
+        properties.setShards(List.of(new ShardingProperties.Shard(), new ShardingProperties.Shard()));
+        return properties;
+    }
+
+    private static final class StubTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.adsservice.snapshot;
+
+import com.example.adsservice.model.dto.AdsDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void adsRoundTripWithAllColumns() throws IOException {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 10, 18, 12, 30, 15, 123_456_000);
+        Path file = directory.resolve("shard-0.seg");
+        try (CatalogSegmentWriter writer = new CatalogSegmentWriter(file)) {
+            writer.addAd(3, 10, 1500.5, createdAt, 2, "Велосипед", "Почти новый 🚲", "sport");
+            writer.addAd(7, null, null, null, 0, null, null, null);
+            writer.addAd(9, 10, 0.0, CatalogSegment.EPOCH, 5, "", "", "books");
+            writer.finish();
+        }
+
+        CatalogSegment segment = CatalogSegment.open(file);
+        assertThat(segment.getAdCount()).isEqualTo(3);
+        assertThat(segment.getSizeInBytes()).isEqualTo(Files.size(file));
+
+        AdsDto full = segment.findById(3);
+        assertThat(full.getId()).isEqualTo(3);
+        assertThat(full.getUserId()).isEqualTo(10);
+        assertThat(full.getPrice()).isEqualTo(1500.5);
+        assertThat(full.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(full.getVersion()).isEqualTo(2);
+        assertThat(full.getTitle()).isEqualTo("Велосипед");
+        assertThat(full.getDescription()).isEqualTo("Почти новый 🚲");
+        assertThat(full.getCategory()).isEqualTo("sport");
+
+        AdsDto empty = segment.findById(7);
+        assertThat(empty.getUserId()).isNull();
+        assertThat(empty.getPrice()).isNull();
+        assertThat(empty.getCreatedAt()).isNull();
+        assertThat(empty.getTitle()).isNull();
+        assertThat(empty.getDescription()).isNull();
+        assertThat(empty.getCategory()).isNull();
+
+        AdsDto blank = segment.findById(9);
+        assertThat(blank.getTitle()).isEmpty();
+        assertThat(blank.getPrice()).isZero();
+        assertThat(blank.getCreatedAt()).isEqualTo(CatalogSegment.EPOCH);
+
+        assertThat(segment.findById(1)).isNull();
+        assertThat(segment.findById(8)).isNull();
+        assertThat(segment.findById(10)).isNull();
+    }
+
+    @Test
+    void userIndexReturnsRowsOfEachUser() throws IOException {
+        Path file = directory.resolve("shard-1.seg");
+        int ads = 1_000;
+        try (CatalogSegmentWriter writer = new CatalogSegmentWriter(file)) {
+            for (int row = 0; row < ads; row++) {
+                writer.addAd(row + 1, row % 7, (double) row, null, 0, "ad " + (row + 1), null, null);
+            }
+            // строки индекса - по возрастанию user_id
+            for (int user = 0; user < 7; user++) {
+                for (int row = user; row < ads; row += 7) {
+                    writer.addUserRow(user, row);
+                }
+            }
+            writer.finish();
+        }
+
+        CatalogSegment segment = CatalogSegment.open(file);
+        for (int user = 0; user < 7; user++) {
+            int expectedUser = user;
+            List<AdsDto> userAds = segment.findByUserId(user);
+            assertThat(userAds).hasSize((ads - user + 6) / 7);
+            assertThat(userAds).allSatisfy(ad -> assertThat(ad.getUserId()).isEqualTo(expectedUser));
+            assertThat(userAds).extracting(AdsDto::getTitle).contains("ad " + (user + 1));
+        }
+        assertThat(segment.findByUserId(7)).isEmpty();
+        assertThat(segment.findByUserId(-1)).isEmpty();
+    }
+
+    @Test
+    void emptySegmentHasNoAds() throws IOException {
+        Path file = directory.resolve("empty.seg");
+        try (CatalogSegmentWriter writer = new CatalogSegmentWriter(file)) {
+            writer.finish();
+        }
+
+        CatalogSegment segment = CatalogSegment.open(file);
+        assertThat(segment.getAdCount()).isZero();
+        assertThat(segment.findById(1)).isNull();
+        assertThat(segment.findByUserId(1)).isEmpty();
+    }
+
+    @Test
+    void writerLeavesOnlyTheSegmentFile() throws IOException {
+        Path file = directory.resolve("shard-2.seg");
+        try (CatalogSegmentWriter writer = new CatalogSegmentWriter(file)) {
+            writer.addAd(1, 1, 1.0, null, 0, "a", "b", "c");
+            writer.addUserRow(1, 0);
+            writer.finish();
+        }
+
+        assertThat(files()).containsExactly("shard-2.seg");
+    }
+
+    @Test
+    void unfinishedWriterRemovesItsFiles() throws IOException {
+        Path file = directory.resolve("shard-3.seg");
+        try (CatalogSegmentWriter writer = new CatalogSegmentWriter(file)) {
+            writer.addAd(1, 1, 1.0, null, 0, "a", "b", "c");
+        }
+
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void foreignFileIsRejected() throws IOException {
+        Path file = directory.resolve("foreign.seg");
+        Files.write(file, new byte[CatalogSegment.HEADER_SIZE]);
+
+        assertThatThrownBy(() -> CatalogSegment.open(file)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.adsservice.stats;
+
+import com.example.adsservice.event.AdsChangedEvent;
+import com.example.adsservice.model.dto.AdsDto;
+import com.example.adsservice.model.dto.AdsStatsDto;
+import com.example.adsservice.sharding.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AdsStatisticsTest {
+
+    private final AdsStatistics statistics = new AdsStatistics(mock(DataSource.class),
+            mock(PlatformTransactionManager.class), mock(ShardRouter.class));
+
+    @Test
+    void adWithoutUserCountsOnlyInTotals() {
+        statistics.onAdsChanged(AdsChangedEvent.created(ad(1, null, 100.0)));
+        statistics.onAdsChanged(AdsChangedEvent.created(ad(2, 7, 300.0)));
+
+        AdsStatsDto stats = statistics.getStats(List.of(0.5));
+        assertThat(stats.getTotalAds()).isEqualTo(2);
+        assertThat(stats.getPricedAds()).isEqualTo(2);
+        assertThat(stats.getUsersWithAds()).isEqualTo(1);
+        assertThat(stats.getAverageAdsPerUser()).isEqualTo(1.0);
+        assertThat(statistics.getUserStats(0, List.of(0.5)).getTotalAds()).isZero();
+
+        statistics.onAdsChanged(AdsChangedEvent.deleted(ad(1, null, 100.0)));
+
+        stats = statistics.getStats(List.of(0.5));
+        assertThat(stats.getTotalAds()).isEqualTo(1);
+        assertThat(stats.getPricedAds()).isEqualTo(1);
+        assertThat(stats.getUsersWithAds()).isEqualTo(1);
+    }
+
+    private static AdsDto ad(int id, Integer userId, Double price) {
+        return AdsDto.builder().id(id).userId(userId).price(price).build();
+    }
+}
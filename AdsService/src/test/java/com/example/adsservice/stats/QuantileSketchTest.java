@@ -0,0 +1,113 @@
+package com.example.adsservice.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.01;
+    private static final double[] QUANTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1};
+
+    @Test
+    void quantilesStayWithinRelativeAccuracyOfExactRank() {
+        Random random = new Random(7);
+        double[] values = new double[50_000];
+        for (int i = 0; i < values.length; i++) {
+            // цены с тяжёлым хвостом от копеек до миллионов
+            values[i] = Math.exp(random.nextGaussian() * 3 + 8);
+        }
+        assertWithinAccuracy(sketchOf(values), values);
+    }
+
+    @Test
+    void negativeZeroAndPositiveValuesAreRankedTogether() {
+        Random random = new Random(11);
+        double[] values = new double[20_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 10 == 0 ? 0 : random.nextGaussian() * 1000;
+        }
+        assertWithinAccuracy(sketchOf(values), values);
+    }
+
+    @Test
+    void removedValuesNoLongerAffectQuantiles() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        List<Double> kept = new ArrayList<>();
+        for (int i = 1; i <= 10_000; i++) {
+            sketch.add(i);
+            if (i % 2 == 0) {
+                kept.add((double) i);
+            }
+        }
+        for (int i = 1; i <= 10_000; i += 2) {
+            sketch.remove(i);
+        }
+
+        assertThat(sketch.getCount()).isEqualTo(kept.size());
+        assertThat(sketch.getSum()).isEqualTo(kept.stream().mapToDouble(Double::doubleValue).sum());
+        assertWithinAccuracy(sketch, kept.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    @Test
+    void mergedSketchMatchesSketchOfAllValues() {
+        Random random = new Random(3);
+        double[] values = new double[30_000];
+        QuantileSketch left = new QuantileSketch(ACCURACY);
+        QuantileSketch right = new QuantileSketch(ACCURACY);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * (i < values.length / 2 ? 100 : 1_000_000);
+            (i % 3 == 0 ? left : right).add(values[i]);
+        }
+        left.merge(right);
+
+        QuantileSketch all = sketchOf(values);
+        assertThat(left.getCount()).isEqualTo(values.length);
+        for (double q : QUANTILES) {
+            assertThat(left.quantile(q)).isEqualTo(all.quantile(q));
+        }
+        assertWithinAccuracy(left, values);
+    }
+
+    @Test
+    void emptySketchAndInvalidArguments() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        assertThat(sketch.quantile(0.5)).isNaN();
+        assertThat(sketch.getAverage()).isNaN();
+
+        sketch.add(Double.NaN);
+        sketch.add(Double.POSITIVE_INFINITY);
+        assertThat(sketch.getCount()).isZero();
+
+        assertThatThrownBy(() -> new QuantileSketch(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new QuantileSketch(1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> sketch.merge(new QuantileSketch(0.05))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static QuantileSketch sketchOf(double[] values) {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        for (double value : values) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+
+    // точный квантиль берётся с тем же рангом, что и в скетче: floor(q * (n - 1))
+    private static void assertWithinAccuracy(QuantileSketch sketch, double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) (q * (sorted.length - 1))];
+            double estimate = sketch.quantile(q);
+            assertThat(Math.abs(estimate - exact))
+                    .as("quantile %s: estimate %s, exact %s", q, estimate, exact)
+                    .isLessThanOrEqualTo(ACCURACY * Math.abs(exact) + 1e-9);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.adsservice.views;
+
+import com.example.adsservice.datasource.DataSourceRoutingProperties;
+import com.example.adsservice.datasource.ReadYourWritesTracker;
+import com.example.adsservice.model.dto.AdViewsDto;
+import com.example.adsservice.sharding.ShardRouter;
+import com.example.adsservice.sharding.ShardingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdViewCounterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AdViewCounter counter = new AdViewCounter(new ViewCountingProperties(), jdbcTemplate,
+            new ShardRouter(new ShardingProperties(), mock(PlatformTransactionManager.class),
+                new ReadYourWritesTracker(new DataSourceRoutingProperties())), mock(TaskScheduler.class), mock(PlatformTransactionManager.class));
+
+    @Test
+    void failedFlushIsOfferedToHotAdsOnlyOnceAfterRetrySucceeds() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("shard is down"))
+                .thenReturn(new int[]{1});
+        counter.recordView(7);
+        counter.recordView(7);
+        counter.recordView(7);
+
+        counter.flush();
+        assertThat(counter.getHotAds(10)).isEmpty();
+
+        counter.flush();
+        List<AdViewsDto> hot = counter.getHotAds(10);
+        assertThat(hot).hasSize(1);
+        assertThat(hot.get(0).getAdId()).isEqualTo(7);
+        assertThat(hot.get(0).getViews()).isEqualTo(3);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    void successfulFlushCountsEachViewOnce() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenReturn(new int[]{1, 1});
+        counter.recordView(1);
+        counter.recordView(2);
+        counter.recordView(2);
+
+        counter.flush();
+        counter.flush();
+
+        List<AdViewsDto> hot = counter.getHotAds(10);
+        assertThat(hot).extracting(AdViewsDto::getAdId).containsExactly(2, 1);
+        assertThat(hot).extracting(AdViewsDto::getViews).containsExactly(2L, 1L);
+        // второй сброс пустой и в БД не ходит
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    void viewsOfAdDeletedBeforeFlushAreNotOfferedToHotAds() {
+        // строки сортируются по id, upsert для удалённого объявления 2 ничего не вставляет
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenReturn(new int[]{1, 0});
+        counter.recordView(1);
+        counter.recordView(2);
+
+        counter.flush();
+
+        assertThat(counter.getHotAds(10)).extracting(AdViewsDto::getAdId).containsExactly(1);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.adsservice.views;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntLongHashMapTest {
+
+    @Test
+    void addToAccumulatesIncludingZeroKey() {
+        IntLongHashMap map = new IntLongHashMap();
+        map.addTo(0, 2);
+        map.addTo(0, 3);
+        map.addTo(42, 1);
+        map.addTo(42, 1);
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(0)).isEqualTo(5);
+        assertThat(map.get(42)).isEqualTo(2);
+        assertThat(map.get(43)).isZero();
+        assertThat(new IntLongHashMap().isEmpty()).isTrue();
+    }
+
+    @Test
+    void growsPastInitialCapacityWithoutLosingEntries() {
+        IntLongHashMap map = new IntLongHashMap(4);
+        for (int key = 1; key <= 100_000; key++) {
+            map.addTo(key, key);
+        }
+
+        assertThat(map.size()).isEqualTo(100_000);
+        for (int key = 1; key <= 100_000; key++) {
+            assertThat(map.get(key)).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void collidingKeysAreKeptApart() {
+        // ключи, кратные степени двойки, без перемешивания попали бы в одну ячейку
+        IntLongHashMap map = new IntLongHashMap(16);
+        Map<Integer, Long> expected = new HashMap<>();
+        for (int i = 1; i <= 5_000; i++) {
+            int key = i << 16;
+            map.addTo(key, i);
+            map.addTo(-key, 1);
+            expected.merge(key, (long) i, Long::sum);
+            expected.merge(-key, 1L, Long::sum);
+        }
+
+        Map<Integer, Long> iterated = new HashMap<>();
+        map.forEach(iterated::put);
+        assertThat(iterated).isEqualTo(expected);
+        assertThat(map.size()).isEqualTo(expected.size());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.adsservice.views;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsAreExactWhileKeysFitCapacity() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        sketch.offer(1, 5);
+        sketch.offer(2, 3);
+        sketch.offer(1, 2);
+        sketch.offer(3, 1);
+
+        List<SpaceSaving.Counter> top = sketch.top(10);
+        assertThat(top).extracting(SpaceSaving.Counter::getKey).containsExactly(1, 2, 3);
+        assertThat(top).extracting(SpaceSaving.Counter::getCount).containsExactly(7L, 3L, 1L);
+        assertThat(top).allSatisfy(counter -> assertThat(counter.getError()).isZero());
+        assertThat(sketch.top(2)).hasSize(2);
+    }
+
+    @Test
+    void heavyHittersAreKeptWithBoundedOverestimate() {
+        int capacity = 50;
+        SpaceSaving sketch = new SpaceSaving(capacity);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(5);
+        long total = 0;
+        for (int i = 0; i < 200_000; i++) {
+            // распределение с тяжёлым хвостом: несколько горячих объявлений и много холодных
+            int key = (int) Math.floor(Math.pow(10_000, random.nextDouble()));
+            sketch.offer(key, 1);
+            exact.merge(key, 1L, Long::sum);
+            total++;
+        }
+
+        long bound = total / capacity;
+        List<SpaceSaving.Counter> top = sketch.top(capacity);
+        assertThat(top).hasSize(capacity);
+        for (SpaceSaving.Counter counter : top) {
+            long trueCount = exact.getOrDefault(counter.getKey(), 0L);
+            assertThat(counter.getCount()).isGreaterThanOrEqualTo(trueCount);
+            assertThat(counter.getCount() - counter.getError()).isLessThanOrEqualTo(trueCount);
+            assertThat(counter.getError()).isLessThanOrEqualTo(bound);
+        }
+        // каждый ключ чаще total / capacity обязан быть среди счётчиков
+        exact.forEach((key, count) -> {
+            if (count > bound) {
+                assertThat(top).extracting(SpaceSaving.Counter::getKey).contains(key);
+            }
+        });
+    }
+
+    @Test
+    void evictedKeyInheritsMinimumCountAsError() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        sketch.offer(1, 10);
+        sketch.offer(2, 4);
+        sketch.offer(3, 1);
+
+        List<SpaceSaving.Counter> top = sketch.top(2);
+        assertThat(top).extracting(SpaceSaving.Counter::getKey).containsExactly(1, 3);
+        assertThat(top.get(1).getCount()).isEqualTo(5);
+        assertThat(top.get(1).getError()).isEqualTo(4);
+    }
+
+    @Test
+    void removedKeyFreesItsCounter() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        sketch.offer(1, 10);
+        sketch.offer(2, 4);
+        sketch.remove(2);
+        sketch.offer(3, 1);
+
+        List<SpaceSaving.Counter> top = sketch.top(2);
+        assertThat(top).extracting(SpaceSaving.Counter::getKey).containsExactly(1, 3);
+        assertThat(top.get(1).getError()).isZero();
+    }
+
+    @Test
+    void capacityMustBePositive() {
+        assertThatThrownBy(() -> new SpaceSaving(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
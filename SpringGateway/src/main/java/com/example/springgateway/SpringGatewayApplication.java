@@ -2,11 +2,16 @@ package com.example.springgateway;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 
 public class SpringGatewayApplication {
     public static void main(String[] args) {
-        SpringApplication.run(SpringGatewayApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(SpringGatewayApplication.class, args);
+        if (context.getEnvironment().getProperty("gateway.cds.training-run", Boolean.class, false)) {
+            // обучающий запуск профиля cds: классы старта загружены, JVM пишет архив при выходе
+            System.exit(SpringApplication.exit(context));
+        }
     }
 }
\ No newline at end of file
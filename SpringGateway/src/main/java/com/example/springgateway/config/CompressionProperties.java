@@ -0,0 +1,27 @@
+package com.example.springgateway.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "gateway.compression")
+public class CompressionProperties {
+
+    private boolean enabled = true;
+    // ответы с известной длиной меньше порога не сжимаются
+    private DataSize minResponseSize = DataSize.ofKilobytes(1);
+    private List<String> mimeTypes = new ArrayList<>(List.of(
+            "application/json", "application/*+json", "application/xml", "application/javascript",
+            "text/html", "text/plain", "text/css", "text/xml"));
+    // кодировки в порядке предпочтения шлюза
+    private List<String> encodings = new ArrayList<>(List.of("gzip", "deflate"));
+    private int level = 6;
+    // при загрузке CPU выше порога ответы отдаются без сжатия
+    private double maxCpuLoad = 0.85;
+}
@@ -0,0 +1,10 @@
+package com.example.springgateway.config;
+
+import com.example.springgateway.feed.FeedProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(FeedProperties.class)
+public class FeedConfig {
+}
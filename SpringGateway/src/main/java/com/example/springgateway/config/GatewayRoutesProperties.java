@@ -0,0 +1,140 @@
+package com.example.springgateway.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "gateway")
+public class GatewayRoutesProperties {
+
+    private Map<String, Route> routes = new LinkedHashMap<>();
+    // заголовки запроса клиента, которые передаются сервисам; условные - как есть, ответ 304 уходит клиенту
+    private List<String> forwardedHeaders = new ArrayList<>(List.of("X-User-Id", "Accept", "Accept-Language",
+            "If-None-Match", "If-Match"));
+    private DataSize maxResponseSize = DataSize.ofMegabytes(16);
+    // сколько объявлений можно запросить за раз через GET /ads?ids=; совпадает с пределом AdsService
+    private int maxMultiGetIds = 200;
+    private Upstream upstream = new Upstream();
+
+    @Getter
+    @Setter
+    public static class Upstream {
+
+        public enum Protocol {
+            H2C, HTTP11
+        }
+
+        // H2C - HTTP/2 без TLS сразу, HTTP11 - HTTP/1.1; оба вместе - HTTP/1.1 с Upgrade до h2c
+        private List<Protocol> protocols = new ArrayList<>(List.of(Protocol.H2C));
+        // HTTP/2: соединений на экземпляр и потоков на соединение
+        private int h2MaxConnections = 2;
+        private int h2MaxConcurrentStreams = 100;
+        // HTTP/1.1: размер пула на экземпляр
+        private int http1MaxConnections = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+    }
+
+    @Getter
+    @Setter
+    public static class Route {
+        // адреса экземпляров сервиса, например http://localhost:8080
+        private List<String> instances = new ArrayList<>();
+        private LoadBalancer loadBalancer = new LoadBalancer();
+        // общий бюджет на запрос с учётом повторов и хеджирования
+        private Duration timeout = Duration.ofSeconds(5);
+        private Retry retry = new Retry();
+        private Hedge hedge = new Hedge();
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+        private Coalescing coalescing = new Coalescing();
+    }
+
+    @Getter
+    @Setter
+    public static class LoadBalancer {
+
+        public enum Strategy {
+            POWER_OF_TWO_CHOICES, LEAST_OUTSTANDING
+        }
+
+        private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+        // за это время вес вернувшегося в строй экземпляра растёт от minWeight до 1
+        private Duration slowStart = Duration.ofSeconds(30);
+        private double minWeight = 0.1;
+        private HealthCheck healthCheck = new HealthCheck();
+        private OutlierDetection outlierDetection = new OutlierDetection();
+    }
+
+    @Getter
+    @Setter
+    public static class HealthCheck {
+        private boolean enabled = true;
+        // экземпляр считается живым при любом ответе кроме 5xx
+        private String path = "/actuator/health";
+        private Duration interval = Duration.ofSeconds(5);
+        private Duration timeout = Duration.ofSeconds(1);
+        private int healthyThreshold = 2;
+        private int unhealthyThreshold = 3;
+    }
+
+    @Getter
+    @Setter
+    public static class OutlierDetection {
+        private boolean enabled = true;
+        private int consecutiveFailures = 5;
+        // время исключения растёт с каждым повторным исключением экземпляра
+        private Duration baseEjectionTime = Duration.ofSeconds(30);
+        private int maxEjectionPercent = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class Retry {
+        private boolean enabled = true;
+        private int maxAttempts = 3;
+        private Duration initialBackoff = Duration.ofMillis(50);
+        private Duration maxBackoff = Duration.ofMillis(500);
+        private double jitter = 0.5;
+        private Set<HttpMethod> methods = Set.of(HttpMethod.GET);
+        private Set<Integer> statuses = Set.of(502, 503, 504);
+    }
+
+    @Getter
+    @Setter
+    public static class Hedge {
+        private boolean enabled = false;
+        // фиксированная задержка; если не задана - p95 задержки ответов маршрута
+        private Duration delay;
+        private Duration minDelay = Duration.ofMillis(10);
+        private Duration initialDelay = Duration.ofMillis(100);
+    }
+
+    @Getter
+    @Setter
+    public static class Coalescing {
+        private boolean enabled = true;
+        // сколько ожидающий ждёт чужой ответ, прежде чем отправить свой запрос
+        private Duration maxWait = Duration.ofSeconds(2);
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        private int slidingWindowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private Duration openDuration = Duration.ofSeconds(10);
+        private int halfOpenProbes = 3;
+    }
+}
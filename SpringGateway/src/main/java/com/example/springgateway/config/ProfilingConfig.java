@@ -0,0 +1,10 @@
+package com.example.springgateway.config;
+
+import com.example.springgateway.profiling.FlightRecorderProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(FlightRecorderProperties.class)
+public class ProfilingConfig {
+}
@@ -0,0 +1,18 @@
+package com.example.springgateway.config;
+
+import com.example.springgateway.proxy.BackendClients;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({GatewayRoutesProperties.class, CompressionProperties.class})
+public class ProxyConfig {
+
+    // маршруты Spring Cloud Gateway ходят к сервисам по тем же протоколам, что и контроллеры
+    @Bean
+    public HttpClientCustomizer upstreamProtocolCustomizer(GatewayRoutesProperties properties) {
+        return httpClient -> httpClient.protocol(BackendClients.protocols(properties.getUpstream()));
+    }
+}
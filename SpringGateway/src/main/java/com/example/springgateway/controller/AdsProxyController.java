@@ -1,5 +1,9 @@
 package com.example.springgateway.controller;
 
+import com.example.springgateway.config.GatewayRoutesProperties;
+import com.example.springgateway.feed.AdsFeedRelay;
+import com.example.springgateway.proxy.BackendClient;
+import com.example.springgateway.proxy.BackendClients;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -9,14 +13,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -24,12 +31,18 @@ import java.util.Map;
 @Tag(name = "Ads API", description = "API для управления объявлениями")
 public class AdsProxyController {
 
-    private final RestTemplate restTemplate;
-    private static final String ADS_SERVICE_URL = "http://localhost:8080/ads";
+    private final BackendClient adsService;
+    private final ProxySupport proxySupport;
+    private final int maxMultiGetIds;
+    private final AdsFeedRelay adsFeed;
 
     @Autowired
-    public AdsProxyController(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public AdsProxyController(BackendClients backendClients, ProxySupport proxySupport,
+                              GatewayRoutesProperties properties, AdsFeedRelay adsFeed) {
+        this.adsService = backendClients.get("ads-service");
+        this.proxySupport = proxySupport;
+        this.maxMultiGetIds = properties.getMaxMultiGetIds();
+        this.adsFeed = adsFeed;
     }
 
     @Operation(summary = "Получить все объявления", description = "Возвращает список всех объявлений")
@@ -40,16 +53,61 @@ public class AdsProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping
-    public ResponseEntity<Object> getAllAds() {
-        try {
-            ResponseEntity<Object> response = restTemplate.getForEntity(ADS_SERVICE_URL, Object.class);
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при получении списка объявлений: " + ex.getMessage()));
+    public Mono<ResponseEntity<Object>> getAllAds(ServerHttpRequest request) {
+        return proxySupport.forward(adsService, HttpMethod.GET, "/ads" + ProxySupport.query(request), request, null,
+                "Ошибка при получении списка объявлений");
+    }
+
+    @Operation(summary = "Получить объявления по списку ID", description = "Возвращает объявления в порядке переданных идентификаторов и список ненайденных идентификаторов")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение объявлений",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(example = "{\"ads\": [{\"id\": 1, \"title\": \"Sample Ad\", \"description\": \"A sample ad\", \"price\": 100.0, \"userId\": 1, \"createdAt\": \"2023-10-01T10:00:00\"}], \"missingIds\": [7]}"))),
+            @ApiResponse(responseCode = "400", description = "Слишком много идентификаторов", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping(params = "ids")
+    public Mono<ResponseEntity<Object>> getAdsByIds(
+            @Parameter(description = "Идентификаторы объявлений через запятую, например 1,2,3", required = true)
+            @RequestParam("ids") List<Integer> ids,
+            ServerHttpRequest request) {
+        if (ids.size() > maxMultiGetIds) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "За один запрос можно получить не больше " + maxMultiGetIds + " объявлений")));
+        }
+        return proxySupport.forward(adsService, HttpMethod.GET, "/ads" + ProxySupport.query(request), request, null,
+                "Ошибка при получении объявлений");
+    }
+
+    @Operation(summary = "Фасеты объявлений", description = "Возвращает число объявлений по категориям и ценовым корзинам и идентификаторы объявлений, подходящих под фильтр category/minPrice/maxPrice")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение фасетов",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(example = "{\"total\": 12, \"categories\": {\"auto\": 12, \"books\": 40}, \"prices\": [{\"from\": null, \"to\": 1000.0, \"count\": 3}], \"adIds\": [1, 5]}"))),
+            @ApiResponse(responseCode = "400", description = "Некорректный фильтр", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Фасеты отключены", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping("/facets")
+    public Mono<ResponseEntity<Object>> getFacets(ServerHttpRequest request) {
+        return proxySupport.forward(adsService, HttpMethod.GET, "/ads/facets" + ProxySupport.query(request), request, null,
+                "Ошибка при получении фасетов объявлений");
+    }
+
+    @Operation(summary = "Лента изменений объявлений", description = "Server-Sent Events с созданными (created), изменёнными (updated) и удалёнными (deleted) объявлениями всех экземпляров. С заголовком Last-Event-ID лента продолжается с пропущенных событий; если их уже нет, приходит событие reset и объявления нужно перечитать")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Подписка на ленту",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+            @ApiResponse(responseCode = "404", description = "Лента отключена", content = @Content)
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> streamAds(
+            @Parameter(description = "Id последнего полученного события")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (!adsFeed.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
+        return ResponseEntity.ok(adsFeed.subscribe(lastEventId));
     }
 
     @Operation(summary = "Получить объявление по ID", description = "Возвращает данные объявления по его идентификатору")
@@ -61,18 +119,12 @@ public class AdsProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getAdById(
+    public Mono<ResponseEntity<Object>> getAdById(
             @Parameter(description = "Идентификатор объявления", required = true)
-            @PathVariable Integer id) {
-        try {
-            ResponseEntity<Object> response = restTemplate.getForEntity(ADS_SERVICE_URL + "/{id}", Object.class, id);
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при получении объявления: " + ex.getMessage()));
-        }
+            @PathVariable Integer id,
+            ServerHttpRequest request) {
+        return proxySupport.forward(adsService, HttpMethod.GET, "/ads/" + id, request, null,
+                "Ошибка при получении объявления");
     }
 
     @Operation(summary = "Получение объявлений пользователя", description = "Возвращает список объявлений для указанного пользователя")
@@ -84,22 +136,12 @@ public class AdsProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping("/by-user")
-    public ResponseEntity<Object> getAdsByUserId(
+    public Mono<ResponseEntity<Object>> getAdsByUserId(
             @Parameter(description = "Идентификатор пользователя", required = true)
-            @RequestParam("userId") Integer userId) {
-        try {
-            ResponseEntity<Object> response = restTemplate.getForEntity(
-                    ADS_SERVICE_URL + "/by-user?userId={userId}",
-                    Object.class,
-                    userId
-            );
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при получении объявлений пользователя: " + ex.getMessage()));
-        }
+            @RequestParam("userId") Integer userId,
+            ServerHttpRequest request) {
+        return proxySupport.forward(adsService, HttpMethod.GET, "/ads/by-user?userId=" + userId, request, null,
+                "Ошибка при получении объявлений пользователя");
     }
 
     @Operation(summary = "Создать новое объявление", description = "Создаёт новое объявление на основе предоставленных данных")
@@ -112,18 +154,12 @@ public class AdsProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @PostMapping
-    public ResponseEntity<Object> createAd(
+    public Mono<ResponseEntity<Object>> createAd(
             @Parameter(description = "Данные нового объявления (например, {\"title\": \"New Ad\", \"description\": \"A new ad\", \"price\": 150.0, \"userId\": 1})", required = true)
-            @RequestBody Object requestBody) {
-        try {
-            ResponseEntity<Object> response = restTemplate.postForEntity(ADS_SERVICE_URL, requestBody, Object.class);
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при создании объявления: " + ex.getMessage()));
-        }
+            @RequestBody Object requestBody,
+            ServerHttpRequest request) {
+        return proxySupport.forward(adsService, HttpMethod.POST, "/ads", request, requestBody,
+                "Ошибка при создании объявления");
     }
 
     @Operation(summary = "Обновить данные объявления", description = "Обновляет данные существующего объявления")
@@ -136,23 +172,33 @@ public class AdsProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @PutMapping
-    public ResponseEntity<Object> updateAd(
+    public Mono<ResponseEntity<Object>> updateAd(
             @Parameter(description = "Обновлённые данные объявления (например, {\"id\": 1, \"title\": \"Updated Ad\", \"description\": \"Updated description\", \"price\": 200.0, \"userId\": 1})", required = true)
-            @RequestBody Object requestBody) {
-        try {
-            ResponseEntity<Object> response = restTemplate.exchange(
-                    ADS_SERVICE_URL,
-                    HttpMethod.PUT,
-                    new HttpEntity<>(requestBody),
-                    Object.class
-            );
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при обновлении объявления: " + ex.getMessage()));
-        }
+            @RequestBody Object requestBody,
+            ServerHttpRequest request) {
+        return proxySupport.forward(adsService, HttpMethod.PUT, "/ads", request, requestBody,
+                "Ошибка при обновлении объявления");
+    }
+
+    @Operation(summary = "Частично обновить объявление", description = "Меняет только переданные поля, если версия объявления совпадает с version из тела запроса")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Объявление успешно обновлено",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(example = "{\"id\": 1, \"title\": \"Sample Ad\", \"description\": \"A sample ad\", \"price\": 150.0, \"userId\": 1, \"createdAt\": \"2023-10-01T10:00:00\", \"version\": 4}"))),
+            @ApiResponse(responseCode = "400", description = "Не указана версия", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Объявление не найдено", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Версия объявления не совпала", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Object>> patchAd(
+            @Parameter(description = "Идентификатор объявления", required = true)
+            @PathVariable Integer id,
+            @Parameter(description = "Изменяемые поля и версия (например, {\"price\": 150.0, \"version\": 3})", required = true)
+            @RequestBody Object requestBody,
+            ServerHttpRequest request) {
+        return proxySupport.forward(adsService, HttpMethod.PATCH, "/ads/" + id, request, requestBody,
+                "Ошибка при обновлении объявления");
     }
 
     @Operation(summary = "Удалить объявление по ID", description = "Удаляет объявление по его идентификатору")
@@ -164,24 +210,12 @@ public class AdsProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<Object> deleteAdById(
+    public Mono<ResponseEntity<Object>> deleteAdById(
             @Parameter(description = "Идентификатор объявления", required = true)
-            @PathVariable Integer id) {
-        try {
-            ResponseEntity<Object> response = restTemplate.exchange(
-                    ADS_SERVICE_URL + "/{id}",
-                    HttpMethod.DELETE,
-                    null,
-                    Object.class,
-                    id
-            );
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при удалении объявления: " + ex.getMessage()));
-        }
+            @PathVariable Integer id,
+            ServerHttpRequest request) {
+        return proxySupport.forward(adsService, HttpMethod.DELETE, "/ads/" + id + ProxySupport.query(request), request, null,
+                "Ошибка при удалении объявления");
     }
 
     @Operation(summary = "Удалить все объявления пользователя по ID", description = "Удаляет все объявления, связанные с указанным пользователем")
@@ -193,23 +227,11 @@ public class AdsProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @DeleteMapping("/by-user")
-    public ResponseEntity<Object> deleteUserAds(
+    public Mono<ResponseEntity<Object>> deleteUserAds(
             @Parameter(description = "Идентификатор пользователя", required = true)
-            @RequestParam("userId") Integer userId) {
-        try {
-            ResponseEntity<Object> response = restTemplate.exchange(
-                    ADS_SERVICE_URL + "/by-user?userId={userId}",
-                    HttpMethod.DELETE,
-                    null,
-                    Object.class,
-                    userId
-            );
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при удалении объявлений пользователя: " + ex.getMessage()));
-        }
+            @RequestParam("userId") Integer userId,
+            ServerHttpRequest request) {
+        return proxySupport.forward(adsService, HttpMethod.DELETE, "/ads/by-user?userId=" + userId, request, null,
+                "Ошибка при удалении объявлений пользователя");
     }
 }
\ No newline at end of file
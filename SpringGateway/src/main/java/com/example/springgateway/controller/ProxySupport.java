@@ -0,0 +1,111 @@
+package com.example.springgateway.controller;
+
+import com.example.springgateway.config.GatewayRoutesProperties;
+import com.example.springgateway.proxy.BackendClient;
+import com.example.springgateway.proxy.BackendResponse;
+import com.example.springgateway.proxy.BackendTimeoutException;
+import com.example.springgateway.proxy.CircuitOpenException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Пересылка запроса контроллера в сервис и перевод ответа в формат ответов шлюза.
+ */
+@Component
+class ProxySupport {
+
+    private static final Logger log = LoggerFactory.getLogger(ProxySupport.class);
+
+    // заголовки соединения не передаются клиенту, длину тела WebFlux выставит сам
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            HttpHeaders.CONNECTION.toLowerCase(), "keep-alive", HttpHeaders.TRANSFER_ENCODING.toLowerCase(),
+            HttpHeaders.CONTENT_LENGTH.toLowerCase(), HttpHeaders.UPGRADE.toLowerCase());
+
+    private final GatewayRoutesProperties properties;
+    private final ObjectMapper objectMapper;
+
+    ProxySupport(GatewayRoutesProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    Mono<ResponseEntity<Object>> forward(BackendClient client, HttpMethod method, String path,
+                                         ServerHttpRequest request, Object body, String errorMessage) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : properties.getForwardedHeaders()) {
+            List<String> values = request.getHeaders().get(name);
+            if (values != null) {
+                headers.put(name, values);
+            }
+        }
+        byte[] bytes = null;
+        if (body != null) {
+            try {
+                bytes = objectMapper.writeValueAsBytes(body);
+            } catch (JsonProcessingException e) {
+                return Mono.just(ResponseEntity.badRequest().body(Map.of("error", e.getOriginalMessage())));
+            }
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        return client.exchange(method, path, headers, bytes)
+                .map(response -> toEntity(response, errorMessage))
+                .onErrorResume(e -> Mono.just(toErrorEntity(client, e, errorMessage)));
+    }
+
+    // параметры страницы и фильтры передаются сервису как есть
+    static String query(ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        return query != null ? "?" + query : "";
+    }
+
+    private ResponseEntity<Object> toEntity(BackendResponse response, String errorMessage) {
+        HttpStatus status = HttpStatus.resolve(response.getStatus());
+        if (status == null || status.is5xxServerError()) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", errorMessage + ": " + describe(response)));
+        }
+        if (status.is4xxClientError()) {
+            return ResponseEntity.status(status).body(Map.of("error", describe(response)));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        response.getHeaders().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                headers.put(name, values);
+            }
+        });
+        return ResponseEntity.status(status).headers(headers).body(response.getBody());
+    }
+
+    private ResponseEntity<Object> toErrorEntity(BackendClient client, Throwable e, String errorMessage) {
+        if (e instanceof CircuitOpenException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", errorMessage + ": сервис временно недоступен"));
+        }
+        if (e instanceof BackendTimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body(Map.of("error", errorMessage + ": сервис не ответил вовремя"));
+        }
+        log.error("Request to route {} failed", client.getRoute(), e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", errorMessage + ": " + e.getMessage()));
+    }
+
+    private static String describe(BackendResponse response) {
+        return response.getStatus() + " : [" + new String(response.getBody(), StandardCharsets.UTF_8) + "]";
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.springgateway.controller;
 
+import com.example.springgateway.proxy.BackendClient;
+import com.example.springgateway.proxy.BackendClients;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -9,27 +11,24 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
-
-import java.util.Map;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/users")
 @Tag(name = "User API", description = "API для управления пользователями")
 public class UserProxyController {
 
-    private final RestTemplate restTemplate;
-    private static final String USER_SERVICE_URL = "http://localhost:8089/users";
+    private final BackendClient usersService;
+    private final ProxySupport proxySupport;
 
     @Autowired
-    public UserProxyController(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public UserProxyController(BackendClients backendClients, ProxySupport proxySupport) {
+        this.usersService = backendClients.get("user-service");
+        this.proxySupport = proxySupport;
     }
 
     @Operation(summary = "Получить всех пользователей", description = "Возвращает список всех пользователей")
@@ -40,16 +39,23 @@ public class UserProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping
-    public ResponseEntity<Object> getAllUsers() {
-        try {
-            ResponseEntity<Object> response = restTemplate.getForEntity(USER_SERVICE_URL, Object.class);
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при получении списка пользователей: " + ex.getMessage()));
-        }
+    public Mono<ResponseEntity<Object>> getAllUsers(ServerHttpRequest request) {
+        return proxySupport.forward(usersService, HttpMethod.GET, "/users", request, null,
+                "Ошибка при получении списка пользователей");
+    }
+
+    @Operation(summary = "Справочник пользователей", description = "Постраничный поиск пользователей по username или email (q, field, match, cursor, limit)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение страницы справочника",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(example = "{\"users\": [{\"id\": 1, \"username\": \"john\", \"email\": \"john@example.com\"}], \"nextCursor\": \"MQ\"}"))),
+            @ApiResponse(responseCode = "404", description = "Некорректные параметры поиска", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping("/directory")
+    public Mono<ResponseEntity<Object>> searchDirectory(ServerHttpRequest request) {
+        return proxySupport.forward(usersService, HttpMethod.GET, "/users/directory" + ProxySupport.query(request), request, null,
+                "Ошибка при поиске пользователей");
     }
 
     @Operation(summary = "Получение пользователя по ID", description = "Возвращает данные пользователя по его идентификатору")
@@ -61,18 +67,12 @@ public class UserProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getUserById(
+    public Mono<ResponseEntity<Object>> getUserById(
             @Parameter(description = "Идентификатор пользователя", required = true)
-            @PathVariable Integer id) {
-        try {
-            ResponseEntity<Object> response = restTemplate.getForEntity(USER_SERVICE_URL + "/{id}", Object.class, id);
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при получении пользователя: " + ex.getMessage()));
-        }
+            @PathVariable Integer id,
+            ServerHttpRequest request) {
+        return proxySupport.forward(usersService, HttpMethod.GET, "/users/" + id, request, null,
+                "Ошибка при получении пользователя");
     }
 
     @Operation(summary = "Создать нового пользователя", description = "Создаёт нового пользователя на основе предоставленных данных")
@@ -84,18 +84,31 @@ public class UserProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @PostMapping
-    public ResponseEntity<Object> createUser(
+    public Mono<ResponseEntity<Object>> createUser(
             @Parameter(description = "Данные нового пользователя (например, {\"name\": \"John Doe\"})", required = true)
-            @RequestBody Object requestBody) {
-        try {
-            ResponseEntity<Object> response = restTemplate.postForEntity(USER_SERVICE_URL, requestBody, Object.class);
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при создании пользователя: " + ex.getMessage()));
-        }
+            @RequestBody Object requestBody,
+            ServerHttpRequest request) {
+        return proxySupport.forward(usersService, HttpMethod.POST, "/users", request, requestBody,
+                "Ошибка при создании пользователя");
+    }
+
+    @Operation(summary = "Проверить пароль пользователя", description = "Сверяет пароль с сохранённым хешем")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Результат проверки",
+                    content = @Content(mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"valid\": true}"))),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @PostMapping("/{id}/password/verify")
+    public Mono<ResponseEntity<Object>> verifyPassword(
+            @Parameter(description = "Идентификатор пользователя", required = true)
+            @PathVariable Integer id,
+            @Parameter(description = "Проверяемый пароль (например, {\"password\": \"secret\"})", required = true)
+            @RequestBody Object requestBody,
+            ServerHttpRequest request) {
+        return proxySupport.forward(usersService, HttpMethod.POST, "/users/" + id + "/password/verify", request, requestBody,
+                "Ошибка при проверке пароля");
     }
 
     @Operation(summary = "Обновить данные пользователя", description = "Обновляет данные существующего пользователя")
@@ -108,23 +121,33 @@ public class UserProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @PutMapping
-    public ResponseEntity<Object> updateUser(
+    public Mono<ResponseEntity<Object>> updateUser(
             @Parameter(description = "Обновлённые данные пользователя (например, {\"id\": 1, \"name\": \"Jane Doe\"})", required = true)
-            @RequestBody Object requestBody) {
-        try {
-            ResponseEntity<Object> response = restTemplate.exchange(
-                    USER_SERVICE_URL,
-                    HttpMethod.PUT,
-                    new HttpEntity<>(requestBody),
-                    Object.class
-            );
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при обновлении пользователя: " + ex.getMessage()));
-        }
+            @RequestBody Object requestBody,
+            ServerHttpRequest request) {
+        return proxySupport.forward(usersService, HttpMethod.PUT, "/users", request, requestBody,
+                "Ошибка при обновлении пользователя");
+    }
+
+    @Operation(summary = "Частично обновить пользователя", description = "Меняет только переданные поля, если версия пользователя совпадает с version из тела запроса")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Пользователь успешно обновлён",
+                    content = @Content(mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"message\": \"Пользователь обновлен успешно\", \"version\": 4}"))),
+            @ApiResponse(responseCode = "400", description = "Не указана версия", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Версия пользователя не совпала", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Object>> patchUser(
+            @Parameter(description = "Идентификатор пользователя", required = true)
+            @PathVariable Integer id,
+            @Parameter(description = "Изменяемые поля и версия (например, {\"email\": \"new@example.com\", \"version\": 3})", required = true)
+            @RequestBody Object requestBody,
+            ServerHttpRequest request) {
+        return proxySupport.forward(usersService, HttpMethod.PATCH, "/users/" + id, request, requestBody,
+                "Ошибка при обновлении пользователя");
     }
 
     @Operation(summary = "Удалить пользователя по ID", description = "Удаляет пользователя и связанные с ним объявления")
@@ -136,24 +159,12 @@ public class UserProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<Object> deleteUserById(
+    public Mono<ResponseEntity<Object>> deleteUserById(
             @Parameter(description = "Идентификатор пользователя", required = true)
-            @PathVariable Integer id) {
-        try {
-            ResponseEntity<Object> response = restTemplate.exchange(
-                    USER_SERVICE_URL + "?id={id}",
-                    HttpMethod.DELETE,
-                    null,
-                    Object.class,
-                    id
-            );
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при удалении пользователя: " + ex.getMessage()));
-        }
+            @PathVariable Integer id,
+            ServerHttpRequest request) {
+        return proxySupport.forward(usersService, HttpMethod.DELETE, "/users?id=" + id, request, null,
+                "Ошибка при удалении пользователя");
     }
 
     @Operation(summary = "Получить объявления пользователя по ID", description = "Возвращает список объявлений для указанного пользователя")
@@ -165,21 +176,11 @@ public class UserProxyController {
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping("/ads")
-    public ResponseEntity<Object> getUserAds(
+    public Mono<ResponseEntity<Object>> getUserAds(
             @Parameter(description = "Идентификатор пользователя", required = true)
-            @RequestParam Integer id) {
-        try {
-            ResponseEntity<Object> response = restTemplate.getForEntity(
-                    USER_SERVICE_URL + "/ads?id={id}",
-                    Object.class,
-                    id
-            );
-            return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity.status(ex.getStatusCode()).body(Map.of("error", ex.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Ошибка при получении объявлений пользователя: " + ex.getMessage()));
-        }
+            @RequestParam Integer id,
+            ServerHttpRequest request) {
+        return proxySupport.forward(usersService, HttpMethod.GET, "/users/ads?id=" + id, request, null,
+                "Ошибка при получении объявлений пользователя");
     }
 }
\ No newline at end of file
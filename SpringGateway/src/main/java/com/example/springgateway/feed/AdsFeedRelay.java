@@ -0,0 +1,203 @@
+package com.example.springgateway.feed;
+
+import com.example.springgateway.config.GatewayRoutesProperties;
+import com.example.springgateway.proxy.BackendClients;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Лента изменений объявлений для клиентов шлюза. На каждый экземпляр ads-service держится одна
+ * подписка на /ads/stream, сколько бы клиентов ни было подключено к шлюзу; события экземпляров
+ * сливаются в одну ленту со своими id шлюза и раздаются клиентам без повторной сериализации.
+ * После обрыва подписка восстанавливается с Last-Event-ID экземпляра; если экземпляр ответил
+ * reset, reset получают и клиенты. У каждого клиента своя очередь на bufferSize событий.
+ */
+@Component
+public class AdsFeedRelay implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AdsFeedRelay.class);
+
+    private static final String ROUTE = "ads-service";
+    private static final String RESET = "reset";
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final FeedProperties properties;
+    private final List<String> instances;
+    private final WebClient webClient;
+    private final Counter dropped;
+    private final Counter disconnected;
+    private final Disposable.Composite upstreams = Disposables.composite();
+    // id события - эпоха шлюза и номер, чтобы id после перезапуска не совпадали с прежними
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ArrayDeque<ServerSentEvent<String>> replay = new ArrayDeque<>();
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private long sequence;
+
+    public AdsFeedRelay(FeedProperties properties, GatewayRoutesProperties routes,
+                        WebClient.Builder webClientBuilder, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        GatewayRoutesProperties.Route route = routes.getRoutes().get(ROUTE);
+        this.instances = route != null ? route.getInstances() : List.of();
+        this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(BackendClients.httpClient(routes.getUpstream())))
+                .build();
+        Gauge.builder("gateway.feed.subscribers", clients, List::size)
+                .description("Clients subscribed to the gateway ads SSE feed")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("gateway.feed.dropped")
+                .description("Feed events skipped for slow clients")
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("gateway.feed.disconnected")
+                .description("Slow clients disconnected from the feed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        instances.forEach(instance -> upstreams.add(connect(instance)));
+        upstreams.add(Flux.interval(properties.getHeartbeatInterval()).subscribe(tick -> heartbeat()));
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Flux<ServerSentEvent<String>> subscribe(String lastEventId) {
+        Client client = new Client();
+        List<ServerSentEvent<String>> missed = List.of();
+        synchronized (this) {
+            if (lastEventId != null) {
+                missed = eventsAfter(lastEventId);
+                if (missed == null) {
+                    missed = List.of(ServerSentEvent.<String>builder().id(id(sequence)).event(RESET).data("{}").build());
+                }
+            }
+            clients.add(client);
+        }
+        return Flux.fromIterable(missed)
+                .concatWith(client.sink.asFlux())
+                .takeUntilOther(client.kill.asMono())
+                .doFinally(signal -> clients.remove(client));
+    }
+
+    @Override
+    public void destroy() {
+        upstreams.dispose();
+        clients.forEach(client -> client.kill.tryEmitEmpty());
+    }
+
+    private Disposable connect(String instance) {
+        String[] lastEventId = new String[1];
+        return Flux.defer(() -> webClient.get()
+                        .uri(instance + "/ads/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .headers(headers -> {
+                            if (lastEventId[0] != null) {
+                                headers.set("Last-Event-ID", lastEventId[0]);
+                            }
+                        })
+                        .retrieve()
+                        .bodyToFlux(EVENT_TYPE))
+                .doOnSubscribe(subscription -> log.info("Subscribing to ads feed of {} after event {}", instance, lastEventId[0]))
+                .doOnNext(event -> {
+                    // комментарии keepalive экземпляра клиентам не нужны, у шлюза свои
+                    if (event.id() != null) {
+                        lastEventId[0] = event.id();
+                    }
+                    if (event.event() != null && event.data() != null) {
+                        publish(event.event(), event.data());
+                    }
+                })
+                // экземпляр закрыл ленту по таймауту соединения - переподключаемся сразу
+                .repeat()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getInitialBackoff())
+                        .maxBackoff(properties.getMaxBackoff())
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> log.warn("Ads feed of {} is unavailable: {}", instance,
+                                signal.failure().getMessage())))
+                .subscribe();
+    }
+
+    private synchronized void publish(String type, String data) {
+        sequence++;
+        ServerSentEvent<String> event = ServerSentEvent.<String>builder().id(id(sequence)).event(type).data(data).build();
+        replay.addLast(event);
+        if (replay.size() > properties.getReplaySize()) {
+            replay.removeFirst();
+        }
+        for (Client client : clients) {
+            if (client.sink.tryEmitNext(event) != Sinks.EmitResult.FAIL_OVERFLOW) {
+                continue;
+            }
+            if (properties.getSlowConsumerPolicy() == FeedProperties.SlowConsumerPolicy.DISCONNECT) {
+                disconnected.increment();
+                clients.remove(client);
+                client.kill.tryEmitEmpty();
+            } else {
+                dropped.increment();
+            }
+        }
+    }
+
+    private synchronized void heartbeat() {
+        ServerSentEvent<String> heartbeat = ServerSentEvent.<String>builder().comment("keepalive").build();
+        clients.forEach(client -> client.sink.tryEmitNext(heartbeat));
+    }
+
+    // null - продолжить нельзя, нужен reset
+    private List<ServerSentEvent<String>> eventsAfter(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        long last;
+        try {
+            last = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator)) || last > sequence) {
+            return null;
+        }
+        long oldest = sequence - replay.size() + 1;
+        if (last < oldest - 1) {
+            return null;
+        }
+        List<ServerSentEvent<String>> missed = new ArrayList<>(replay);
+        return missed.subList((int) (last - oldest + 1), missed.size());
+    }
+
+    private String id(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private final class Client {
+        private final Sinks.Many<ServerSentEvent<String>> sink = Sinks.many().unicast()
+                .onBackpressureBuffer(Queues.<ServerSentEvent<String>>get(properties.getBufferSize()).get());
+        private final Sinks.Empty<Void> kill = Sinks.empty();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.springgateway.feed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "gateway.feed")
+public class FeedProperties {
+
+    public enum SlowConsumerPolicy {
+        // отключить клиента, он переподключится с Last-Event-ID и дочитает пропущенное
+        DISCONNECT,
+        // пропускать клиенту новые события, пока он не разгребёт очередь
+        DROP
+    }
+
+    private boolean enabled = true;
+    // сколько последних событий шлюз хранит для продолжения с Last-Event-ID
+    private int replaySize = 1000;
+    // очередь каждого клиента
+    private int bufferSize = 256;
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DISCONNECT;
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    // переподключение к ленте экземпляра ads-service после обрыва
+    private Duration initialBackoff = Duration.ofSeconds(1);
+    private Duration maxBackoff = Duration.ofSeconds(30);
+}
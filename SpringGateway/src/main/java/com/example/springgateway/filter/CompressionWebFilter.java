@@ -0,0 +1,279 @@
+package com.example.springgateway.filter;
+
+import com.example.springgateway.config.CompressionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Сжатие ответов шлюза по Accept-Encoding. Сжимается поток по мере записи, без накопления
+ * тела; ответы с известной длиной меньше порога, несжимаемых типов, уже сжатые и потоковые
+ * (writeAndFlushWith) отдаются как есть. Пока загрузка CPU выше maxCpuLoad, сжатие отключается.
+ * Brotli не поддерживается: в JDK нет его реализации.
+ */
+@Component
+public class CompressionWebFilter implements WebFilter, Ordered {
+
+    private static final long CPU_SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final CompressionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<MediaType> mimeTypes;
+
+    private volatile double cpuLoad;
+    private volatile long cpuSampledAt = System.nanoTime() - CPU_SAMPLE_INTERVAL_NANOS;
+
+    public CompressionWebFilter(CompressionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.mimeTypes = MediaType.parseMediaTypes(properties.getMimeTypes());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        String encoding = negotiate(exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            return chain.filter(exchange);
+        }
+        ServerHttpResponse response = new CompressingResponse(exchange, encoding);
+        return chain.filter(exchange.mutate().response(response).build());
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    // первая из поддерживаемых кодировок, которую клиент принимает с q > 0
+    private String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        String wildcard = null;
+        String[] accepted = acceptEncoding.toLowerCase(Locale.ROOT).split(",");
+        for (String supported : properties.getEncodings()) {
+            for (String value : accepted) {
+                String[] parts = value.trim().split(";");
+                boolean rejected = parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?");
+                if (parts[0].equals(supported)) {
+                    if (!rejected) {
+                        return supported;
+                    }
+                } else if (parts[0].equals("*") && !rejected && wildcard == null) {
+                    wildcard = supported;
+                }
+            }
+        }
+        return wildcard;
+    }
+
+    private boolean cpuSaturated() {
+        long now = System.nanoTime();
+        if (now - cpuSampledAt >= CPU_SAMPLE_INTERVAL_NANOS) {
+            cpuSampledAt = now;
+            cpuLoad = systemCpuLoad();
+        }
+        return cpuLoad > properties.getMaxCpuLoad();
+    }
+
+    // system.cpu.usage регистрирует Micrometer и сам выбирает getCpuLoad или getSystemCpuLoad по версии JDK
+    private double systemCpuLoad() {
+        Gauge gauge = meterRegistry.find("system.cpu.usage").gauge();
+        return gauge != null ? gauge.value() : -1;
+    }
+
+    private String route(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route != null) {
+            return route.getId();
+        }
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "unknown";
+    }
+
+    private String skipReason(HttpHeaders headers) {
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return "already-encoded";
+        }
+        MediaType contentType = headers.getContentType();
+        if (contentType == null || mimeTypes.stream().noneMatch(type -> type.includes(contentType))) {
+            return "content-type";
+        }
+        long length = headers.getContentLength();
+        if (length >= 0 && length < properties.getMinResponseSize().toBytes()) {
+            return "too-small";
+        }
+        if (cpuSaturated()) {
+            return "cpu";
+        }
+        return null;
+    }
+
+    private final class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String encoding;
+
+        private CompressingResponse(ServerWebExchange exchange, String encoding) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            String route = route(exchange);
+            String skipReason = skipReason(headers);
+            if (skipReason != null) {
+                Counter.builder("gateway.compression.skipped")
+                        .description("Responses sent uncompressed although the client accepts compression")
+                        .tags("route", route, "reason", skipReason)
+                        .register(meterRegistry)
+                        .increment();
+                return super.writeWith(body);
+            }
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            // сжатое тело не совпадает побайтно с ответом сервиса, сильный ETag становится слабым
+            String eTag = headers.getETag();
+            if (eTag != null && !eTag.startsWith("W/")) {
+                headers.setETag("W/" + eTag);
+            }
+            StreamCompressor compressor = new StreamCompressor(encoding, properties.getLevel());
+            Flux<DataBuffer> compressed = Flux.from(body)
+                    .map(buffer -> {
+                        byte[] input = new byte[buffer.readableByteCount()];
+                        buffer.read(input);
+                        DataBufferUtils.release(buffer);
+                        return bufferFactory().wrap(compressor.write(input));
+                    })
+                    .concatWith(Mono.fromCallable(() -> bufferFactory().wrap(compressor.finish())))
+                    .filter(buffer -> buffer.readableByteCount() > 0)
+                    .doOnComplete(() -> compressor.record(route))
+                    .doFinally(signal -> compressor.close());
+            return super.writeWith(compressed);
+        }
+    }
+
+    /**
+     * Сжатие одного ответа: каждый кусок тела сразу отдаёт то, что успел выдать компрессор.
+     */
+    private final class StreamCompressor {
+
+        private final String encoding;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
+        private final DeflaterOutputStream stream;
+        private final Deflater deflater;
+        private long bytesIn;
+        private long bytesOut;
+        private long nanos;
+
+        private StreamCompressor(String encoding, int level) {
+            this.encoding = encoding;
+            this.deflater = new Deflater(level, "gzip".equals(encoding));
+            try {
+                this.stream = "gzip".equals(encoding)
+                        ? new LeveledGzipOutputStream(output, deflater)
+                        : new DeflaterOutputStream(output, deflater, 8192);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        byte[] write(byte[] input) {
+            long started = System.nanoTime();
+            try {
+                stream.write(input);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            bytesIn += input.length;
+            return drain(started);
+        }
+
+        byte[] finish() {
+            long started = System.nanoTime();
+            try {
+                stream.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return drain(started);
+        }
+
+        void record(String route) {
+            Counter.builder("gateway.compression.bytes.in")
+                    .baseUnit("bytes")
+                    .tags("route", route, "encoding", encoding)
+                    .register(meterRegistry)
+                    .increment(bytesIn);
+            Counter.builder("gateway.compression.bytes.saved")
+                    .description("Response bytes saved by compression")
+                    .baseUnit("bytes")
+                    .tags("route", route, "encoding", encoding)
+                    .register(meterRegistry)
+                    .increment(Math.max(0, bytesIn - bytesOut));
+            Timer.builder("gateway.compression.time")
+                    .description("CPU time spent compressing one response")
+                    .tags("route", route, "encoding", encoding)
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void close() {
+            deflater.end();
+        }
+
+        private byte[] drain(long started) {
+            byte[] chunk = output.toByteArray();
+            output.reset();
+            bytesOut += chunk.length;
+            nanos += System.nanoTime() - started;
+            return chunk;
+        }
+    }
+
+    // GZIPOutputStream не даёт задать уровень сжатия, поэтому свой Deflater подменяется
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        private LeveledGzipOutputStream(ByteArrayOutputStream output, Deflater deflater) throws IOException {
+            super(output, 8192);
+            this.def.end();
+            this.def = deflater;
+        }
+    }
+}
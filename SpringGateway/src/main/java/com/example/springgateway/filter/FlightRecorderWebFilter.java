@@ -0,0 +1,57 @@
+package com.example.springgateway.filter;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Событие JFR на каждый запрос через цепочку фильтров шлюза, чтобы в записи профилировщика
+ * было видно, какие запросы шли во время пауз GC или конкуренции за блокировки.
+ * Пока запись не идёт, событие выключено и фильтр ничего не добавляет к цепочке.
+ */
+@Component
+public class FlightRecorderWebFilter implements WebFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        GatewayExchangeEvent event = new GatewayExchangeEvent();
+        if (!event.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        event.begin();
+        return chain.filter(exchange).doFinally(signal -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = exchange.getRequest().getMethodValue();
+                event.path = exchange.getRequest().getPath().value();
+                event.route = route(exchange);
+                HttpStatus status = exchange.getResponse().getStatusCode();
+                event.status = status != null ? status.value() : 0;
+                event.commit();
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    // маршрут Spring Cloud Gateway или шаблон пути контроллера
+    private static String route(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route != null) {
+            return route.getId();
+        }
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.springgateway.filter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.gateway.Exchange")
+@Label("Gateway Exchange")
+@Category({"Gateway"})
+@Description("Request passing through the gateway filter chain, from the first filter to the completed response")
+@StackTrace(false)
+class GatewayExchangeEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Route")
+    String route;
+
+    @Label("Status")
+    int status;
+}
@@ -0,0 +1,65 @@
+package com.example.springgateway.filter;
+
+import com.example.springgateway.proxy.BackendClients;
+import com.example.springgateway.proxy.LoadBalancer;
+import com.example.springgateway.proxy.ServiceInstance;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.addOriginalRequestUrl;
+
+/**
+ * Маршруты Spring Cloud Gateway вида lb://ads-service отправляются на экземпляр,
+ * выбранный балансировщиком маршрута из gateway.routes, как и запросы контроллеров.
+ */
+@Component
+public class LoadBalancedRouteFilter implements GlobalFilter, Ordered {
+
+    private final BackendClients backendClients;
+
+    public LoadBalancedRouteFilter(BackendClients backendClients) {
+        this.backendClients = backendClients;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        if (url == null || !"lb".equals(url.getScheme())) {
+            return chain.filter(exchange);
+        }
+        LoadBalancer loadBalancer = backendClients.get(url.getHost()).getLoadBalancer();
+        ServiceInstance instance = loadBalancer.choose();
+        URI target = URI.create(instance.getUri());
+        URI requestUrl = UriComponentsBuilder.fromUri(url)
+                .scheme(target.getScheme())
+                .host(target.getHost())
+                .port(target.getPort())
+                .build(true)
+                .toUri();
+        addOriginalRequestUrl(exchange, url);
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, requestUrl);
+        instance.acquire();
+        return chain.filter(exchange)
+                .doOnSuccess(done -> {
+                    HttpStatus status = exchange.getResponse().getStatusCode();
+                    loadBalancer.onResult(instance, status == null || !status.is5xxServerError());
+                })
+                .doOnError(e -> loadBalancer.onResult(instance, false))
+                .doFinally(signal -> instance.release());
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.springgateway.proxy;
+
+import com.example.springgateway.config.GatewayRoutesProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Клиент одного маршрута с его политиками устойчивости. Одинаковые одновременные GET
+ * склеиваются в один вызов сервиса до применения политик. Порядок политик: каждая попытка
+ * проходит через автомат отключения и уходит на экземпляр, выбранный балансировщиком; GET может продублироваться хедж-запросом, если первый
+ * не ответил за p95 задержки маршрута; неуспешные идемпотентные запросы повторяются с
+ * экспоненциальной задержкой и разбросом; всё вместе ограничено общим таймаутом маршрута.
+ * Решения политик считаются в метрике gateway.policy.
+ */
+public class BackendClient {
+
+    private static final Logger log = LoggerFactory.getLogger(BackendClient.class);
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+    // меньше этого числа ответов p95 ещё ненадёжен, хедж ждёт initialDelay
+    private static final long HEDGE_MIN_SAMPLES = 20;
+
+    private final String route;
+    private final GatewayRoutesProperties.Route config;
+    private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreaker circuitBreaker;
+    private final Timer latency;
+    private final RequestCoalescer coalescer;
+    private final LoadBalancer loadBalancer;
+
+    public BackendClient(String route, GatewayRoutesProperties.Route config, WebClient webClient,
+                         MeterRegistry meterRegistry) {
+        this.route = route;
+        this.config = config;
+        this.webClient = webClient;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = new CircuitBreaker(config.getCircuitBreaker(), this::onCircuitTransition);
+        this.loadBalancer = new LoadBalancer(route, config.getInstances(), config.getLoadBalancer(),
+                webClient, meterRegistry, this::count);
+        this.latency = Timer.builder("gateway.upstream.latency")
+                .description("Latency of single upstream attempts")
+                .tag("route", route)
+                .publishPercentiles(0.95)
+                .register(meterRegistry);
+        Gauge.builder("gateway.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .tag("route", route)
+                .register(meterRegistry);
+        if (config.getCoalescing().isEnabled()) {
+            this.coalescer = new RequestCoalescer(config.getCoalescing().getMaxWait(), decision -> count("coalescing", decision));
+            Gauge.builder("gateway.coalescing.in-flight", coalescer, RequestCoalescer::getInFlight)
+                    .description("Distinct GET requests currently shared by concurrent callers")
+                    .tag("route", route)
+                    .register(meterRegistry);
+        } else {
+            this.coalescer = null;
+        }
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public LoadBalancer getLoadBalancer() {
+        return loadBalancer;
+    }
+
+    public Mono<BackendResponse> exchange(HttpMethod method, String path, HttpHeaders headers, byte[] body) {
+        if (coalescer != null && method == HttpMethod.GET) {
+            return coalescer.execute(coalescingKey(path, headers), () -> withPolicies(method, path, headers, body));
+        }
+        return withPolicies(method, path, headers, body);
+    }
+
+    private Mono<BackendResponse> withPolicies(HttpMethod method, String path, HttpHeaders headers, byte[] body) {
+        Mono<BackendResponse> attempt = Mono.defer(() -> attempt(method, path, headers, body));
+        Mono<BackendResponse> call = config.getHedge().isEnabled() && method == HttpMethod.GET
+                ? hedged(attempt)
+                : attempt;
+        GatewayRoutesProperties.Retry retry = config.getRetry();
+        if (retry.isEnabled() && retry.getMaxAttempts() > 1 && retry.getMethods().contains(method)) {
+            call = call.retryWhen(Retry.backoff(retry.getMaxAttempts() - 1, retry.getInitialBackoff())
+                    .maxBackoff(retry.getMaxBackoff())
+                    .jitter(retry.getJitter())
+                    .filter(BackendClient::isRetryable)
+                    .doBeforeRetry(signal -> {
+                        count("retry", "attempt");
+                        log.debug("Retrying {} {} on route {} after: {}", method, path, route, signal.failure().toString());
+                    })
+                    .onRetryExhaustedThrow((spec, signal) -> {
+                        count("retry", "exhausted");
+                        return signal.failure();
+                    }));
+        }
+        return call
+                .onErrorResume(RetryableStatusException.class, e -> Mono.just(e.getResponse()))
+                .timeout(config.getTimeout())
+                .onErrorMap(TimeoutException.class, e -> {
+                    count("timeout", "exceeded");
+                    log.warn("{} {} on route {} exceeded timeout budget {}", method, path, route, config.getTimeout());
+                    return new BackendTimeoutException(route, config.getTimeout());
+                });
+    }
+
+    private Mono<BackendResponse> attempt(HttpMethod method, String path, HttpHeaders headers, byte[] body) {
+        if (!circuitBreaker.tryAcquire()) {
+            count("circuit-breaker", "rejected");
+            return Mono.error(new CircuitOpenException(route));
+        }
+        ServiceInstance instance = loadBalancer.choose();
+        instance.acquire();
+        long started = System.nanoTime();
+        WebClient.RequestBodySpec request = webClient.method(method)
+                .uri(URI.create(instance.getUri() + path))
+                .headers(target -> target.addAll(headers));
+        WebClient.RequestHeadersSpec<?> withBody = body != null ? request.bodyValue(body) : request;
+        return withBody
+                .exchangeToMono(response -> response.bodyToMono(byte[].class)
+                        .defaultIfEmpty(EMPTY_BODY)
+                        .map(bytes -> new BackendResponse(response.rawStatusCode(), response.headers().asHttpHeaders(), bytes)))
+                .doOnSuccess(response -> {
+                    latency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                    boolean success = response.getStatus() < 500;
+                    loadBalancer.onResult(instance, success);
+                    if (success) {
+                        circuitBreaker.onSuccess();
+                    } else {
+                        circuitBreaker.onFailure();
+                    }
+                })
+                .doOnError(e -> {
+                    loadBalancer.onResult(instance, false);
+                    circuitBreaker.onFailure();
+                })
+                .doOnCancel(circuitBreaker::onCancel)
+                .doFinally(signal -> instance.release())
+                .flatMap(response -> config.getRetry().getStatuses().contains(response.getStatus())
+                        ? Mono.error(new RetryableStatusException(response))
+                        : Mono.just(response));
+    }
+
+    private Mono<BackendResponse> hedged(Mono<BackendResponse> attempt) {
+        Duration delay = hedgeDelay();
+        Mono<BackendResponse> hedge = Mono.delay(delay)
+                .then(Mono.defer(() -> {
+                    count("hedge", "sent");
+                    return attempt;
+                }))
+                .doOnNext(response -> count("hedge", "won"))
+                // ошибка хеджа не должна обрывать ещё идущий основной запрос
+                .onErrorResume(e -> Mono.never());
+        // первый ответ отменяет второй запрос; быстрая ошибка основного уходит в повторы, не дожидаясь хеджа
+        return Mono.firstWithSignal(attempt, hedge);
+    }
+
+    // ответ зависит от пути с запросом и от переданных сервису заголовков
+    private static String coalescingKey(String path, HttpHeaders headers) {
+        StringBuilder key = new StringBuilder(path);
+        new TreeMap<>(headers).forEach((name, values) -> key.append('\n').append(name.toLowerCase()).append(':').append(values));
+        return key.toString();
+    }
+
+    private Duration hedgeDelay() {
+        GatewayRoutesProperties.Hedge hedge = config.getHedge();
+        if (hedge.getDelay() != null) {
+            return hedge.getDelay();
+        }
+        if (latency.count() < HEDGE_MIN_SAMPLES) {
+            return hedge.getInitialDelay();
+        }
+        for (ValueAtPercentile percentile : latency.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                Duration p95 = Duration.ofNanos((long) percentile.value(TimeUnit.NANOSECONDS));
+                return p95.compareTo(hedge.getMinDelay()) > 0 ? p95 : hedge.getMinDelay();
+            }
+        }
+        return hedge.getInitialDelay();
+    }
+
+    private void onCircuitTransition(CircuitBreaker.State from, CircuitBreaker.State to) {
+        count("circuit-breaker", to.name().toLowerCase().replace('_', '-'));
+        if (to == CircuitBreaker.State.OPEN) {
+            log.warn("Circuit breaker of route {} opened (was {})", route, from);
+        } else {
+            log.info("Circuit breaker of route {} moved from {} to {}", route, from, to);
+        }
+    }
+
+    void shutdown() {
+        loadBalancer.shutdown();
+    }
+
+    private void count(String policy, String decision) {
+        Counter.builder("gateway.policy")
+                .description("Resilience policy decisions per route")
+                .tag("route", route)
+                .tag("policy", policy)
+                .tag("decision", decision)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        return e instanceof RetryableStatusException
+                || e instanceof WebClientRequestException
+                || e instanceof IOException;
+    }
+}
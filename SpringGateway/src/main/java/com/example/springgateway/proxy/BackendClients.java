@@ -0,0 +1,70 @@
+package com.example.springgateway.proxy;
+
+import com.example.springgateway.config.GatewayRoutesProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Клиенты маршрутов из gateway.routes.
+ */
+@Component
+public class BackendClients implements DisposableBean {
+
+    private final Map<String, BackendClient> clients = new LinkedHashMap<>();
+
+    public BackendClients(GatewayRoutesProperties properties, WebClient.Builder webClientBuilder,
+                          MeterRegistry meterRegistry) {
+        WebClient webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient(properties.getUpstream())))
+                .codecs(codecs -> codecs.defaultCodecs()
+                        .maxInMemorySize((int) properties.getMaxResponseSize().toBytes()))
+                .build();
+        properties.getRoutes().forEach((route, config) ->
+                clients.put(route, new BackendClient(route, config, webClient, meterRegistry)));
+    }
+
+    public BackendClient get(String route) {
+        BackendClient client = clients.get(route);
+        if (client == null) {
+            throw new IllegalStateException("Route " + route + " is not configured in gateway.routes");
+        }
+        return client;
+    }
+
+    public static HttpClient httpClient(GatewayRoutesProperties.Upstream upstream) {
+        boolean h2c = upstream.getProtocols().contains(GatewayRoutesProperties.Upstream.Protocol.H2C);
+        ConnectionProvider.Builder pool = ConnectionProvider.builder("gateway-upstream")
+                .maxConnections(upstream.getHttp1MaxConnections())
+                .pendingAcquireTimeout(upstream.getPendingAcquireTimeout());
+        if (h2c) {
+            // по одному пулу на экземпляр: запросы мультиплексируются в нескольких соединениях
+            pool.allocationStrategy(Http2AllocationStrategy.builder()
+                    .minConnections(1)
+                    .maxConnections(upstream.getH2MaxConnections())
+                    .maxConcurrentStreams(upstream.getH2MaxConcurrentStreams())
+                    .build());
+        }
+        return HttpClient.create(pool.build()).protocol(protocols(upstream));
+    }
+
+    public static HttpProtocol[] protocols(GatewayRoutesProperties.Upstream upstream) {
+        return upstream.getProtocols().stream()
+                .map(protocol -> protocol == GatewayRoutesProperties.Upstream.Protocol.H2C ? HttpProtocol.H2C : HttpProtocol.HTTP11)
+                .toArray(HttpProtocol[]::new);
+    }
+
+    @Override
+    public void destroy() {
+        clients.values().forEach(BackendClient::shutdown);
+    }
+}
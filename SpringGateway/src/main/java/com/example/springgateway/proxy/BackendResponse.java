@@ -0,0 +1,17 @@
+package com.example.springgateway.proxy;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Ответ сервиса, полностью вычитанный в память.
+ */
+@Getter
+@RequiredArgsConstructor
+public class BackendResponse {
+
+    private final int status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+}
@@ -0,0 +1,10 @@
+package com.example.springgateway.proxy;
+
+import java.time.Duration;
+
+public class BackendTimeoutException extends RuntimeException {
+
+    public BackendTimeoutException(String route, Duration timeout) {
+        super("Route " + route + " did not respond within " + timeout);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.springgateway.proxy;
+
+import com.example.springgateway.config.GatewayRoutesProperties;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Автомат отключения маршрута. В закрытом состоянии помнит исходы последних slidingWindowSize
+ * вызовов и размыкается, когда доля ошибок достигает порога. Через openDuration пропускает
+ * halfOpenProbes пробных вызовов: если все успешны - замыкается, первая ошибка снова размыкает.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final GatewayRoutesProperties.CircuitBreaker config;
+    private final BiConsumer<State, State> transitionListener;
+    private final boolean[] window;
+
+    private State state = State.CLOSED;
+    private int windowPosition;
+    private int windowCalls;
+    private int windowFailures;
+    private long openedAt;
+    private int probesInFlight;
+    private int probesSucceeded;
+
+    public CircuitBreaker(GatewayRoutesProperties.CircuitBreaker config, BiConsumer<State, State> transitionListener) {
+        this.config = config;
+        this.transitionListener = transitionListener;
+        this.window = new boolean[Math.max(1, config.getSlidingWindowSize())];
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Разрешение на вызов. После разрешённого вызова обязателен ровно один из
+     * onSuccess, onFailure или onCancel.
+     */
+    public synchronized boolean tryAcquire() {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < config.getOpenDuration().toNanos()) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probesSucceeded >= config.getHalfOpenProbes()) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (++probesSucceeded >= config.getHalfOpenProbes()) {
+                transition(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCalls >= config.getMinimumCalls()
+                    && windowFailures >= config.getFailureRateThreshold() * windowCalls) {
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    // вызов отменён до ответа, например проигравший хедж-запрос
+    public synchronized void onCancel() {
+        if (config.isEnabled() && state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCalls == window.length) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        state = next;
+        windowPosition = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+        probesInFlight = 0;
+        probesSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        transitionListener.accept(previous, next);
+    }
+}
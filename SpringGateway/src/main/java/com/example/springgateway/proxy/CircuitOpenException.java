@@ -0,0 +1,8 @@
+package com.example.springgateway.proxy;
+
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String route) {
+        super("Circuit breaker of route " + route + " is open");
+    }
+}
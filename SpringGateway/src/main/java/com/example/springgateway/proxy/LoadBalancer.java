@@ -0,0 +1,152 @@
+package com.example.springgateway.proxy;
+
+import com.example.springgateway.config.GatewayRoutesProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Выбор экземпляра сервиса для запроса. Из доступных экземпляров берётся наименее загруженный
+ * по числу незавершённых запросов (из двух случайных или из всех), с поправкой на вес разогрева.
+ * Экземпляры выводятся из ротации активной проверкой здоровья и пассивно, после серии
+ * неудачных ответов. Если доступных не осталось, выбор идёт среди всех: лучше попытаться,
+ * чем отказать сразу.
+ */
+public class LoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadBalancer.class);
+
+    private final String route;
+    private final GatewayRoutesProperties.LoadBalancer config;
+    private final List<ServiceInstance> instances;
+    private final BiConsumer<String, String> decisions;
+    private final Disposable healthChecks;
+
+    public LoadBalancer(String route, List<String> uris, GatewayRoutesProperties.LoadBalancer config,
+                        WebClient webClient, MeterRegistry meterRegistry, BiConsumer<String, String> decisions) {
+        if (uris.isEmpty()) {
+            throw new IllegalStateException("Route " + route + " has no instances configured");
+        }
+        this.route = route;
+        this.config = config;
+        this.decisions = decisions;
+        this.instances = uris.stream().map(ServiceInstance::new).collect(Collectors.toList());
+        for (ServiceInstance instance : instances) {
+            Gauge.builder("gateway.instance.outstanding", instance, ServiceInstance::getOutstanding)
+                    .description("Requests in flight to the instance")
+                    .tags("route", route, "instance", instance.getUri())
+                    .register(meterRegistry);
+            Gauge.builder("gateway.instance.state", instance, i -> i.getState().ordinal())
+                    .description("Instance state: 0 up, 1 ejected, 2 down")
+                    .tags("route", route, "instance", instance.getUri())
+                    .register(meterRegistry);
+        }
+        this.healthChecks = config.getHealthCheck().isEnabled()
+                ? Flux.interval(config.getHealthCheck().getInterval())
+                        .onBackpressureDrop()
+                        .concatMap(tick -> checkAll(webClient))
+                        .subscribe()
+                : null;
+    }
+
+    public List<ServiceInstance> getInstances() {
+        return instances;
+    }
+
+    public ServiceInstance choose() {
+        List<ServiceInstance> candidates = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (instance.isAvailable()) {
+                candidates.add(instance);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = instances;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        if (config.getStrategy() == GatewayRoutesProperties.LoadBalancer.Strategy.LEAST_OUTSTANDING) {
+            ServiceInstance best = candidates.get(0);
+            for (int i = 1; i < candidates.size(); i++) {
+                best = lessLoaded(best, candidates.get(i));
+            }
+            return best;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        return lessLoaded(candidates.get(first), candidates.get(second));
+    }
+
+    public void onResult(ServiceInstance instance, boolean success) {
+        GatewayRoutesProperties.OutlierDetection outliers = config.getOutlierDetection();
+        if (!outliers.isEnabled() || !instance.recordResult(success, outliers.getConsecutiveFailures())) {
+            return;
+        }
+        long ejected = instances.stream().filter(ServiceInstance::isEjected).count();
+        if ((ejected + 1) * 100 > (long) outliers.getMaxEjectionPercent() * instances.size()) {
+            decisions.accept("outlier-detection", "ejection-skipped");
+            return;
+        }
+        instance.eject(outliers.getBaseEjectionTime().toNanos());
+        decisions.accept("outlier-detection", "ejected");
+        log.warn("Instance {} of route {} ejected after {} consecutive failures",
+                instance.getUri(), route, outliers.getConsecutiveFailures());
+    }
+
+    public void shutdown() {
+        if (healthChecks != null) {
+            healthChecks.dispose();
+        }
+    }
+
+    private ServiceInstance lessLoaded(ServiceInstance a, ServiceInstance b) {
+        return load(a) <= load(b) ? a : b;
+    }
+
+    private double load(ServiceInstance instance) {
+        return (instance.getOutstanding() + 1) / instance.weight(config.getSlowStart().toNanos(), config.getMinWeight());
+    }
+
+    private Mono<Void> checkAll(WebClient webClient) {
+        GatewayRoutesProperties.HealthCheck healthCheck = config.getHealthCheck();
+        return Flux.fromIterable(instances)
+                .flatMap(instance -> webClient.get()
+                        .uri(URI.create(instance.getUri() + healthCheck.getPath()))
+                        .exchangeToMono(response -> response.releaseBody().thenReturn(response.rawStatusCode() < 500))
+                        .timeout(healthCheck.getTimeout())
+                        .onErrorReturn(false)
+                        .doOnNext(passed -> onHealthCheck(instance, passed)))
+                .then();
+    }
+
+    private void onHealthCheck(ServiceInstance instance, boolean passed) {
+        GatewayRoutesProperties.HealthCheck healthCheck = config.getHealthCheck();
+        Boolean changed = instance.recordHealthCheck(passed, healthCheck.getHealthyThreshold(), healthCheck.getUnhealthyThreshold());
+        if (changed == null) {
+            return;
+        }
+        decisions.accept("health-check", changed ? "up" : "down");
+        if (changed) {
+            log.info("Instance {} of route {} passed health checks, warming up for {}", instance.getUri(), route, config.getSlowStart());
+        } else {
+            log.warn("Instance {} of route {} failed health checks and is taken out of rotation", instance.getUri(), route);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.springgateway.proxy;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Склейка одинаковых одновременных запросов: первый запрос по ключу уходит в сервис,
+ * остальные, пришедшие до его ответа, получают тот же ответ или ту же ошибку. Ожидающий
+ * ждёт не дольше maxWait, после чего отправляет свой запрос. Ключ удаляется, как только
+ * ответ получен, поэтому ответы не кэшируются дольше одного полёта.
+ */
+public class RequestCoalescer {
+
+    private final Map<String, Mono<BackendResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Duration maxWait;
+    private final Consumer<String> decisions;
+
+    public RequestCoalescer(Duration maxWait, Consumer<String> decisions) {
+        this.maxWait = maxWait;
+        this.decisions = decisions;
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    public Mono<BackendResponse> execute(String key, Supplier<Mono<BackendResponse>> call) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<BackendResponse>> created = new AtomicReference<>();
+            Mono<BackendResponse> shared = inFlight.computeIfAbsent(key, k -> {
+                // share() не отменяет запрос, когда отписывается первый из ожидающих
+                Mono<BackendResponse> flight = call.get()
+                        .doFinally(signal -> inFlight.remove(k, created.get()))
+                        .share();
+                created.set(flight);
+                return flight;
+            });
+            if (shared == created.get()) {
+                decisions.accept("leader");
+                return shared;
+            }
+            decisions.accept("collapsed");
+            return shared.timeout(maxWait, Mono.defer(() -> {
+                decisions.accept("wait-timeout");
+                return call.get();
+            }));
+        });
+    }
+}
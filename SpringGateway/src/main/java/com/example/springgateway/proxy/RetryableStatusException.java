@@ -0,0 +1,19 @@
+package com.example.springgateway.proxy;
+
+/**
+ * Ответ со статусом, после которого запрос можно повторить. Если повторы закончились,
+ * клиенту отдаётся сам ответ.
+ */
+class RetryableStatusException extends RuntimeException {
+
+    private final BackendResponse response;
+
+    RetryableStatusException(BackendResponse response) {
+        super("Retryable status " + response.getStatus(), null, false, false);
+        this.response = response;
+    }
+
+    BackendResponse getResponse() {
+        return response;
+    }
+}
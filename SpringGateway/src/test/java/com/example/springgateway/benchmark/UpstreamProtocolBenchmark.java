@@ -0,0 +1,65 @@
+package com.example.springgateway.benchmark;
+
+import com.example.springgateway.config.GatewayRoutesProperties;
+import com.example.springgateway.proxy.BackendClients;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сравнение соединений шлюза с сервисом по h2c и по HTTP/1.1: сколько соединений открыто
+ * и какие задержки. Требует запущенный AdsService на localhost:
+ * {@code mvn test -Dtest=UpstreamProtocolBenchmark -Dbenchmark=true -Dbenchmark.url=http://localhost:8080/ads/1}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UpstreamProtocolBenchmark {
+
+    private static final String URL = System.getProperty("benchmark.url", "http://localhost:8080/ads/1");
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 64);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20_000);
+    private static final int WARMUP_REQUESTS = 2_000;
+
+    @Test
+    void compareProtocols() {
+        run("http1.1", GatewayRoutesProperties.Upstream.Protocol.HTTP11);
+        run("h2c", GatewayRoutesProperties.Upstream.Protocol.H2C);
+    }
+
+    private void run(String name, GatewayRoutesProperties.Upstream.Protocol protocol) {
+        GatewayRoutesProperties.Upstream upstream = new GatewayRoutesProperties.Upstream();
+        upstream.setProtocols(List.of(protocol));
+        AtomicInteger connections = new AtomicInteger();
+        HttpClient client = BackendClients.httpClient(upstream)
+                .doOnChannelInit((observer, channel, remoteAddress) -> connections.incrementAndGet());
+
+        send(client, WARMUP_REQUESTS);
+        long started = System.nanoTime();
+        long[] latencies = send(client, REQUESTS);
+        long elapsed = System.nanoTime() - started;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-7s requests=%d concurrency=%d connections=%d throughput=%.0f/s p50=%.3fms p99=%.3fms max=%.3fms%n",
+                name, REQUESTS, CONCURRENCY, connections.get(), REQUESTS / (elapsed / 1e9),
+                latencies[latencies.length / 2] / 1e6, latencies[(int) (latencies.length * 0.99)] / 1e6,
+                latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static long[] send(HttpClient client, int requests) {
+        return Flux.range(0, requests)
+                .flatMap(i -> Mono.defer(() -> {
+                    long callStarted = System.nanoTime();
+                    return client.get().uri(URL)
+                            .responseContent().aggregate().asByteArray()
+                            .map(body -> System.nanoTime() - callStarted);
+                }), CONCURRENCY)
+                .collectList()
+                .map(list -> list.stream().mapToLong(Long::longValue).toArray())
+                .block();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.springgateway.proxy;
+
+import com.example.springgateway.config.GatewayRoutesProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoadBalancerTest {
+
+    private static final List<String> URIS = List.of("http://a", "http://b", "http://c", "http://d");
+
+    private final List<String> decisions = new ArrayList<>();
+    private final GatewayRoutesProperties.LoadBalancer config = new GatewayRoutesProperties.LoadBalancer();
+
+    LoadBalancerTest() {
+        config.getHealthCheck().setEnabled(false);
+        config.setSlowStart(Duration.ZERO);
+        config.getOutlierDetection().setConsecutiveFailures(3);
+    }
+
+    @Test
+    void powerOfTwoChoicesNeverPicksTheMostLoadedOfTwo() {
+        LoadBalancer balancer = balancer(URIS.subList(0, 2));
+        ServiceInstance busy = balancer.getInstances().get(0);
+        busy.acquire();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(balancer.choose()).isSameAs(balancer.getInstances().get(1));
+        }
+    }
+
+    @Test
+    void powerOfTwoChoicesAvoidsTheBusiestInstance() {
+        LoadBalancer balancer = balancer(URIS);
+        ServiceInstance busiest = balancer.getInstances().get(2);
+        for (int i = 0; i < 5; i++) {
+            busiest.acquire();
+        }
+
+        for (int i = 0; i < 200; i++) {
+            assertThat(balancer.choose()).isNotSameAs(busiest);
+        }
+    }
+
+    @Test
+    void leastOutstandingPicksTheGlobalMinimum() {
+        config.setStrategy(GatewayRoutesProperties.LoadBalancer.Strategy.LEAST_OUTSTANDING);
+        LoadBalancer balancer = balancer(URIS);
+        int[] load = {3, 1, 2, 4};
+        for (int i = 0; i < load.length; i++) {
+            for (int j = 0; j < load[i]; j++) {
+                balancer.getInstances().get(i).acquire();
+            }
+        }
+
+        assertThat(balancer.choose()).isSameAs(balancer.getInstances().get(1));
+    }
+
+    @Test
+    void instanceIsEjectedAfterConsecutiveFailuresAndSkipped() {
+        LoadBalancer balancer = balancer(URIS.subList(0, 2));
+        ServiceInstance failing = balancer.getInstances().get(0);
+        balancer.onResult(failing, false);
+        balancer.onResult(failing, false);
+        // успех обнуляет серию
+        balancer.onResult(failing, true);
+        balancer.onResult(failing, false);
+        balancer.onResult(failing, false);
+        assertThat(failing.getState()).isEqualTo(ServiceInstance.State.UP);
+        balancer.onResult(failing, false);
+
+        assertThat(failing.getState()).isEqualTo(ServiceInstance.State.EJECTED);
+        assertThat(decisions).containsExactly("outlier-detection:ejected");
+        for (int i = 0; i < 50; i++) {
+            assertThat(balancer.choose()).isSameAs(balancer.getInstances().get(1));
+        }
+    }
+
+    @Test
+    void ejectionsAreCappedByMaxEjectionPercent() {
+        LoadBalancer balancer = balancer(URIS);
+        for (ServiceInstance instance : balancer.getInstances()) {
+            for (int i = 0; i < 3; i++) {
+                balancer.onResult(instance, false);
+            }
+        }
+
+        // 50% от четырёх экземпляров - не больше двух исключённых
+        assertThat(balancer.getInstances()).filteredOn(ServiceInstance::isEjected).hasSize(2);
+        assertThat(decisions).containsExactly("outlier-detection:ejected", "outlier-detection:ejected",
+                "outlier-detection:ejection-skipped", "outlier-detection:ejection-skipped");
+    }
+
+    @Test
+    void fallsBackToAllInstancesWhenNoneIsAvailable() {
+        config.getOutlierDetection().setMaxEjectionPercent(100);
+        LoadBalancer balancer = balancer(URIS.subList(0, 2));
+        for (ServiceInstance instance : balancer.getInstances()) {
+            for (int i = 0; i < 3; i++) {
+                balancer.onResult(instance, false);
+            }
+        }
+
+        assertThat(balancer.getInstances()).allMatch(ServiceInstance::isEjected);
+        assertThat(balancer.choose()).isIn(balancer.getInstances());
+    }
+
+    @Test
+    void instanceReturningFromEjectionWarmsUp() throws InterruptedException {
+        config.setSlowStart(Duration.ofMillis(500));
+        config.setMinWeight(0.1);
+        config.getOutlierDetection().setBaseEjectionTime(Duration.ofMillis(1));
+        LoadBalancer balancer = balancer(URIS.subList(0, 2));
+        ServiceInstance returning = balancer.getInstances().get(0);
+        ServiceInstance other = balancer.getInstances().get(1);
+        // новые экземпляры тоже разогреваются, ждём окончания разогрева
+        Thread.sleep(600);
+        for (int i = 0; i < 3; i++) {
+            balancer.onResult(returning, false);
+        }
+        Thread.sleep(20);
+        other.acquire();
+        other.acquire();
+
+        // вес 0.1: (0 + 1) / 0.1 = 10 против (2 + 1) / 1 = 3 у разогретого
+        assertThat(returning.isAvailable()).isTrue();
+        assertThat(balancer.choose()).isSameAs(other);
+    }
+
+    @Test
+    void routeWithoutInstancesIsRejected() {
+        assertThatThrownBy(() -> balancer(List.of())).isInstanceOf(IllegalStateException.class);
+    }
+
+    private LoadBalancer balancer(List<String> uris) {
+        return new LoadBalancer("ads-service", uris, config, null, new SimpleMeterRegistry(),
+                (policy, decision) -> decisions.add(policy + ":" + decision));
+    }
+}
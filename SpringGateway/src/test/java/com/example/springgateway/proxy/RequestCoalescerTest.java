@@ -0,0 +1,92 @@
+package com.example.springgateway.proxy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestCoalescerTest {
+
+    private final List<String> decisions = new ArrayList<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void concurrentRequestsShareOneBackendCall() {
+        RequestCoalescer coalescer = new RequestCoalescer(Duration.ofSeconds(5), decisions::add);
+        Sinks.One<BackendResponse> backend = Sinks.one();
+
+        CompletableFuture<BackendResponse> first = coalescer.execute("GET /ads/1", () -> call(backend)).toFuture();
+        CompletableFuture<BackendResponse> second = coalescer.execute("GET /ads/1", () -> call(backend)).toFuture();
+        assertThat(coalescer.getInFlight()).isEqualTo(1);
+        backend.tryEmitValue(response(200));
+
+        assertThat(first.join()).isSameAs(second.join());
+        assertThat(calls).hasValue(1);
+        assertThat(decisions).containsExactly("leader", "collapsed");
+        assertThat(coalescer.getInFlight()).isZero();
+    }
+
+    @Test
+    void errorIsSharedAndKeyIsReleased() {
+        RequestCoalescer coalescer = new RequestCoalescer(Duration.ofSeconds(5), decisions::add);
+        Sinks.One<BackendResponse> backend = Sinks.one();
+
+        CompletableFuture<BackendResponse> first = coalescer.execute("k", () -> call(backend)).toFuture();
+        CompletableFuture<BackendResponse> second = coalescer.execute("k", () -> call(backend)).toFuture();
+        backend.tryEmitError(new IllegalStateException("down"));
+
+        assertThatThrownBy(first::join).hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(second::join).hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(coalescer.getInFlight()).isZero();
+    }
+
+    @Test
+    void differentKeysAreNotCoalesced() {
+        RequestCoalescer coalescer = new RequestCoalescer(Duration.ofSeconds(5), decisions::add);
+
+        coalescer.execute("a", () -> call(Mono.just(response(200)))).block();
+        coalescer.execute("b", () -> call(Mono.just(response(200)))).block();
+        // ответ не кэшируется: после завершения полёта тот же ключ снова идёт в сервис
+        coalescer.execute("a", () -> call(Mono.just(response(200)))).block();
+
+        assertThat(calls).hasValue(3);
+        assertThat(decisions).containsExactly("leader", "leader", "leader");
+    }
+
+    @Test
+    void waiterFallsBackToOwnCallAfterMaxWait() {
+        RequestCoalescer coalescer = new RequestCoalescer(Duration.ofMillis(50), decisions::add);
+        Sinks.One<BackendResponse> slow = Sinks.one();
+
+        CompletableFuture<BackendResponse> leader = coalescer.execute("k", () -> call(slow)).toFuture();
+        BackendResponse own = coalescer.execute("k", () -> call(Mono.just(response(204)))).block(Duration.ofSeconds(5));
+
+        assertThat(own.getStatus()).isEqualTo(204);
+        assertThat(decisions).containsExactly("leader", "collapsed", "wait-timeout");
+        assertThat(leader).isNotDone();
+        slow.tryEmitValue(response(200));
+        assertThat(leader.join().getStatus()).isEqualTo(200);
+    }
+
+    private Mono<BackendResponse> call(Sinks.One<BackendResponse> backend) {
+        return call(backend.asMono());
+    }
+
+    private Mono<BackendResponse> call(Mono<BackendResponse> response) {
+        calls.incrementAndGet();
+        return response;
+    }
+
+    private static BackendResponse response(int status) {
+        return new BackendResponse(status, HttpHeaders.EMPTY, new byte[0]);
+    }
+}
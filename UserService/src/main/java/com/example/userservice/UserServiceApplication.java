@@ -1,13 +1,23 @@
 package com.example.userservice;
 
+import com.example.userservice.migration.MigrationJob;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 
 
 @SpringBootApplication
 public class UserServiceApplication {
     public static void main(String[] args) {
-        SpringApplication.run(UserServiceApplication.class, args);
+        if (MigrationJob.isRequested(args)) {
+            MigrationJob.run(args);
+            return;
+        }
+        ConfigurableApplicationContext context = SpringApplication.run(UserServiceApplication.class, args);
+        if (context.getEnvironment().getProperty("users.cds.training-run", Boolean.class, false)) {
+            // обучающий запуск профиля cds: классы старта загружены, JVM пишет архив при выходе
+            System.exit(SpringApplication.exit(context));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.userservice.client;
+
+import java.util.List;
+import java.util.Map;
+
+public interface AdsServiceClient {
+
+    List<Map<String, Object>> getAdsByUserId(Integer userId);
+
+    void deleteAdsByUserId(Integer userId);
+}
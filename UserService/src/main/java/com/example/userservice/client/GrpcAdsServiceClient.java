@@ -0,0 +1,85 @@
+package com.example.userservice.client;
+
+import com.example.userservice.config.AdsServiceClientProperties;
+import com.example.userservice.exception.UserException;
+import com.example.userservice.rpc.proto.Ad;
+import com.example.userservice.rpc.proto.AdsCatalogGrpc;
+import com.example.userservice.rpc.proto.AdsListReply;
+import com.example.userservice.rpc.proto.DeleteAdsReply;
+import com.example.userservice.rpc.proto.UserIdRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Component
+@ConditionalOnProperty(prefix = "users.ads-service", name = "transport", havingValue = "grpc", matchIfMissing = true)
+public class GrpcAdsServiceClient implements AdsServiceClient {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcAdsServiceClient.class);
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final AdsCatalogGrpc.AdsCatalogBlockingStub stub;
+    private final long deadlineMillis;
+
+    public GrpcAdsServiceClient(ManagedChannel adsServiceChannel, AdsServiceClientProperties properties) {
+        this.stub = AdsCatalogGrpc.newBlockingStub(adsServiceChannel);
+        this.deadlineMillis = properties.getGrpc().getDeadline().toMillis();
+    }
+
+    @Override
+    public List<Map<String, Object>> getAdsByUserId(Integer userId) {
+        try {
+            AdsListReply reply = stub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                    .getAdsByUser(UserIdRequest.newBuilder().setUserId(userId).build());
+            log.debug("Successfully fetched {} ads for user ID: {}", reply.getAdsCount(), userId);
+            return reply.getAdsList().stream().map(this::toMap).collect(Collectors.toList());
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.NOT_FOUND) {
+                log.warn("No ads found for user ID: {}", userId);
+                return List.of();
+            }
+            log.error("Error while fetching ads for user ID: {} from AdsService over gRPC", userId, e);
+            throw new UserException("Ошибка при отправке запроса для получения объявлений: " + e.getStatus());
+        }
+    }
+
+    @Override
+    public void deleteAdsByUserId(Integer userId) {
+        try {
+            DeleteAdsReply reply = stub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                    .deleteAdsByUser(UserIdRequest.newBuilder().setUserId(userId).build());
+            log.debug("Deleted {} ads for user ID: {}", reply.getDeleted(), userId);
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.NOT_FOUND) {
+                log.warn("No ads found to delete for user ID: {}", userId);
+                return;
+            }
+            log.error("Error while deleting ads for user ID: {} from AdsService over gRPC", userId, e);
+            throw new UserException("Ошибка при удалении объявлений: " + e.getStatus());
+        }
+    }
+
+    private Map<String, Object> toMap(Ad ad) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", ad.getId());
+        map.put("title", ad.hasTitle() ? ad.getTitle() : null);
+        map.put("description", ad.hasDescription() ? ad.getDescription() : null);
+        map.put("price", ad.hasPrice() ? ad.getPrice() : null);
+        map.put("category", ad.hasCategory() ? ad.getCategory() : null);
+        map.put("userId", ad.getUserId());
+        map.put("createdAt", ad.hasCreatedAtMicros() ? EPOCH.plus(ad.getCreatedAtMicros(), ChronoUnit.MICROS) : null);
+        return map;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.userservice.client;
+
+import com.example.userservice.config.AdsServiceClientProperties;
+import com.example.userservice.exception.UserException;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "users.ads-service", name = "transport", havingValue = "rest")
+public class RestAdsServiceClient implements AdsServiceClient {
+
+    private static final Logger log = LoggerFactory.getLogger(RestAdsServiceClient.class);
+
+    private final RestTemplate restTemplate;
+    private final AdsServiceClientProperties properties;
+
+    @Override
+    public List<Map<String, Object>> getAdsByUserId(Integer userId) {
+        String url = properties.getRestUrl() + "/ads/by-user?userId=" + userId;
+        try {
+            ResponseEntity<List<Map<String, Object>>> response = restTemplate.exchange(
+                    url,
+                    HttpMethod.GET,
+                    null,
+                    new ParameterizedTypeReference<List<Map<String, Object>>>() {}
+            );
+            if (response.getStatusCode() == HttpStatus.OK) {
+                List<Map<String, Object>> ads = response.getBody();
+                log.debug("Successfully fetched {} ads for user ID: {}", ads != null ? ads.size() : 0, userId);
+                return ads;
+            }
+            log.error("Failed to fetch ads for user ID: {}. Status code: {}", userId, response.getStatusCode());
+            throw new UserException("Ошибка во время получения объявлений для пользователя: " + response.getStatusCode());
+        } catch (HttpClientErrorException.NotFound e) {
+            log.warn("No ads found for user ID: {}", userId);
+            return List.of();
+        } catch (RestClientException e) {
+            log.error("Error while fetching ads for user ID: {} from AdsService", userId, e);
+            throw new UserException("Ошибка при отправке запроса для получения объявлений: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void deleteAdsByUserId(Integer userId) {
+        String url = properties.getRestUrl() + "/ads/by-user?userId=" + userId;
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(
+                    url,
+                    HttpMethod.DELETE,
+                    null,
+                    String.class
+            );
+            if (response.getStatusCode() != HttpStatus.OK) {
+                log.error("Failed to delete ads for user ID: {}. Status code: {}", userId, response.getStatusCode());
+                throw new UserException("Ошибка при удалении связанных объявлений: " + response.getStatusCode());
+            }
+            log.debug("Ads deleted for user ID: {}", userId);
+        } catch (HttpClientErrorException.NotFound e) {
+            log.warn("No ads found to delete for user ID: {}", userId);
+        } catch (RestClientException e) {
+            log.error("Error while deleting ads for user ID: {} from AdsService", userId, e);
+            throw new UserException("Ошибка при удалении объявлений: " + e.getMessage());
+        }
+    }
+}
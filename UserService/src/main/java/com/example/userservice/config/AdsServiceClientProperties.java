@@ -0,0 +1,29 @@
+package com.example.userservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.ads-service")
+public class AdsServiceClientProperties {
+
+    public enum Transport {
+        REST, GRPC
+    }
+
+    private Transport transport = Transport.GRPC;
+    private String restUrl = "http://localhost:8080";
+    private Grpc grpc = new Grpc();
+
+    @Getter
+    @Setter
+    public static class Grpc {
+        private String host = "localhost";
+        private int port = 9080;
+        private Duration deadline = Duration.ofSeconds(2);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.userservice.config;
+
+import com.example.userservice.datasource.DataSourceRoutingProperties;
+import com.example.userservice.datasource.ReadYourWritesTracker;
+import com.example.userservice.datasource.ReplicaRoutingDataSource;
+import com.example.userservice.datasource.RoutingDataSourceProxy;
+import com.example.userservice.sql.SqlMonitorProperties;
+import com.example.userservice.sql.SqlStatementListener;
+import com.zaxxer.hikari.HikariDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties,
+                                 DataSourceRoutingProperties routingProperties,
+                                 ReadYourWritesTracker readYourWritesTracker,
+                                 Environment environment,
+                                 SqlMonitorProperties sqlMonitorProperties,
+                                 SqlStatementListener statementListener) {
+        DataSource dataSource = routingDataSource(dataSourceProperties, routingProperties, readYourWritesTracker, environment);
+        if (!sqlMonitorProperties.isEnabled()) {
+            return dataSource;
+        }
+        // поверх маршрутизации: учитываются запросы и к primary, и к репликам
+        return ProxyDataSourceBuilder.create(dataSource)
+                .name("users")
+                .listener(statementListener)
+                .build();
+    }
+
+    private DataSource routingDataSource(DataSourceProperties dataSourceProperties,
+                                         DataSourceRoutingProperties routingProperties,
+                                         ReadYourWritesTracker readYourWritesTracker,
+                                         Environment environment) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (routingProperties.getReplicas().isEmpty()) {
+            return primary;
+        }
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("primary");
+        }
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < routingProperties.getReplicas().size(); i++) {
+            DataSourceRoutingProperties.Replica replica = routingProperties.getReplicas().get(i);
+            HikariDataSource replicaDataSource = new HikariDataSource();
+            replicaDataSource.setPoolName(primary.getPoolName() + "-replica-" + i);
+            replicaDataSource.setJdbcUrl(replica.getUrl());
+            replicaDataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : primary.getUsername());
+            replicaDataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : primary.getPassword());
+            replicaDataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            if (primary.getMaximumPoolSize() > 0) {
+                replicaDataSource.setMaximumPoolSize(primary.getMaximumPoolSize());
+            }
+            replicaDataSource.setConnectionTimeout(routingProperties.getReplicaConnectionTimeout().toMillis());
+            replicaDataSource.setReadOnly(true);
+            replicas.add(replicaDataSource);
+        }
+        return new RoutingDataSourceProxy(new ReplicaRoutingDataSource(primary, replicas,
+                routingProperties.getSelection(), routingProperties.getHealthCheckInterval(), readYourWritesTracker));
+    }
+}
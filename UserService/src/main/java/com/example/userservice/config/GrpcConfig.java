@@ -0,0 +1,26 @@
+package com.example.userservice.config;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableConfigurationProperties({AdsServiceClientProperties.class, RpcServerProperties.class})
+public class GrpcConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    @ConditionalOnProperty(prefix = "users.ads-service", name = "transport", havingValue = "grpc", matchIfMissing = true)
+    public ManagedChannel adsServiceChannel(AdsServiceClientProperties properties) {
+        return ManagedChannelBuilder
+                .forAddress(properties.getGrpc().getHost(), properties.getGrpc().getPort())
+                .usePlaintext()
+                .keepAliveTime(30, TimeUnit.SECONDS)
+                .keepAliveWithoutCalls(true)
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.userservice.config;
+
+import com.example.userservice.migration.MigrationProperties;
+import com.example.userservice.migration.MigrationSpringLiquibase;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(MigrationProperties.class)
+public class MigrationConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.liquibase")
+    public LiquibaseProperties liquibaseProperties() {
+        return new LiquibaseProperties();
+    }
+
+    @Bean
+    public SpringLiquibase liquibase(DataSource dataSource, LiquibaseProperties liquibaseProperties,
+                                     MigrationProperties migrationProperties) {
+        return MigrationSpringLiquibase.create(liquibaseProperties, migrationProperties.getMode(), dataSource);
+    }
+}
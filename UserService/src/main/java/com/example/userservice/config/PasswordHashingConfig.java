@@ -0,0 +1,10 @@
+package com.example.userservice.config;
+
+import com.example.userservice.password.PasswordHashingProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PasswordHashingProperties.class)
+public class PasswordHashingConfig {
+}
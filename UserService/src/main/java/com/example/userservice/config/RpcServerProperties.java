@@ -0,0 +1,13 @@
+package com.example.userservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.rpc.server")
+public class RpcServerProperties {
+    private boolean enabled = true;
+    private int port = 9089;
+}
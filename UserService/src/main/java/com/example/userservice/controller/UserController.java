@@ -1,7 +1,10 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.model.dto.PasswordCheckDto;
+import com.example.userservice.model.dto.UserDirectoryPageDto;
 import com.example.userservice.model.dto.UserDto;
-import com.example.userservice.model.entity.User;
+import com.example.userservice.model.dto.UserSummaryDto;
+import com.example.userservice.model.repository.UserDirectoryRepository;
 import com.example.userservice.service.UserService;
 import com.google.gson.Gson;
 import io.swagger.v3.oas.annotations.Operation;
@@ -26,6 +29,7 @@ import java.util.Map;
 @Tag(name = "Контроллер по работе с пользователями", description = "API для управления пользователями")
 public class UserController {
     private static final Logger log = LoggerFactory.getLogger(UserController.class);
+    private static final int DEFAULT_PAGE_SIZE = 50;
 
     private final UserService userService;
     private final Gson gson;
@@ -36,18 +40,42 @@ public class UserController {
         this.gson = new Gson();
     }
 
-    @Operation(summary = "Получение всех пользователей", description = "Возвращает список всех пользователей")
+    @Operation(summary = "Получение всех пользователей", description = "Возвращает список всех пользователей без паролей")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Успешное получение списка пользователей",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = User.class))),
+                            schema = @Schema(implementation = UserSummaryDto.class))),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @GetMapping
-    public List<User> getAllUsers() {
+    public List<UserSummaryDto> getAllUsers() {
         return userService.getAllUsers();
     }
 
+    @Operation(summary = "Справочник пользователей", description = "Постраничный поиск пользователей по username или email: точное совпадение, префикс или подстрока. Без q - все пользователи по порядку id. Следующая страница запрашивается с cursor из ответа")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное получение страницы справочника",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UserDirectoryPageDto.class))),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор, размер страницы или слишком короткая подстрока", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @GetMapping("/directory")
+    public UserDirectoryPageDto searchDirectory(
+            @Parameter(description = "Строка поиска, без учёта регистра")
+            @RequestParam(value = "q", required = false) String query,
+            @Parameter(description = "Поле поиска: USERNAME или EMAIL")
+            @RequestParam(value = "field", defaultValue = "USERNAME") UserDirectoryRepository.Field field,
+            @Parameter(description = "Тип совпадения: EXACT, PREFIX или CONTAINS (не короче 3 символов)")
+            @RequestParam(value = "match", defaultValue = "PREFIX") UserDirectoryRepository.Match match,
+            @Parameter(description = "Курсор следующей страницы из предыдущего ответа")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Размер страницы")
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        log.info("Received request to search user directory by {} {} '{}'", field, match, query);
+        return userService.searchDirectory(query, field, match, cursor, limit != null ? limit : DEFAULT_PAGE_SIZE);
+    }
+
     @Operation(summary = "Получение пользователя по ID", description = "Возвращает данные пользователя по его идентификатору")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Успешное получение пользователя",
@@ -96,6 +124,25 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(jsonResponse);
     }
 
+    @Operation(summary = "Проверка пароля пользователя", description = "Сверяет пароль с сохранённым хешем; пароль, сохранённый открытым текстом или с устаревшей стоимостью bcrypt, при успешной проверке перехешируется")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Результат проверки",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(example = "{\"valid\": true}"))),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Пул проверки паролей перегружен, запрос стоит повторить позже", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @PostMapping("/{id}/password/verify")
+    public ResponseEntity<String> verifyPassword(
+            @Parameter(description = "Идентификатор пользователя", required = true)
+            @PathVariable("id") Integer id,
+            @Parameter(description = "Проверяемый пароль", required = true)
+            @RequestBody PasswordCheckDto passwordCheckDto) {
+        boolean valid = userService.verifyPassword(id, passwordCheckDto.getPassword());
+        return ResponseEntity.ok(gson.toJson(Map.of("valid", valid)));
+    }
+
     @Operation(summary = "Обновление пользователя", description = "Обновляет данные существующего пользователя")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Пользователь успешно обновлён",
@@ -103,6 +150,7 @@ public class UserController {
                             schema = @Schema(example = "{\"message\": \"Пользователь обновлен успешно\"}"))),
             @ApiResponse(responseCode = "400", description = "Неверные данные запроса", content = @Content),
             @ApiResponse(responseCode = "404", description = "Пользователь не найден", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Пользователь изменён после чтения: версия не совпала", content = @Content),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
     })
     @PutMapping
@@ -115,6 +163,28 @@ public class UserController {
         return ResponseEntity.ok(jsonResponse);
     }
 
+    @Operation(summary = "Частичное обновление пользователя", description = "Меняет только переданные поля пользователя, если его версия совпадает с version из тела запроса")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Пользователь обновлен успешно",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(example = "{\"message\": \"Пользователь обновлен успешно\", \"version\": 4}"))),
+            @ApiResponse(responseCode = "400", description = "Не указана версия", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Пользователь изменён после чтения: версия не совпала", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера", content = @Content)
+    })
+    @PatchMapping("/{id}")
+    public ResponseEntity<String> patchUser(
+            @Parameter(description = "Идентификатор пользователя", required = true)
+            @PathVariable("id") Integer id,
+            @Parameter(description = "Изменяемые поля и ожидаемая версия пользователя, например {\"email\": \"new@example.com\", \"version\": 3}", required = true)
+            @RequestBody UserDto patch) {
+        long version = userService.patchUser(id, patch);
+        Map<String, Object> response = Map.of("message", "Пользователь обновлен успешно", "version", version);
+        String jsonResponse = gson.toJson(response);
+        return ResponseEntity.ok(jsonResponse);
+    }
+
     @Operation(summary = "Удаление пользователя", description = "Удаляет пользователя и связанные с ним объявления")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Пользователь и связанные объявления успешно удалены",
@@ -1,8 +1,12 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.controller.dto.ErrorDto;
+import com.example.userservice.exception.PasswordHashingBusyException;
+import com.example.userservice.exception.UserBadRequestException;
+import com.example.userservice.exception.UserConflictException;
 import com.example.userservice.exception.UserException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -20,6 +24,30 @@ public class UserControllerAdvice {
         return buildApiException(HttpStatus.NOT_FOUND, e.getMessage(), "User error", "user-error-code");
     }
 
+    @ExceptionHandler(UserConflictException.class)
+    public ResponseEntity<ErrorDto> handleUserConflictException(UserConflictException e) {
+        log.warn(USER_PROCESSING_EXCEPTION_MESSAGE, e.getMessage());
+        return buildApiException(HttpStatus.CONFLICT, e.getMessage(), "User conflict", "user-version-conflict");
+    }
+
+    @ExceptionHandler(UserBadRequestException.class)
+    public ResponseEntity<ErrorDto> handleUserBadRequestException(UserBadRequestException e) {
+        log.warn(USER_PROCESSING_EXCEPTION_MESSAGE, e.getMessage());
+        return buildApiException(HttpStatus.BAD_REQUEST, e.getMessage(), "User bad request", "user-bad-request");
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ErrorDto> handlePasswordHashingBusy(PasswordHashingBusyException e) {
+        log.warn(USER_PROCESSING_EXCEPTION_MESSAGE, e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ErrorDto.builder()
+                        .title("Service busy")
+                        .detail(e.getMessage())
+                        .code("password-hashing-busy")
+                        .build());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorDto> handleUnknownException(Exception e) {
         log.error(USER_PROCESSING_EXCEPTION_MESSAGE, e.getMessage());
@@ -0,0 +1,37 @@
+package com.example.userservice.datasource;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@Component
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReadYourWritesTracker tracker;
+    private final DataSourceRoutingProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(properties.getUserHeader());
+        if (header != null) {
+            try {
+                tracker.setCurrentUser(Integer.valueOf(header.trim()));
+            } catch (NumberFormatException ignored) {
+                // заголовок не обязателен, некорректное значение просто игнорируем
+            }
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            tracker.clearCurrentUser();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.userservice.exception;
+
+public class UserBadRequestException extends UserException {
+    public UserBadRequestException(String message) {
+        super(message);
+    }
+}
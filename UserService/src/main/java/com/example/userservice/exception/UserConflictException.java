@@ -0,0 +1,7 @@
+package com.example.userservice.exception;
+
+public class UserConflictException extends UserException {
+    public UserConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.userservice.migration;
+
+import com.example.userservice.config.DataSourceConfig;
+import com.example.userservice.config.MigrationConfig;
+import com.example.userservice.datasource.ReadYourWritesTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Разовый запуск миграций: поднимает только пул соединений и Liquibase, применяет changelog
+ * и завершается. Экземпляры сервиса при этом стартуют с users.migration.mode=validate.
+ * <p>
+ * {@code java -jar target/UserService-*.jar --migrate}
+ */
+@ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, DataSourceAutoConfiguration.class})
+@Import({DataSourceConfig.class, ReadYourWritesTracker.class, MigrationConfig.class})
+public class MigrationJob {
+
+    public static final String ARGUMENT = "--migrate";
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationJob.class);
+
+    public static boolean isRequested(String[] args) {
+        return Arrays.asList(args).contains(ARGUMENT);
+    }
+
+    public static void run(String[] args) {
+        long started = System.nanoTime();
+        String[] jobArgs = Stream.concat(Arrays.stream(args), Stream.of("--users.migration.mode=migrate", "--spring.liquibase.enabled=true"))
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MigrationJob.class)
+                .web(WebApplicationType.NONE)
+                .run(jobArgs);
+        log.info("Migrations applied in {} ms", (System.nanoTime() - started) / 1_000_000);
+        System.exit(SpringApplication.exit(context));
+    }
+}
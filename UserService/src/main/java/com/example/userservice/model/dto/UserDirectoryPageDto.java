@@ -0,0 +1,20 @@
+package com.example.userservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDirectoryPageDto {
+    private List<UserSummaryDto> users;
+    // курсор следующей страницы; null - страниц больше нет
+    private String nextCursor;
+}
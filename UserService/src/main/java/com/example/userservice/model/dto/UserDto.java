@@ -16,4 +16,5 @@ public class UserDto {
     private String username;
     private String email;
     private String password;
+    private Long version;
 }
\ No newline at end of file
@@ -10,6 +10,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
 
 @Entity(name = "users")
 @Getter
@@ -25,4 +26,6 @@ public class User {
     private String username;
     private String email;
     private String password;
+    @Version
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.example.userservice.model.repository;
+
+import com.example.userservice.model.dto.UserSummaryDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Справочник пользователей: выборки без колонки password с keyset-пагинацией.
+ * Поиск по точному значению и префиксу идёт по ключу lower(поле) COLLATE "C", страница
+ * продолжается с пары (ключ, id) последней строки; поиск по подстроке использует
+ * триграммный индекс и продолжается по id.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserDirectoryRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public enum Field {
+        USERNAME("username"),
+        EMAIL("email");
+
+        private final String column;
+
+        Field(String column) {
+            this.column = column;
+        }
+
+        private String key() {
+            return "lower(" + column + ") COLLATE \"C\"";
+        }
+    }
+
+    public enum Match {
+        EXACT,
+        PREFIX,
+        CONTAINS
+    }
+
+    public List<UserSummaryDto> findAll() {
+        return jdbcTemplate.query("SELECT id, username, email FROM users ORDER BY id",
+                (rs, rowNum) -> toSummary(rs));
+    }
+
+    public Slice findAfterId(int afterId, int limit) {
+        return query("SELECT id, username, email, NULL AS sort_key FROM users WHERE id > :afterId ORDER BY id LIMIT :limit",
+                new MapSqlParameterSource("afterId", afterId), limit);
+    }
+
+    /**
+     * Поиск по ключу поля; afterKey и afterId - ключ и id последней строки предыдущей страницы,
+     * на первой странице afterKey равен null.
+     */
+    public Slice findByKey(Field field, Match match, String query, String afterKey, int afterId, int limit) {
+        String condition = match == Match.EXACT
+                ? field.key() + " = lower(:query)"
+                : field.key() + " LIKE lower(:query) || '%'";
+        String cursor = afterKey != null ? " AND (" + field.key() + ", id) > (:afterKey, :afterId)" : "";
+        String sql = "SELECT id, username, email, " + field.key() + " AS sort_key FROM users WHERE " + condition + cursor +
+                " ORDER BY " + field.key() + ", id LIMIT :limit";
+        MapSqlParameterSource parameters = new MapSqlParameterSource("query", match == Match.EXACT ? query : escapeLike(query))
+                .addValue("afterKey", afterKey)
+                .addValue("afterId", afterId);
+        return query(sql, parameters, limit);
+    }
+
+    public Slice findContaining(Field field, String query, int afterId, int limit) {
+        String sql = "SELECT id, username, email, NULL AS sort_key FROM users" +
+                " WHERE lower(" + field.column + ") LIKE '%' || lower(:query) || '%' AND id > :afterId ORDER BY id LIMIT :limit";
+        return query(sql, new MapSqlParameterSource("query", escapeLike(query)).addValue("afterId", afterId), limit);
+    }
+
+    public boolean emailTaken(String email, Integer exceptId) {
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM users WHERE " + Field.EMAIL.key() + " = lower(:email)",
+                new MapSqlParameterSource("email", email), Integer.class);
+        return ids.stream().anyMatch(id -> !id.equals(exceptId));
+    }
+
+    // лишняя строка сверх limit показывает, есть ли следующая страница
+    private Slice query(String sql, MapSqlParameterSource parameters, int limit) {
+        parameters.addValue("limit", limit + 1);
+        List<UserSummaryDto> users = new ArrayList<>();
+        String[] lastKey = new String[1];
+        boolean[] hasMore = new boolean[1];
+        jdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> {
+            if (users.size() == limit) {
+                hasMore[0] = true;
+                return;
+            }
+            users.add(toSummary(rs));
+            lastKey[0] = rs.getString("sort_key");
+        });
+        return new Slice(users, lastKey[0], hasMore[0]);
+    }
+
+    private static UserSummaryDto toSummary(ResultSet rs) throws SQLException {
+        return UserSummaryDto.builder()
+                .id(rs.getInt("id"))
+                .username(rs.getString("username"))
+                .email(rs.getString("email"))
+                .build();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Slice {
+        private final List<UserSummaryDto> users;
+        // ключ сортировки последней строки, для выборок по id - null
+        private final String lastKey;
+        private final boolean hasMore;
+    }
+}
@@ -2,8 +2,36 @@ package com.example.userservice.model.repository;
 
 import com.example.userservice.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
+
+    // пароль заменяется, только если его не успели изменить после проверки
+    @Transactional
+    @Modifying
+    @Query("update users u set u.password = :newPassword where u.id = :id and u.password = :oldPassword")
+    int replacePassword(@Param("id") Integer id, @Param("oldPassword") String oldPassword,
+                        @Param("newPassword") String newPassword);
+
+    // без version пользователь заменяется безусловно
+    @Transactional
+    @Modifying
+    @Query("update users u set u.username = :username, u.email = :email, u.password = :password, " +
+            "u.version = u.version + 1 where u.id = :id and (cast(:version as long) is null or u.version = :version)")
+    int update(@Param("id") Integer id, @Param("version") Long version, @Param("username") String username,
+               @Param("email") String email, @Param("password") String password);
+
+    // null оставляет поле без изменений; cast нужен, иначе Hibernate передаёт null-параметр как bytea
+    @Transactional
+    @Modifying
+    @Query("update users u set u.username = coalesce(cast(:username as string), u.username), u.email = coalesce(cast(:email as string), u.email), " +
+            "u.password = coalesce(cast(:password as string), u.password), u.version = u.version + 1 " +
+            "where u.id = :id and u.version = :version")
+    int patch(@Param("id") Integer id, @Param("version") long version, @Param("username") String username,
+              @Param("email") String email, @Param("password") String password);
 }
\ No newline at end of file
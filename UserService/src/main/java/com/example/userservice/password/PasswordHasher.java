@@ -0,0 +1,183 @@
+package com.example.userservice.password;
+
+import com.example.userservice.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Хеширование и проверка паролей bcrypt на отдельном пуле: потоков не больше числа ядер,
+ * очередь ограничена, при переполнении запрос сразу отклоняется. Дорогая по CPU работа не
+ * занимает потоки Tomcat сверх этого пула и не вытесняет остальные запросы. Пароли, сохранённые
+ * открытым текстом или с меньшей стоимостью bcrypt, перехешируются при следующей успешной проверке.
+ */
+@Component
+public class PasswordHasher implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("\\A\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}");
+    private static final int MIN_STRENGTH = 4;
+    private static final int MAX_CALIBRATED_STRENGTH = 16;
+
+    private final PasswordHashingProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+    private BCryptPasswordEncoder encoder;
+    private Timer hashTime;
+    private Timer verifyTime;
+    private Counter queueFull;
+    private Counter timedOut;
+    private Counter rehashed;
+
+    public PasswordHasher(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        int threads = properties.getThreads() > 0 ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        int strength = properties.getStrength() > 0 ? properties.getStrength() : calibrate(properties.getTargetLatency());
+        encoder = new BCryptPasswordEncoder(strength);
+
+        hashTime = Timer.builder("users.password.hashing.time")
+                .description("Time to hash or verify one password on the hashing pool")
+                .tag("operation", "hash")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        verifyTime = Timer.builder("users.password.hashing.time")
+                .description("Time to hash or verify one password on the hashing pool")
+                .tag("operation", "verify")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        queueFull = rejections("queue-full");
+        timedOut = rejections("timeout");
+        rehashed = Counter.builder("users.password.rehashed")
+                .description("Stored passwords upgraded to the current bcrypt strength")
+                .register(meterRegistry);
+        Gauge.builder("users.password.hashing.queue", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("users.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing tasks running")
+                .register(meterRegistry);
+        log.info("Password hashing pool started: {} threads, queue {}, bcrypt strength {}",
+                threads, properties.getQueueCapacity(), strength);
+    }
+
+    public String hash(String rawPassword) {
+        return execute(hashTime, () -> encoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null) {
+            return false;
+        }
+        if (!isHashed(storedPassword)) {
+            // пароли, сохранённые до появления хеширования
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+        return execute(verifyTime, () -> encoder.matches(rawPassword, storedPassword));
+    }
+
+    public boolean needsRehash(String storedPassword) {
+        return !isHashed(storedPassword) || encoder.upgradeEncoding(storedPassword);
+    }
+
+    public void recordRehash() {
+        rehashed.increment();
+    }
+
+    public static boolean isHashed(String storedPassword) {
+        return storedPassword != null && BCRYPT_HASH.matcher(storedPassword).matches();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(Timer timer, Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            queueFull.increment();
+            log.warn("Password hashing queue is full ({} tasks), rejecting request", executor.getQueue().size());
+            throw new PasswordHashingBusyException("Сервис перегружен проверкой паролей, повторите запрос позже");
+        }
+        try {
+            return future.get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // задача ещё в очереди - снимаем её; начатое хеширование дойдёт до конца
+            future.cancel(false);
+            timedOut.increment();
+            log.warn("Password hashing did not finish within {}", properties.getTimeout());
+            throw new PasswordHashingBusyException("Сервис перегружен проверкой паролей, повторите запрос позже");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Проверка пароля прервана");
+        }
+    }
+
+    // каждая следующая стоимость вдвое дороже; берём наибольшую, что укладывается в целевую задержку
+    private static int calibrate(Duration targetLatency) {
+        int strength = MIN_STRENGTH;
+        for (int candidate = MIN_STRENGTH; candidate <= MAX_CALIBRATED_STRENGTH; candidate++) {
+            long started = System.nanoTime();
+            new BCryptPasswordEncoder(candidate).encode("calibration");
+            long elapsed = System.nanoTime() - started;
+            if (elapsed > targetLatency.toNanos()) {
+                break;
+            }
+            strength = candidate;
+        }
+        log.info("Calibrated bcrypt strength {} for target latency {}", strength, targetLatency);
+        return strength;
+    }
+
+    private Counter rejections(String reason) {
+        return Counter.builder("users.password.hashing.rejected")
+                .description("Password hashing requests rejected because the pool was saturated")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
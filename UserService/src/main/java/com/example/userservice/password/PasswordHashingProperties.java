@@ -0,0 +1,21 @@
+package com.example.userservice.password;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.password-hashing")
+public class PasswordHashingProperties {
+    // 0 - по числу ядер
+    private int threads = 0;
+    private int queueCapacity = 16;
+    // сколько запрос ждёт результата вместе с очередью
+    private Duration timeout = Duration.ofSeconds(2);
+    // стоимость bcrypt (4..31); 0 - подобрать при старте под targetLatency
+    private int strength = 10;
+    private Duration targetLatency = Duration.ofMillis(250);
+}
@@ -0,0 +1,32 @@
+package com.example.userservice.profiling;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * События JFR вокруг методов UserService, включая проверки существования пользователя
+ * от AdsService. Пока запись не идёт, событие выключено и стоит одной проверки.
+ */
+@Aspect
+@Component
+public class FlightRecorderAspect {
+
+    @Around("execution(public * com.example.userservice.service.UserService.*(..))")
+    public Object userOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        UserOperationEvent event = new UserOperationEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        event.begin();
+        try {
+            Object result = joinPoint.proceed();
+            event.succeeded = true;
+            return result;
+        } finally {
+            event.operation = joinPoint.getSignature().getName();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.userservice.profiling;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.flight-recorder")
+public class FlightRecorderProperties {
+    private String directory = System.getProperty("java.io.tmpdir") + "/users-jfr";
+    // default - накладные расходы около 1%, profile - подробнее, около 2%
+    private String defaultProfile = "profile";
+    private Duration defaultDuration = Duration.ofMinutes(1);
+    private Duration maxDuration = Duration.ofMinutes(10);
+    // записи хранятся до удаления, новые сверх лимита не запускаются
+    private int maxRecordings = 5;
+}
@@ -0,0 +1,22 @@
+package com.example.userservice.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.users.UserOperation")
+@Label("User Operation")
+@Category({"User Service"})
+@Description("Call of a public UserService method")
+@StackTrace(false)
+class UserOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,33 @@
+package com.example.userservice.rpc;
+
+import com.example.userservice.rpc.proto.UserDirectoryGrpc;
+import com.example.userservice.rpc.proto.UserExistsReply;
+import com.example.userservice.rpc.proto.UserIdRequest;
+import com.example.userservice.service.UserService;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class UserDirectoryGrpcService extends UserDirectoryGrpc.UserDirectoryImplBase {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectoryGrpcService.class);
+
+    private final UserService userService;
+
+    @Override
+    public void checkUser(UserIdRequest request, StreamObserver<UserExistsReply> responseObserver) {
+        try {
+            boolean exists = userService.userExists(request.getUserId());
+            responseObserver.onNext(UserExistsReply.newBuilder().setExists(exists).build());
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            log.error("gRPC CheckUser failed for user ID: {}", request.getUserId(), e);
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+}
@@ -1,20 +1,25 @@
 package com.example.userservice.service;
 
+import com.example.userservice.client.AdsServiceClient;
+import com.example.userservice.datasource.ReadYourWritesTracker;
+import com.example.userservice.exception.UserBadRequestException;
+import com.example.userservice.exception.UserConflictException;
 import com.example.userservice.exception.UserException;
+import com.example.userservice.model.dto.UserDirectoryPageDto;
 import com.example.userservice.model.dto.UserDto;
+import com.example.userservice.model.dto.UserSummaryDto;
 import com.example.userservice.model.entity.User;
+import com.example.userservice.model.repository.UserDirectoryRepository;
 import com.example.userservice.model.repository.UserRepository;
+import com.example.userservice.password.PasswordHasher;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,16 +30,70 @@ public class UserService {
 
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
 
+    private static final int MAX_PAGE_SIZE = 500;
+    // короче трёх символов триграммный индекс не помогает и поиск превращается в полный просмотр
+    private static final int MIN_CONTAINS_LENGTH = 3;
+
     private final UserRepository userRepository;
-    private final RestTemplate restTemplate;
+    private final UserDirectoryRepository userDirectoryRepository;
+    private final AdsServiceClient adsServiceClient;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final PasswordHasher passwordHasher;
 
-    public List<User> getAllUsers() {
+    @Transactional(readOnly = true)
+    public List<UserSummaryDto> getAllUsers() {
         log.info("Fetching all users from the database");
-        List<User> users = userRepository.findAll();
+        List<UserSummaryDto> users = userDirectoryRepository.findAll();
         log.debug("Found {} users", users.size());
         return users;
     }
 
+    @Transactional(readOnly = true)
+    public UserDirectoryPageDto searchDirectory(String query, UserDirectoryRepository.Field field,
+                                                UserDirectoryRepository.Match match, String cursor, int limit) {
+        log.info("Searching user directory: {} {} '{}', limit {}", field, match, query, limit);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new UserBadRequestException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        int afterId = 0;
+        String afterKey = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                afterId = Integer.parseInt(separator < 0 ? decoded : decoded.substring(0, separator));
+                afterKey = separator < 0 ? null : decoded.substring(separator + 1);
+            } catch (IllegalArgumentException e) {
+                throw new UserBadRequestException("Некорректный курсор страницы: " + cursor);
+            }
+        }
+
+        UserDirectoryRepository.Slice slice;
+        if (query == null || query.isEmpty()) {
+            slice = userDirectoryRepository.findAfterId(afterId, limit);
+        } else if (match == UserDirectoryRepository.Match.CONTAINS) {
+            if (query.length() < MIN_CONTAINS_LENGTH) {
+                throw new UserBadRequestException("Для поиска по подстроке нужно не меньше " + MIN_CONTAINS_LENGTH + " символов");
+            }
+            slice = userDirectoryRepository.findContaining(field, query, afterId, limit);
+        } else {
+            slice = userDirectoryRepository.findByKey(field, match, query, afterKey, afterId, limit);
+        }
+
+        String nextCursor = null;
+        if (slice.isHasMore()) {
+            UserSummaryDto last = slice.getUsers().get(slice.getUsers().size() - 1);
+            String position = slice.getLastKey() != null ? last.getId() + ":" + slice.getLastKey() : String.valueOf(last.getId());
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+        log.debug("Found {} users, more pages: {}", slice.getUsers().size(), slice.isHasMore());
+        return UserDirectoryPageDto.builder()
+                .users(slice.getUsers())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
     public UserDto getUserById(Integer id) {
         log.info("Fetching user with ID: {}", id);
         Optional<User> userOptional = userRepository.findById(id);
@@ -45,75 +104,89 @@ public class UserService {
         return convertToDto(user);
     }
 
+    @Transactional(readOnly = true)
+    public boolean userExists(Integer id) {
+        log.debug("Checking existence of user with ID: {}", id);
+        return userRepository.existsById(id);
+    }
+
     public List<Map<String, Object>> getAdsByUserId(Integer userId) {
         log.info("Fetching ads for user with ID: {} from AdsService", userId);
-        String url = "http://localhost:8080/ads?userId=" + userId;
-        try {
-            ResponseEntity<List<Map<String, Object>>> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<List<Map<String, Object>>>() {}
-            );
-            if (response.getStatusCode() == HttpStatus.OK) {
-                List<Map<String, Object>> ads = response.getBody();
-                log.debug("Successfully fetched {} ads for user ID: {}", ads != null ? ads.size() : 0, userId);
-                return ads;
-            } else if (response.getStatusCode() == HttpStatus.NOT_FOUND) {
-                log.warn("No ads found for user ID: {}", userId);
-                return List.of(); 
-            }
-            log.error("Failed to fetch ads for user ID: {}. Status code: {}", userId, response.getStatusCode());
-            throw new UserException("Ошибка во время получения объявлений для пользователя: " + response.getStatusCode());
-        } catch (RestClientException e) {
-            log.error("Error while fetching ads for user ID: {} from AdsService", userId, e);
-            throw new UserException("Ошибка при отправке запроса для получения объявлений: " + e.getMessage());
-        }
+        return adsServiceClient.getAdsByUserId(userId);
     }
 
+    // пароль хешируется до обращения к БД, чтобы не держать соединение на время bcrypt
     public void createUser(UserDto userDto) {
         log.info("Creating new user: {}", userDto.getUsername());
+        checkEmailAvailable(userDto.getEmail(), null);
         User user = convertToEntity(userDto);
+        user.setPassword(hashPassword(userDto.getPassword()));
         userRepository.save(user);
+        readYourWritesTracker.recordWrite(user.getId());
         log.debug("User created with ID: {}", user.getId());
     }
 
+    // версия в userDto необязательна: без неё пользователь заменяется безусловно
     public void updateUser(UserDto userDto) {
         log.info("Updating user with ID: {}", userDto.getId());
-        Optional<User> userOptional = userRepository.findById(userDto.getId());
-        User user = userOptional.orElseThrow(() -> {
-            log.error("User with ID {} not found for update", userDto.getId());
-            return new UserException("Пользователь с ID " + userDto.getId() + " не найден");
+        String password = hashPassword(userDto.getPassword());
+        checkEmailAvailable(userDto.getEmail(), userDto.getId());
+        int updated = userRepository.update(userDto.getId(), userDto.getVersion(),
+                userDto.getUsername(), userDto.getEmail(), password);
+        if (updated == 0) {
+            throw notFoundOrConflict(userDto.getId(), userDto.getVersion());
+        }
+        readYourWritesTracker.recordWrite(userDto.getId());
+        log.debug("User with ID {} updated successfully", userDto.getId());
+    }
+
+    /**
+     * Меняет только переданные поля, если версия пользователя совпадает с patch.version.
+     *
+     * @return новая версия пользователя
+     */
+    public long patchUser(Integer userId, UserDto patch) {
+        log.info("Patching user with ID: {} at version {}", userId, patch.getVersion());
+        if (patch.getVersion() == null) {
+            throw new UserBadRequestException("Для частичного обновления пользователя нужна его версия");
+        }
+        String password = hashPassword(patch.getPassword());
+        checkEmailAvailable(patch.getEmail(), userId);
+        int updated = userRepository.patch(userId, patch.getVersion(), patch.getUsername(), patch.getEmail(), password);
+        if (updated == 0) {
+            throw notFoundOrConflict(userId, patch.getVersion());
+        }
+        readYourWritesTracker.recordWrite(userId);
+        log.debug("User with ID {} patched to version {}", userId, patch.getVersion() + 1);
+        return patch.getVersion() + 1;
+    }
+
+    public boolean verifyPassword(Integer userId, String password) {
+        log.info("Verifying password of user with ID: {}", userId);
+        User user = userRepository.findById(userId).orElseThrow(() -> {
+            log.error("User with ID {} not found for password check", userId);
+            return new UserException("Пользователь с ID " + userId + " не найден");
         });
-        user.setUsername(userDto.getUsername());
-        user.setEmail(userDto.getEmail());
-        user.setPassword(userDto.getPassword());
-        userRepository.save(user);
-        log.debug("User with ID {} updated successfully", user.getId());
+        String stored = user.getPassword();
+        if (!passwordHasher.matches(password, stored)) {
+            log.debug("Password of user with ID {} does not match", userId);
+            return false;
+        }
+        if (passwordHasher.needsRehash(stored)) {
+            // проверка ленивая: старые пароли перехешируются, когда пользователь предъявил верный пароль
+            if (userRepository.replacePassword(userId, stored, passwordHasher.hash(password)) > 0) {
+                passwordHasher.recordRehash();
+                readYourWritesTracker.recordWrite(userId);
+                log.info("Password of user with ID {} rehashed", userId);
+            }
+        }
+        return true;
     }
 
+    @Transactional
     public void deleteUser(Integer userId) {
         log.info("Deleting user with ID: {}", userId);
-        String url = "http://localhost:8080/ads?userId=" + userId;
-        try {
-            ResponseEntity<String> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.DELETE,
-                    null,
-                    String.class
-            );
-            if (response.getStatusCode() == HttpStatus.OK) {
-                log.debug("Ads deleted for user ID: {}", userId);
-            } else if (response.getStatusCode() == HttpStatus.NOT_FOUND) {
-                log.warn("No ads found to delete for user ID: {}", userId);
-            } else {
-                log.error("Failed to delete ads for user ID: {}. Status code: {}", userId, response.getStatusCode());
-                throw new UserException("Ошибка при удалении связанных объявлений: " + response.getStatusCode());
-            }
-        } catch (RestClientException e) {
-            log.error("Error while deleting ads for user ID: {} from AdsService", userId, e);
-            throw new UserException("Ошибка при удалении объявлений: " + e.getMessage());
-        }
+        adsServiceClient.deleteAdsByUserId(userId);
 
         Optional<User> userOptional = userRepository.findById(userId);
         User user = userOptional.orElseThrow(() -> {
@@ -121,24 +194,46 @@ public class UserService {
             return new UserException("Пользователь с ID " + userId + " не найден");
         });
         userRepository.delete(user);
+        readYourWritesTracker.recordWrite(userId);
         log.debug("User with ID {} deleted successfully", userId);
     }
 
+    // запись не изменила ни одной строки; отдельный запрос нужен только для выбора между 404 и 409
+    private UserException notFoundOrConflict(Integer userId, Long expectedVersion) {
+        if (expectedVersion != null && userRepository.existsById(userId)) {
+            log.warn("User with ID {} was changed concurrently, expected version {}", userId, expectedVersion);
+            return new UserConflictException("Пользователь с ID " + userId + " уже изменён: версия "
+                    + expectedVersion + " устарела");
+        }
+        log.error("User with ID {} not found for update", userId);
+        return new UserException("Пользователь с ID " + userId + " не найден");
+    }
+
+    private void checkEmailAvailable(String email, Integer userId) {
+        if (email != null && userDirectoryRepository.emailTaken(email, userId)) {
+            log.error("Email {} is already used by another user", email);
+            throw new UserException("Пользователь с email " + email + " уже существует");
+        }
+    }
+
     private UserDto convertToDto(User user) {
         return UserDto.builder()
                 .id(user.getId())
                 .username(user.getUsername())
                 .email(user.getEmail())
-                .password(user.getPassword())
+                .version(user.getVersion())
                 .build();
     }
 
+    private String hashPassword(String password) {
+        return password != null ? passwordHasher.hash(password) : null;
+    }
+
     private User convertToEntity(UserDto userDto) {
         return User.builder()
                 .id(userDto.getId())
                 .username(userDto.getUsername())
                 .email(userDto.getEmail())
-                .password(userDto.getPassword())
                 .build();
     }
-}
\ No newline at end of file
+}
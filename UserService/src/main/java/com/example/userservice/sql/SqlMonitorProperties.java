@@ -0,0 +1,17 @@
+package com.example.userservice.sql;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.sql")
+public class SqlMonitorProperties {
+    private boolean enabled = true;
+    // больше стольких запросов к БД за один HTTP-запрос - вероятно N+1
+    private int statementBudget = 20;
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+}
@@ -0,0 +1,53 @@
+--liquibase formatted sql
+
+--changeset username:2026-10-18_users_pg_trgm labels:users
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+--rollback SELECT 1;
+
+--changeset username:2026-10-18_users_email_duplicates_report labels:users splitStatements:false
+-- базовая схема не требовала уникальности email; если в таблице есть адреса, отличающиеся только
+-- регистром, миграция останавливается здесь и перечисляет их, чтобы их развели до создания индекса
+DO $$
+DECLARE
+    duplicates TEXT;
+BEGIN
+    SELECT string_agg(format('%s (id %s)', email, ids), ', ')
+    INTO duplicates
+    FROM (SELECT lower(email) AS email, string_agg(id::text, ',' ORDER BY id) AS ids
+          FROM users
+          WHERE email IS NOT NULL
+          GROUP BY lower(email)
+          HAVING count(*) > 1
+          ORDER BY lower(email)
+          LIMIT 100) d;
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'Emails differing only in case must be resolved before ux_users_email is created: %', duplicates;
+    END IF;
+END
+$$;
+--rollback SELECT 1;
+
+--changeset username:2026-10-18_users_email_unique labels:users runInTransaction:false
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:0 SELECT count(*) FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = 'ux_users_email' AND i.indisvalid
+-- ключи в правилах сравнения "C": один btree-индекс обслуживает и равенство, и LIKE 'abc%',
+-- и ORDER BY ключа, поэтому страница справочника читается диапазоном индекса.
+-- Индексы строятся CONCURRENTLY, не блокируя запись в users; прерванная сборка оставляет
+-- невалидный индекс, поэтому он удаляется и строится заново, пока не появится валидный
+DROP INDEX CONCURRENTLY IF EXISTS ux_users_email;
+CREATE UNIQUE INDEX CONCURRENTLY ux_users_email ON users ((lower(email) COLLATE "C"));
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ux_users_email;
+
+--changeset username:2026-10-18_users_directory_search_indexes labels:users runInTransaction:false
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:0 SELECT CASE WHEN count(*) = 3 THEN 1 ELSE 0 END FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname IN ('idx_users_username_keyset', 'idx_users_username_trgm', 'idx_users_email_trgm') AND i.indisvalid
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_username_keyset;
+CREATE INDEX CONCURRENTLY idx_users_username_keyset ON users ((lower(username) COLLATE "C"), id);
+-- поиск по подстроке
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_username_trgm;
+CREATE INDEX CONCURRENTLY idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops);
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_email_trgm;
+CREATE INDEX CONCURRENTLY idx_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS idx_users_email_trgm;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS idx_users_username_trgm;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS idx_users_username_keyset;
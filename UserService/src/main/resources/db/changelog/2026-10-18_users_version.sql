@@ -0,0 +1,8 @@
+--liquibase formatted sql
+--changeset username:2026-10-18_users_version labels:users
+
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+COMMENT ON COLUMN users.version IS 'Версия пользователя для оптимистической блокировки';
+
+--rollback ALTER TABLE users DROP COLUMN version;
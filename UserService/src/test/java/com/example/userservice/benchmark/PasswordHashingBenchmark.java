@@ -0,0 +1,90 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.exception.PasswordHashingBusyException;
+import com.example.userservice.password.PasswordHasher;
+import com.example.userservice.password.PasswordHashingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Подбор стоимости bcrypt под целевую задержку и поведение пула под нагрузкой:
+ * {@code mvn test -Dtest=PasswordHashingBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PasswordHashingBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 64);
+    private static final int STRENGTH = Integer.getInteger("benchmark.strength", 10);
+
+    @Test
+    void strengthTable() {
+        for (int strength = 8; strength <= 14; strength++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+            encoder.encode("warmup");
+            long[] samples = new long[5];
+            for (int i = 0; i < samples.length; i++) {
+                long started = System.nanoTime();
+                encoder.encode("password-" + i);
+                samples[i] = System.nanoTime() - started;
+            }
+            Arrays.sort(samples);
+            System.out.printf("strength=%d median=%.1fms%n", strength, samples[samples.length / 2] / 1e6);
+        }
+    }
+
+    @Test
+    void saturatedPool() throws Exception {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setStrength(STRENGTH);
+        PasswordHasher hasher = new PasswordHasher(properties, new SimpleMeterRegistry());
+        hasher.afterPropertiesSet();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<Long>> futures = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int i = 0; i < CLIENTS * 4; i++) {
+            int n = i;
+            futures.add(clients.submit(() -> {
+                long callStarted = System.nanoTime();
+                try {
+                    hasher.hash("password-" + n);
+                    return System.nanoTime() - callStarted;
+                } catch (PasswordHashingBusyException e) {
+                    rejected.incrementAndGet();
+                    return -(System.nanoTime() - callStarted);
+                }
+            }));
+        }
+        List<Long> accepted = new ArrayList<>();
+        List<Long> rejections = new ArrayList<>();
+        for (Future<Long> future : futures) {
+            long latency = future.get();
+            if (latency >= 0) {
+                accepted.add(latency);
+            } else {
+                rejections.add(-latency);
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        clients.shutdown();
+        hasher.destroy();
+
+        accepted.sort(null);
+        rejections.sort(null);
+        System.out.printf("strength=%d clients=%d hashed=%d rejected=%d throughput=%.1f/s p50=%.1fms p99=%.1fms " +
+                        "rejection p50=%.2fms%n",
+                STRENGTH, CLIENTS, accepted.size(), rejected.get(), accepted.size() / (elapsed / 1e9),
+                accepted.get(accepted.size() / 2) / 1e6, accepted.get((int) (accepted.size() * 0.99)) / 1e6,
+                rejections.isEmpty() ? 0 : rejections.get(rejections.size() / 2) / 1e6);
+    }
+}